@@ -0,0 +1,39 @@
+package club.code2create.mcremote;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+/**
+ * Optional MSPT feedback for {@link WorkAdmission}. When enabled, the per-tick session, player and
+ * global budgets of {@link B5RuntimePolicy} are multiplied by a scale that grows while the server
+ * runs faster than {@code targetMspt} and shrinks under lag, bounded by {@code minScale} and
+ * {@code maxScale}. Disabled keeps the configured numbers as fixed limits.
+ */
+record AdaptiveWorkPolicy(
+        boolean enabled,
+        double targetMspt,
+        double minScale,
+        double maxScale
+) {
+    static final double DEFAULT_TARGET_MSPT = 40.0;
+    static final double DEFAULT_MIN_SCALE = 0.25;
+    static final double DEFAULT_MAX_SCALE = 4.0;
+
+    static AdaptiveWorkPolicy from(FileConfiguration config) {
+        double minScale = positive(config.getDouble("b5.adaptive_work.min_scale", DEFAULT_MIN_SCALE), DEFAULT_MIN_SCALE);
+        double maxScale = positive(config.getDouble("b5.adaptive_work.max_scale", DEFAULT_MAX_SCALE), DEFAULT_MAX_SCALE);
+        return new AdaptiveWorkPolicy(
+                config.getBoolean("b5.adaptive_work.enabled", false),
+                positive(config.getDouble("b5.adaptive_work.target_mspt", DEFAULT_TARGET_MSPT), DEFAULT_TARGET_MSPT),
+                Math.min(minScale, maxScale),
+                Math.max(minScale, maxScale));
+    }
+
+    /** The configured budgets, unchanged by server load. */
+    static AdaptiveWorkPolicy fixed() {
+        return new AdaptiveWorkPolicy(false, DEFAULT_TARGET_MSPT, 1.0, 1.0);
+    }
+
+    private static double positive(double value, double fallback) {
+        return Double.isFinite(value) && value > 0 ? value : fallback;
+    }
+}
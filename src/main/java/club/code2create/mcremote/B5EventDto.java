@@ -16,13 +16,14 @@ final class B5EventDto {
             List<Integer> origin,
             List<Integer> position,
             String face,
-            Map<String, Object> block,
+            RawJson block,
             String hand
     ) {
         Map<String, Object> dto = common("block_right_click", world, origin);
         dto.put("pos", List.copyOf(position));
         dto.put("face", face);
-        dto.put("block", immutable(block));
+        // BlockValueCache の共有値（不変）。複製せずそのまま載せる。
+        dto.put("block", block);
         dto.put("hand", hand);
         return immutable(dto);
     }
@@ -51,6 +52,24 @@ final class B5EventDto {
         return immutable(dto);
     }
 
+    static Map<String, Object> jobFinished(
+            String world,
+            List<Integer> origin,
+            long jobId,
+            String state,
+            long written,
+            long volume,
+            Long changed
+    ) {
+        Map<String, Object> dto = common("job_finished", world, origin);
+        dto.put("job_id", jobId);
+        dto.put("state", state);
+        dto.put("written", written);
+        dto.put("volume", volume);
+        dto.put("changed", changed);
+        return immutable(dto);
+    }
+
     private static Map<String, Object> common(String type, String world, List<Integer> origin) {
         Map<String, Object> dto = new LinkedHashMap<>();
         dto.put("type", type);
@@ -14,7 +14,14 @@ record B5RuntimePolicy(
         int playerWorkPerTick,
         int globalWorkPerTick,
         int connectionQueueCapacity,
-        int connectionResponseQueueCapacity
+        int connectionResponseQueueCapacity,
+        int tickBudgetMicros,
+        int workBurstTicks,
+        int maxJobVolume,
+        int maxJobsPerSession,
+        int paletteCapacity,
+        int blockDataCacheSize,
+        int blockValueCacheSize
 ) {
     static final int DEFAULT_EVENT_RING_CAPACITY = 256;
     static final int DEFAULT_EVENT_RING_BYTES = 262_144;
@@ -28,6 +35,13 @@ record B5RuntimePolicy(
     static final int DEFAULT_GLOBAL_WORK_PER_TICK = 32_768;
     static final int DEFAULT_CONNECTION_QUEUE_CAPACITY = 1_024;
     static final int DEFAULT_CONNECTION_RESPONSE_QUEUE_CAPACITY = 64;
+    static final int DEFAULT_TICK_BUDGET_MICROS = 10_000;
+    static final int DEFAULT_WORK_BURST_TICKS = 4;
+    static final int DEFAULT_MAX_JOB_VOLUME = 262_144;
+    static final int DEFAULT_MAX_JOBS_PER_SESSION = 4;
+    static final int DEFAULT_PALETTE_CAPACITY = 256;
+    static final int DEFAULT_BLOCK_DATA_CACHE_SIZE = 1_024;
+    static final int DEFAULT_BLOCK_VALUE_CACHE_SIZE = 4_096;
 
     static B5RuntimePolicy from(FileConfiguration config) {
         int eventPollLimit = positive(config.getInt(
@@ -48,7 +62,66 @@ record B5RuntimePolicy(
                 positive(config.getInt("b5.connection_queue_capacity", DEFAULT_CONNECTION_QUEUE_CAPACITY)),
                 positive(config.getInt(
                         "b5.connection_response_queue_capacity",
-                        DEFAULT_CONNECTION_RESPONSE_QUEUE_CAPACITY)));
+                        DEFAULT_CONNECTION_RESPONSE_QUEUE_CAPACITY)),
+                positive(config.getInt("b5.tick_budget_micros", DEFAULT_TICK_BUDGET_MICROS)),
+                positive(config.getInt("b5.work_burst_ticks", DEFAULT_WORK_BURST_TICKS)),
+                positive(config.getInt("b5.max_job_volume", DEFAULT_MAX_JOB_VOLUME)),
+                positive(config.getInt("b5.max_jobs_per_session", DEFAULT_MAX_JOBS_PER_SESSION)),
+                positive(config.getInt("b5.palette_capacity", DEFAULT_PALETTE_CAPACITY)),
+                positive(config.getInt("b5.block_data_cache_size", DEFAULT_BLOCK_DATA_CACHE_SIZE)),
+                positive(config.getInt("b5.block_value_cache_size", DEFAULT_BLOCK_VALUE_CACHE_SIZE)));
+    }
+
+    /** 設定ファイルを読まない既定値。test fixture は変えたい項目だけ with* で上書きする。 */
+    static B5RuntimePolicy defaults() {
+        return new B5RuntimePolicy(
+                DEFAULT_EVENT_RING_CAPACITY, DEFAULT_EVENT_RING_BYTES, DEFAULT_EVENT_POLL_DEFAULT,
+                DEFAULT_EVENT_POLL_LIMIT, DEFAULT_ENTITY_HANDLE_CAPACITY, DEFAULT_MAX_PARTICLE_COUNT,
+                DEFAULT_MAX_WORK_PER_REQUEST, DEFAULT_SESSION_WORK_PER_TICK, DEFAULT_PLAYER_WORK_PER_TICK,
+                DEFAULT_GLOBAL_WORK_PER_TICK, DEFAULT_CONNECTION_QUEUE_CAPACITY,
+                DEFAULT_CONNECTION_RESPONSE_QUEUE_CAPACITY, DEFAULT_TICK_BUDGET_MICROS,
+                DEFAULT_WORK_BURST_TICKS, DEFAULT_MAX_JOB_VOLUME, DEFAULT_MAX_JOBS_PER_SESSION,
+                DEFAULT_PALETTE_CAPACITY, DEFAULT_BLOCK_DATA_CACHE_SIZE, DEFAULT_BLOCK_VALUE_CACHE_SIZE);
+    }
+
+    B5RuntimePolicy withMaxWorkPerRequest(int value) {
+        return new B5RuntimePolicy(
+                eventRingCapacity, eventRingBytes, eventPollDefault, eventPollLimit, entityHandleCapacity,
+                maxParticleCount, value, sessionWorkPerTick, playerWorkPerTick, globalWorkPerTick,
+                connectionQueueCapacity, connectionResponseQueueCapacity, tickBudgetMicros, workBurstTicks,
+                maxJobVolume, maxJobsPerSession, paletteCapacity, blockDataCacheSize, blockValueCacheSize);
+    }
+
+    B5RuntimePolicy withSessionWorkPerTick(int value) {
+        return new B5RuntimePolicy(
+                eventRingCapacity, eventRingBytes, eventPollDefault, eventPollLimit, entityHandleCapacity,
+                maxParticleCount, maxWorkPerRequest, value, playerWorkPerTick, globalWorkPerTick,
+                connectionQueueCapacity, connectionResponseQueueCapacity, tickBudgetMicros, workBurstTicks,
+                maxJobVolume, maxJobsPerSession, paletteCapacity, blockDataCacheSize, blockValueCacheSize);
+    }
+
+    B5RuntimePolicy withPlayerWorkPerTick(int value) {
+        return new B5RuntimePolicy(
+                eventRingCapacity, eventRingBytes, eventPollDefault, eventPollLimit, entityHandleCapacity,
+                maxParticleCount, maxWorkPerRequest, sessionWorkPerTick, value, globalWorkPerTick,
+                connectionQueueCapacity, connectionResponseQueueCapacity, tickBudgetMicros, workBurstTicks,
+                maxJobVolume, maxJobsPerSession, paletteCapacity, blockDataCacheSize, blockValueCacheSize);
+    }
+
+    B5RuntimePolicy withGlobalWorkPerTick(int value) {
+        return new B5RuntimePolicy(
+                eventRingCapacity, eventRingBytes, eventPollDefault, eventPollLimit, entityHandleCapacity,
+                maxParticleCount, maxWorkPerRequest, sessionWorkPerTick, playerWorkPerTick, value,
+                connectionQueueCapacity, connectionResponseQueueCapacity, tickBudgetMicros, workBurstTicks,
+                maxJobVolume, maxJobsPerSession, paletteCapacity, blockDataCacheSize, blockValueCacheSize);
+    }
+
+    B5RuntimePolicy withWorkBurstTicks(int value) {
+        return new B5RuntimePolicy(
+                eventRingCapacity, eventRingBytes, eventPollDefault, eventPollLimit, entityHandleCapacity,
+                maxParticleCount, maxWorkPerRequest, sessionWorkPerTick, playerWorkPerTick, globalWorkPerTick,
+                connectionQueueCapacity, connectionResponseQueueCapacity, tickBudgetMicros, value, maxJobVolume,
+                maxJobsPerSession, paletteCapacity, blockDataCacheSize, blockValueCacheSize);
     }
 
     private static int positive(int value) {
@@ -0,0 +1,68 @@
+package club.code2create.mcremote;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 実行中の JSON-RPC batch 1つ。要素を配列順に実行し、その応答を溜めて完了時に1つの配列で返させる。
+ *
+ * <p>要素が work admission で deferred になれば位置を保ったまま止まり、次 tick の {@link #resume} で
+ * その要素から続ける（実行済み要素は再実行しない）。main thread 専用。</p>
+ */
+final class BatchRun {
+    /** 要素の実行先。応答は {@link #respond} へ回す。 */
+    interface Executor {
+        /** @return false なら deferred。同じ要素から再開する */
+        boolean execute(ParsedCommand command);
+
+        /** 不正な要素。id が読めていればエラー応答を返す。 */
+        void reject(MalformedFrame element);
+
+        /** 要素の実行で接続が閉じ始めたら true。残りの要素は実行しない。 */
+        boolean stopped();
+    }
+
+    private final ParsedBatch frame;
+    private final List<Object> responses = new ArrayList<>();
+    private int next;
+
+    BatchRun(ParsedBatch frame) {
+        this.frame = frame;
+    }
+
+    /** FIFO 先頭に残っている当該フレーム（再開の目印）。 */
+    ParsedBatch frame() {
+        return frame;
+    }
+
+    void respond(Object envelope) {
+        responses.add(envelope);
+    }
+
+    /** 残りの要素を実行する。deferred で止まれば false、最後まで（または stop まで）進めば true。 */
+    boolean resume(Executor executor) {
+        List<ParsedFrame> elements = frame.elements();
+        while (next < elements.size()) {
+            ParsedFrame element = elements.get(next);
+            if (element instanceof ParsedCommand command) {
+                if (!executor.execute(command)) {
+                    return false;
+                }
+            } else {
+                executor.reject((MalformedFrame) element);
+            }
+            next++;
+            if (executor.stopped()) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    /** ここまでに溜まった応答を取り出す。全要素が notification なら空。 */
+    List<Object> takeResponses() {
+        List<Object> taken = List.copyOf(responses);
+        responses.clear();
+        return taken;
+    }
+}
@@ -6,31 +6,40 @@ import com.google.gson.JsonPrimitive;
 import org.bukkit.Bukkit;
 import org.bukkit.block.data.BlockData;
 
-import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.function.Function;
 
 /** protocol 22 BlockSpec validation and BlockValue canonicalization. */
 final class BlockCodec {
-    private final Function<String, Map<String, List<Object>>> stateLookup;
+    private final BlockStateIndex blockStates;
     private final Function<String, BlockData> blockDataFactory;
+    // null なら毎回 factory で生成する（テスト用）。
+    private final BlockDataCache blockDataCache;
 
-    BlockCodec(CatalogService catalogService) {
-        this(catalogService::getBlockStateValues, Bukkit::createBlockData);
+    BlockCodec(CatalogService catalogService, BlockDataCache blockDataCache) {
+        this(catalogService.getBlockStates(), Bukkit::createBlockData, blockDataCache);
+    }
+
+    BlockCodec(BlockStateIndex blockStates, Function<String, BlockData> blockDataFactory) {
+        this(blockStates, blockDataFactory, null);
     }
 
     BlockCodec(
-            Function<String, Map<String, List<Object>>> stateLookup,
-            Function<String, BlockData> blockDataFactory
+            BlockStateIndex blockStates,
+            Function<String, BlockData> blockDataFactory,
+            BlockDataCache blockDataCache
     ) {
-        this.stateLookup = stateLookup;
+        this.blockStates = blockStates;
         this.blockDataFactory = blockDataFactory;
+        this.blockDataCache = blockDataCache;
     }
 
+    /**
+     * Validates {@code element} as a BlockSpec and returns its BlockData. Validation always runs in
+     * full, so errors do not depend on the cache; only the parse of the canonical state is cached.
+     */
     BlockData decode(JsonElement element, String path) throws ValidationException {
         if (element == null || !element.isJsonObject()) {
             throw invalid(path, "BlockSpec must be an object");
@@ -55,8 +64,8 @@ final class BlockCodec {
         }
         String inputBlockId = blockIdElement.getAsString();
         String blockId = inputBlockId.contains(":") ? inputBlockId : "minecraft:" + inputBlockId;
-        Map<String, List<Object>> definitions = stateLookup.apply(blockId);
-        if (definitions == null) {
+        BlockStateIndex.Block block = blockStates.block(blockId);
+        if (block == null) {
             Map<String, Object> data = new LinkedHashMap<>();
             data.put("block_id", blockId);
             throw new ValidationException("unknown_block", data);
@@ -66,41 +75,37 @@ final class BlockCodec {
         if (stateElement == null || !stateElement.isJsonObject()) {
             throw invalid(path + ".state", "state must be an object");
         }
-        Map<String, Object> canonicalState = new TreeMap<>();
+        // property の名前順（index の ordinal）に置けば、そのまま正準形の並びになる。
+        Object[] canonicalState = new Object[block.propertyCount()];
         for (Map.Entry<String, JsonElement> entry : stateElement.getAsJsonObject().entrySet()) {
             String property = entry.getKey();
-            String propertyPath = path + ".state." + property;
-            List<Object> allowed = definitions.get(property);
-            if (allowed == null) {
+            BlockStateIndex.Property definition = block.property(property);
+            if (definition == null) {
                 Map<String, Object> data = blockPropertyData(blockId, property);
                 throw new ValidationException("unknown_property", data);
             }
-            Object inputValue = scalar(entry.getValue(), propertyPath);
-            Object acceptedValue = findAllowed(inputValue, allowed);
-            if (acceptedValue == null) {
-                Map<String, Object> data = blockPropertyData(blockId, property);
-                data.put("value", inputValue);
-                data.put("allowed", allowed);
-                throw new ValidationException("invalid_property_value", data);
-            }
-            canonicalState.put(property, acceptedValue);
+            canonicalState[definition.ordinal()] =
+                    allowedValue(entry.getValue(), definition, blockId, path);
         }
 
         StringBuilder serialized = new StringBuilder(blockId);
-        if (!canonicalState.isEmpty()) {
-            serialized.append('[');
-            boolean first = true;
-            for (Map.Entry<String, Object> entry : canonicalState.entrySet()) {
-                if (!first) {
-                    serialized.append(',');
-                }
-                serialized.append(entry.getKey()).append('=').append(entry.getValue());
-                first = false;
+        boolean first = true;
+        for (int i = 0; i < canonicalState.length; i++) {
+            if (canonicalState[i] == null) {
+                continue;
             }
+            serialized.append(first ? '[' : ',')
+                    .append(block.property(i).name()).append('=').append(canonicalState[i]);
+            first = false;
+        }
+        if (!first) {
             serialized.append(']');
         }
         try {
-            return blockDataFactory.apply(serialized.toString());
+            String canonical = serialized.toString();
+            return blockDataCache == null
+                    ? blockDataFactory.apply(canonical)
+                    : blockDataCache.get(canonical, blockDataFactory);
         } catch (IllegalArgumentException e) {
             throw new IllegalStateException("catalog and live block registry disagree for " + blockId, e);
         }
@@ -138,45 +143,56 @@ final class BlockCodec {
         return data;
     }
 
-    private static Object scalar(JsonElement element, String path) throws ValidationException {
+    /**
+     * The catalog's value object equal to {@code element}; numbers compare as exact integers. The
+     * property's data path is only built for an error.
+     */
+    private static Object allowedValue(
+            JsonElement element,
+            BlockStateIndex.Property property,
+            String blockId,
+            String specPath
+    ) throws ValidationException {
         if (element == null || !element.isJsonPrimitive()) {
-            throw invalid(path, "state value must be a JSON scalar");
+            throw invalid(statePath(specPath, property), "state value must be a JSON scalar");
         }
         JsonPrimitive primitive = element.getAsJsonPrimitive();
+        Object accepted;
         if (primitive.isBoolean()) {
-            return primitive.getAsBoolean();
-        }
-        if (primitive.isNumber()) {
+            accepted = property.match(primitive.getAsBoolean());
+        } else if (primitive.isNumber()) {
             try {
-                return primitive.getAsBigDecimal();
+                accepted = property.match(WireNumbers.integral(primitive));
+            } catch (ArithmeticException e) {
+                // 小数や long 超えは catalog のどの整数とも等しくない。
+                accepted = null;
             } catch (NumberFormatException e) {
-                throw invalid(path, "state number is invalid");
+                throw invalid(statePath(specPath, property), "state number is invalid");
             }
-        }
-        if (primitive.isString()) {
-            return primitive.getAsString();
-        }
-        throw invalid(path, "state value must be boolean, number, or string");
+        } else if (primitive.isString()) {
+            accepted = property.match(primitive.getAsString());
+        } else {
+            throw invalid(statePath(specPath, property), "state value must be boolean, number, or string");
+        }
+        if (accepted == null) {
+            Map<String, Object> data = blockPropertyData(blockId, property.name());
+            data.put("value", inputValue(primitive));
+            data.put("allowed", property.allowed());
+            throw new ValidationException("invalid_property_value", data);
+        }
+        return accepted;
     }
 
-    private static Object findAllowed(Object input, List<Object> allowed) {
-        for (Object candidate : allowed) {
-            if (sameScalar(input, candidate)) {
-                return candidate;
-            }
-        }
-        return null;
+    private static String statePath(String specPath, BlockStateIndex.Property property) {
+        return specPath + ".state." + property.name();
     }
 
-    private static boolean sameScalar(Object left, Object right) {
-        if (left instanceof Number && right instanceof Number) {
-            try {
-                return new BigDecimal(left.toString()).compareTo(new BigDecimal(right.toString())) == 0;
-            } catch (NumberFormatException ignored) {
-                return false;
-            }
+    /** The client's value as invalid_property_value reports it (numbers exactly as sent). */
+    private static Object inputValue(JsonPrimitive primitive) {
+        if (primitive.isBoolean()) {
+            return primitive.getAsBoolean();
         }
-        return left != null && right != null && left.getClass() == right.getClass() && left.equals(right);
+        return primitive.isNumber() ? primitive.getAsBigDecimal() : primitive.getAsString();
     }
 
     static final class ValidationException extends Exception {
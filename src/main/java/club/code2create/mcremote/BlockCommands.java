@@ -9,10 +9,33 @@ public class BlockCommands {
         this.editCommands = new BlockEditCommands(session, miscCommands);
     }
 
-    public void register(CommandRegistry registry) {
-        registry.registerStructured("world.getBlock", queryCommands::handleGetBlock);
-        registry.registerStructured("world.getBlocks", queryCommands::handleGetBlocks);
-        registry.registerStructured("world.setBlock", editCommands::handleSetBlock);
-        registry.registerStructured("world.setBlocks", editCommands::handleSetBlocks);
+    BlockQueryCommands queries() {
+        return queryCommands;
+    }
+
+    BlockEditCommands edits() {
+        return editCommands;
+    }
+
+    static void register(CommandRegistry.Builder<SessionCommands> registry) {
+        // params の検証（WireParams / BlockQueryRegion / BlockCodec）は reader 側で済ませる。
+        registry.registerPrepared("world.getBlock",
+                (commands, params) -> BlockQueryCommands.prepareGetBlock(params),
+                (commands, params) -> commands.blockQuery().handleGetBlock(params));
+        registry.registerPrepared("world.getBlocks",
+                (commands, params) -> BlockQueryRegion.parse(params),
+                (commands, params) -> commands.blockQuery().handleGetBlocks(params));
+        registry.registerPrepared("world.setBlock",
+                (commands, params) -> commands.blockEdit().prepareSetBlock(params),
+                (commands, params) -> commands.blockEdit().handleSetBlock(params));
+        registry.registerPrepared("world.setBlocks",
+                (commands, params) -> commands.blockEdit().prepareSetBlocks(params),
+                (commands, params) -> commands.blockEdit().handleSetBlocks(params));
+        registry.registerPrepared("world.setBlocksList",
+                (commands, params) -> commands.blockEdit().prepareSetBlocksList(params),
+                (commands, params) -> commands.blockEdit().handleSetBlocksList(params));
+        registry.registerPrepared("block.definePalette",
+                (commands, params) -> commands.blockEdit().prepareDefinePalette(params),
+                (commands, params) -> commands.blockEdit().handleDefinePalette(params));
     }
 }
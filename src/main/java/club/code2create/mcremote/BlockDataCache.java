@@ -0,0 +1,84 @@
+package club.code2create.mcremote;
+
+import org.bukkit.block.data.BlockData;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Process-wide LRU of parsed BlockData keyed by the canonical state string {@link BlockCodec} builds
+ * after validation ({@code minecraft:oak_log[axis=z]}).
+ *
+ * <p>Clients use a handful of distinct blocks, so almost every decode can skip the
+ * {@code Bukkit.createBlockData} parse. The cached instance is never handed out: a hit returns a
+ * clone, a miss returns the fresh instance and keeps a clone, so a caller that mutates its BlockData
+ * cannot change what the next decode sees. Decode runs on every connection's reader, so the map is
+ * guarded by this object; the parse on a miss happens outside the lock.</p>
+ */
+final class BlockDataCache {
+    private final int capacity;
+    private final LinkedHashMap<String, BlockData> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    BlockDataCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("cache capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BlockData> eldest) {
+                if (size() > BlockDataCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** The BlockData for {@code canonical}, parsed by {@code factory} only on a miss. */
+    BlockData get(String canonical, Function<String, BlockData> factory) {
+        synchronized (this) {
+            BlockData cached = entries.get(canonical);
+            if (cached != null) {
+                hits++;
+                return cached.clone();
+            }
+            misses++;
+        }
+        BlockData created = factory.apply(canonical);
+        synchronized (this) {
+            // 同時に外れた reader が先に入れていてもどちらも同じ state。後勝ちで良い。
+            entries.put(canonical, created.clone());
+        }
+        return created;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+
+    synchronized long evictions() {
+        return evictions;
+    }
+
+    /** {@code /mcremote stats} 用。 */
+    synchronized String describe() {
+        long lookups = hits + misses;
+        return "block data cache " + entries.size() + "/" + capacity
+                + ": hits=" + hits + " misses=" + misses + " evictions=" + evictions
+                + (lookups == 0 ? "" : " (" + (100 * hits / lookups) + "% hit)");
+    }
+}
@@ -2,20 +2,32 @@ package club.code2create.mcremote;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.data.BlockData;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
-/** protocol 22 structured BlockSpec handlers for world.setBlock/setBlocks. */
+/**
+ * protocol 22 structured BlockSpec handlers for world.setBlock/setBlocks/setBlocksList and
+ * block.definePalette. Wherever a BlockSpec is accepted, an id from this connection's
+ * {@link BlockPalette} may be passed instead; it is resolved on the main thread in FIFO order, after
+ * any definePalette sent before it.
+ */
 public class BlockEditCommands {
     private static final Logger logger = Logger.getLogger("McR_BlockEdit");
     private static final int WORLD_LIMIT = 1_000_000;
     private static final int SKY_LIMIT = 1_000;
+    static final int MAX_PALETTE_SIZE = 1_024;
+    // session palette の上限は設定値だが、reader 側ではそれを知らないので int に収まる範囲だけ見る。
+    private static final long MAX_PALETTE_ID = Integer.MAX_VALUE;
 
     private final RemoteSession session;
     private final MiscCommands miscCommands;
@@ -24,22 +36,29 @@ public class BlockEditCommands {
     public BlockEditCommands(RemoteSession session, MiscCommands miscCommands) {
         this.session = session;
         this.miscCommands = miscCommands;
-        this.blockCodec = new BlockCodec(session.getPlugin().getCatalogService());
+        this.blockCodec = new BlockCodec(
+                session.getPlugin().getCatalogService(), session.getPlugin().getBlockDataCache());
     }
 
-    public void handleSetBlock(JsonElement params) {
+    /** Reader-side validation for world.setBlock: coordinates and BlockSpec, no world access. */
+    BlockPlacement prepareSetBlock(JsonElement params) throws BlockCodec.ValidationException {
+        JsonArray args = WireParams.positional(params, 4);
+        int x = coordinate(args, 0);
+        int y = coordinate(args, 1);
+        int z = coordinate(args, 2);
+        return new BlockPlacement(x, y, z, block(args.get(3), "params[3]"));
+    }
+
+    void handleSetBlock(PreparedParams<BlockPlacement, BlockCodec.ValidationException> params) {
         try {
-            JsonArray args = WireParams.positional(params, 4);
-            int x = coordinate(args, 0);
-            int y = coordinate(args, 1);
-            int z = coordinate(args, 2);
-            BlockData data = blockCodec.decode(args.get(3), "params[3]");
+            BlockPlacement placement = params.get();
             World world = session.getOrigin().getWorld();
-            Location loc = miscCommands.parseRelativeBlockLocation(x, y, z);
+            Location loc = miscCommands.parseRelativeBlockLocation(placement.x(), placement.y(), placement.z());
             if (!checkRange(loc)) {
                 session.respondError(-32000, "build_denied", null);
                 return;
             }
+            BlockData data = resolve(placement.block(), "params[3]");
             if (!session.admitSetterWork(1)) {
                 return;
             }
@@ -55,29 +74,75 @@ public class BlockEditCommands {
         }
     }
 
-    public void handleSetBlocks(JsonElement params) {
+    /**
+     * Reader-side validation for world.setBlocks: both corners, BlockSpec and the optional options
+     * object ({@code "job"}, {@code "diff"}: booleans), no world access.
+     */
+    CuboidFill prepareSetBlocks(JsonElement params) throws BlockCodec.ValidationException {
+        JsonArray args = WireParams.positional(params, 7, 8);
+        boolean job = args.size() == 8 && fillOption(args.get(7), "job");
+        boolean diff = args.size() == 8 && fillOption(args.get(7), "diff");
+        int x1 = coordinate(args, 0);
+        int y1 = coordinate(args, 1);
+        int z1 = coordinate(args, 2);
+        int x2 = coordinate(args, 3);
+        int y2 = coordinate(args, 4);
+        int z2 = coordinate(args, 5);
+        return new CuboidFill(x1, y1, z1, x2, y2, z2, block(args.get(6), "params[6]"), job, diff);
+    }
+
+    /** One boolean of the setBlocks options object; absent is false, unknown keys are rejected. */
+    private static boolean fillOption(JsonElement rawOptions, String name) {
+        if (rawOptions == null || !rawOptions.isJsonObject()) {
+            throw new IllegalArgumentException("setBlocks options must be an object");
+        }
+        JsonObject options = rawOptions.getAsJsonObject();
+        for (String key : options.keySet()) {
+            if (!"job".equals(key) && !"diff".equals(key)) {
+                throw new IllegalArgumentException("unknown setBlocks option");
+            }
+        }
+        JsonElement value = options.get(name);
+        if (value == null) {
+            return false;
+        }
+        if (!value.isJsonPrimitive() || !value.getAsJsonPrimitive().isBoolean()) {
+            throw new IllegalArgumentException(name + " must be a boolean");
+        }
+        return value.getAsBoolean();
+    }
+
+    void handleSetBlocks(PreparedParams<CuboidFill, BlockCodec.ValidationException> params) {
         try {
-            JsonArray args = WireParams.positional(params, 7);
-            int x1 = coordinate(args, 0);
-            int y1 = coordinate(args, 1);
-            int z1 = coordinate(args, 2);
-            int x2 = coordinate(args, 3);
-            int y2 = coordinate(args, 4);
-            int z2 = coordinate(args, 5);
-            BlockData data = blockCodec.decode(args.get(6), "params[6]");
+            CuboidFill fill = params.get();
             World world = session.getOrigin().getWorld();
-            Location loc1 = miscCommands.parseRelativeBlockLocation(x1, y1, z1);
-            Location loc2 = miscCommands.parseRelativeBlockLocation(x2, y2, z2);
+            Location loc1 = miscCommands.parseRelativeBlockLocation(fill.x1(), fill.y1(), fill.z1());
+            Location loc2 = miscCommands.parseRelativeBlockLocation(fill.x2(), fill.y2(), fill.z2());
             if (!checkRange(loc1) || !checkRange(loc2)) {
                 session.respondError(-32000, "build_denied", null);
                 return;
             }
-            long volume = BlockEditVolume.between(x1, y1, z1, x2, y2, z2);
+            BlockData data = resolve(fill.block(), "params[6]");
+            long volume = BlockEditVolume.between(fill.x1(), fill.y1(), fill.z1(), fill.x2(), fill.y2(), fill.z2());
+            if (fill.job()) {
+                submitJob(world, loc1, loc2, data, volume, fill.diff());
+                return;
+            }
+            // diff でも読み取りは全位置に掛かるので、admit は体積どおり。
             if (!session.admitSetterWork(volume)) {
                 return;
             }
-            setCuboid(world, loc1, loc2, data);
-            session.respondResult(null);
+            if (!fill.diff()) {
+                setCuboid(loc1, loc2, ChunkOrderedFill.writer(world, data));
+                session.respondResult(null);
+                return;
+            }
+            ChunkOrderedFill.DiffWriter writer = ChunkOrderedFill.diffWriter(world, data);
+            setCuboid(loc1, loc2, writer);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("changed", writer.changed());
+            result.put("volume", volume);
+            session.respondResult(result);
         } catch (BlockCodec.ValidationException e) {
             session.respondError(-32602, e.reason, e.data);
             logger.warning("Invalid BlockSpec for world.setBlocks: " + e.getMessage());
@@ -87,9 +152,207 @@ public class BlockEditCommands {
         }
     }
 
+    /**
+     * Reader-side validation for world.setBlocksList: {@code [palette, entries]} where palette is a
+     * non-empty array of BlockSpecs (or session palette ids), each decoded once, and entries is a flat array of relative
+     * {@code x, y, z, paletteIndex} quadruples.
+     */
+    BlockList prepareSetBlocksList(JsonElement params) throws BlockCodec.ValidationException {
+        JsonArray args = WireParams.positional(params, 2);
+        if (!args.get(0).isJsonArray() || !args.get(1).isJsonArray()) {
+            throw new IllegalArgumentException("palette and entries must be arrays");
+        }
+        JsonArray rawPalette = args.get(0).getAsJsonArray();
+        if (rawPalette.isEmpty() || rawPalette.size() > MAX_PALETTE_SIZE) {
+            throw new IllegalArgumentException("palette size outside supported range");
+        }
+        JsonArray rawEntries = args.get(1).getAsJsonArray();
+        if (rawEntries.size() % 4 != 0) {
+            throw new IllegalArgumentException("entries must be x, y, z, index quadruples");
+        }
+        BlockRef[] palette = new BlockRef[rawPalette.size()];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = block(rawPalette.get(i), "params[0][" + i + "]");
+        }
+        int[] entries = new int[rawEntries.size()];
+        int[] min = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
+        int[] max = {Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+        for (int i = 0; i < entries.length; i++) {
+            int axis = i % 4;
+            if (axis == 3) {
+                int index = WireParams.integer(rawEntries, i);
+                if (index < 0 || index >= palette.length) {
+                    throw new IllegalArgumentException("palette index out of range");
+                }
+                entries[i] = index;
+            } else {
+                int coordinate = coordinate(rawEntries, i, axis == 1 ? SKY_LIMIT : WORLD_LIMIT);
+                entries[i] = coordinate;
+                min[axis] = Math.min(min[axis], coordinate);
+                max[axis] = Math.max(max[axis], coordinate);
+            }
+        }
+        return new BlockList(palette, entries, min, max);
+    }
+
+    void handleSetBlocksList(PreparedParams<BlockList, BlockCodec.ValidationException> params) {
+        try {
+            BlockList list = params.get();
+            if (list.count() == 0) {
+                session.respondResult(null);
+                return;
+            }
+            BlockData[] palette = new BlockData[list.palette().length];
+            for (int i = 0; i < palette.length; i++) {
+                palette[i] = resolve(list.palette()[i], "params[0][" + i + "]");
+            }
+            World world = session.getOrigin().getWorld();
+            // 1 件ずつではなく外接直方体の 2 隅だけを検査する（範囲は x/z の正方形なので同値）。
+            Location low = miscCommands.parseRelativeBlockLocation(list.min()[0], list.min()[1], list.min()[2]);
+            Location high = miscCommands.parseRelativeBlockLocation(list.max()[0], list.max()[1], list.max()[2]);
+            if (!checkRange(low) || !checkRange(high)) {
+                session.respondError(-32000, "build_denied", null);
+                return;
+            }
+            if (!session.admitSetterWork(list.count())) {
+                return;
+            }
+            ChunkOrderedFill.scatter(list.entries(),
+                    low.getBlockX() - list.min()[0],
+                    low.getBlockY() - list.min()[1],
+                    low.getBlockZ() - list.min()[2],
+                    new ChunkOrderedFill.ScatterWriter<Chunk>() {
+                        @Override
+                        public Chunk chunk(int chunkX, int chunkZ) {
+                            return world.getChunkAt(chunkX, chunkZ);
+                        }
+
+                        @Override
+                        public void write(Chunk chunk, int localX, int y, int localZ, int index) {
+                            chunk.getBlock(localX, y, localZ).setBlockData(palette[index], false);
+                        }
+                    });
+            session.respondResult(null);
+        } catch (BlockCodec.ValidationException e) {
+            session.respondError(-32602, e.reason, e.data);
+            logger.warning("Invalid BlockSpec for world.setBlocksList: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            session.respondError(-32602, "invalid_params", pathData("params"));
+            logger.warning("Invalid parameters for world.setBlocksList: " + e.getMessage());
+        }
+    }
+
+    /** Reader-side validation for block.definePalette: {@code [[BlockSpec, ...]]}, decoded up front. */
+    List<BlockData> prepareDefinePalette(JsonElement params) throws BlockCodec.ValidationException {
+        JsonArray args = WireParams.positional(params, 1);
+        if (!args.get(0).isJsonArray()) {
+            throw new IllegalArgumentException("palette must be an array");
+        }
+        JsonArray specs = args.get(0).getAsJsonArray();
+        if (specs.isEmpty() || specs.size() > MAX_PALETTE_SIZE) {
+            throw new IllegalArgumentException("palette size outside supported range");
+        }
+        List<BlockData> blocks = new ArrayList<>(specs.size());
+        for (int i = 0; i < specs.size(); i++) {
+            blocks.add(blockCodec.decode(specs.get(i), "params[0][" + i + "]"));
+        }
+        return blocks;
+    }
+
+    /** Answers {@code {"ids": [...]}} in request order; equal states share an id. */
+    void handleDefinePalette(PreparedParams<List<BlockData>, BlockCodec.ValidationException> params) {
+        try {
+            int[] ids = session.getBlockPalette().define(params.get());
+            List<Integer> idList = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                idList.add(id);
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("ids", idList);
+            session.respondResult(result);
+        } catch (BlockPalette.CapacityException e) {
+            Map<String, Object> limit = new LinkedHashMap<>();
+            limit.put("limit", e.limit());
+            session.respondError(-32000, "palette_full", limit);
+        } catch (BlockCodec.ValidationException e) {
+            session.respondError(-32602, e.reason, e.data);
+            logger.warning("Invalid BlockSpec for block.definePalette: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            session.respondError(-32602, "invalid_params", pathData("params"));
+            logger.warning("Invalid parameters for block.definePalette: " + e.getMessage());
+        }
+    }
+
+    /** A BlockSpec object is decoded now; an integer is a palette id resolved by the handler. */
+    private BlockRef block(JsonElement element, String path) throws BlockCodec.ValidationException {
+        if (element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber()) {
+            long id;
+            try {
+                id = WireNumbers.integral(element.getAsJsonPrimitive());
+            } catch (ArithmeticException | NumberFormatException e) {
+                throw new BlockCodec.ValidationException("invalid_params", pathData(path), "palette id must be an integer");
+            }
+            if (id < 0 || id >= MAX_PALETTE_ID) {
+                throw unknownPaletteId(path, id);
+            }
+            return new BlockRef(null, (int) id);
+        }
+        return new BlockRef(blockCodec.decode(element, path), -1);
+    }
+
+    private BlockData resolve(BlockRef block, String path) throws BlockCodec.ValidationException {
+        if (block.data() != null) {
+            return block.data();
+        }
+        BlockData data = session.getBlockPalette().get(block.paletteId());
+        if (data == null) {
+            throw unknownPaletteId(path, block.paletteId());
+        }
+        return data;
+    }
+
+    private static BlockCodec.ValidationException unknownPaletteId(String path, long id) {
+        Map<String, Object> data = pathData(path);
+        data.put("palette_id", id);
+        return new BlockCodec.ValidationException("unknown_palette_id", data);
+    }
+
+    /** Accepts the fill as a background job; its slices go through work admission tick by tick. */
+    private void submitJob(World world, Location loc1, Location loc2, BlockData data, long volume, boolean diff) {
+        if (volume > session.getPlugin().getB5RuntimePolicy().maxJobVolume()) {
+            session.respondError(-32000, "work_limit_exceeded", null);
+            return;
+        }
+        ChunkOrderedFill.DiffWriter diffWriter = diff ? ChunkOrderedFill.diffWriter(world, data) : null;
+        BlockJobs.Job job;
+        try {
+            job = session.submitJob(new ChunkOrderedFill.Cursor<>(
+                    Math.min(loc1.getBlockX(), loc2.getBlockX()),
+                    Math.min(loc1.getBlockY(), loc2.getBlockY()),
+                    Math.min(loc1.getBlockZ(), loc2.getBlockZ()),
+                    Math.max(loc1.getBlockX(), loc2.getBlockX()),
+                    Math.max(loc1.getBlockY(), loc2.getBlockY()),
+                    Math.max(loc1.getBlockZ(), loc2.getBlockZ()),
+                    diff ? diffWriter : ChunkOrderedFill.writer(world, data)),
+                    diff ? diffWriter::changed : null);
+        } catch (BlockJobs.CapacityException e) {
+            Map<String, Object> limit = new LinkedHashMap<>();
+            limit.put("limit", e.limit());
+            session.respondError(-32000, "job_limit_reached", limit);
+            return;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("job_id", job.id());
+        result.put("volume", volume);
+        session.respondResult(result);
+    }
+
     private int coordinate(JsonArray args, int index) {
+        return coordinate(args, index, index % 3 == 1 ? SKY_LIMIT : WORLD_LIMIT);
+    }
+
+    private static int coordinate(JsonArray args, int index, int limit) {
         int coordinate = WireParams.integer(args, index);
-        int limit = index % 3 == 1 ? SKY_LIMIT : WORLD_LIMIT;
         if (coordinate < -limit || coordinate > limit) {
             throw new IllegalArgumentException("coordinate outside supported range");
         }
@@ -116,21 +379,15 @@ public class BlockEditCommands {
         return McRemote.getInstance().getDefaultBuildRange();
     }
 
-    private void setCuboid(World world, Location loc1, Location loc2, BlockData data) {
-        int minX = Math.min(loc1.getBlockX(), loc2.getBlockX());
-        int maxX = Math.max(loc1.getBlockX(), loc2.getBlockX());
-        int minY = Math.min(loc1.getBlockY(), loc2.getBlockY());
-        int maxY = Math.max(loc1.getBlockY(), loc2.getBlockY());
-        int minZ = Math.min(loc1.getBlockZ(), loc2.getBlockZ());
-        int maxZ = Math.max(loc1.getBlockZ(), loc2.getBlockZ());
-
-        for (int x = minX; x <= maxX; x++) {
-            for (int y = maxY; y >= minY; y--) {
-                for (int z = minZ; z <= maxZ; z++) {
-                    world.getBlockAt(x, y, z).setBlockData(data, false);
-                }
-            }
-        }
+    private static void setCuboid(Location loc1, Location loc2, ChunkOrderedFill.ChunkWriter<Chunk> writer) {
+        ChunkOrderedFill.fill(
+                Math.min(loc1.getBlockX(), loc2.getBlockX()),
+                Math.min(loc1.getBlockY(), loc2.getBlockY()),
+                Math.min(loc1.getBlockZ(), loc2.getBlockZ()),
+                Math.max(loc1.getBlockX(), loc2.getBlockX()),
+                Math.max(loc1.getBlockY(), loc2.getBlockY()),
+                Math.max(loc1.getBlockZ(), loc2.getBlockZ()),
+                writer);
     }
 
     private static Map<String, Object> pathData(String path) {
@@ -138,4 +395,29 @@ public class BlockEditCommands {
         data.put("path", path);
         return data;
     }
+
+    /** A decoded BlockSpec, or a session palette id ({@code data} null) the handler resolves. */
+    record BlockRef(BlockData data, int paletteId) {
+    }
+
+    /** Validated world.setBlock params (build-origin relative). */
+    record BlockPlacement(int x, int y, int z, BlockRef block) {
+    }
+
+    /**
+     * Validated world.setBlocks params (build-origin relative corners); {@code job} runs it in the
+     * background, {@code diff} skips positions that already hold the block and reports the changes.
+     */
+    record CuboidFill(int x1, int y1, int z1, int x2, int y2, int z2, BlockRef block, boolean job, boolean diff) {
+    }
+
+    /**
+     * Validated world.setBlocksList params: decoded palette, flat relative {@code x, y, z, index}
+     * entries and their relative bounding box ({@code min}/{@code max} as x, y, z).
+     */
+    record BlockList(BlockRef[] palette, int[] entries, int[] min, int[] max) {
+        int count() {
+            return entries.length / 4;
+        }
+    }
 }
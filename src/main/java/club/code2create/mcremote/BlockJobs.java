@@ -0,0 +1,220 @@
+package club.code2create.mcremote;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Connection-epoch scoped background edits that are too large for one request.
+ *
+ * <p>A job is a {@link ChunkOrderedFill.Cursor} advanced in slices of at most
+ * {@code max_work_per_request} positions, and never more than the smallest current bucket depth,
+ * each admitted through {@link WorkAdmission} like an ordinary setter, so a large fill spreads over as many ticks as the budgets require. Jobs run one at
+ * a time in submission order, which keeps overlapping edits in the order the client sent them.
+ * Finished jobs stay queryable until {@code capacity} newer ones have finished. Main thread only.</p>
+ */
+final class BlockJobs {
+    private static final Logger logger = Logger.getLogger("McR_BlockJobs");
+
+    enum State {
+        QUEUED, RUNNING, DONE, CANCELLED, FAILED;
+
+        String wireName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        boolean isFinished() {
+            return this == DONE || this == CANCELLED || this == FAILED;
+        }
+    }
+
+    private final int capacity;
+    private final int sliceUnits;
+    private final ArrayDeque<Job> active = new ArrayDeque<>();
+    private final ArrayDeque<Job> finished = new ArrayDeque<>();
+    private long nextId = 1;
+
+    BlockJobs(int capacity, int sliceUnits) {
+        if (capacity < 1 || sliceUnits < 1) {
+            throw new IllegalArgumentException("job limits must be positive");
+        }
+        this.capacity = capacity;
+        this.sliceUnits = sliceUnits;
+    }
+
+    /** Queues a fill; {@code world} and {@code origin} are echoed in the completion event. */
+    Job submit(ChunkOrderedFill.Cursor<?> cursor, String world, List<Integer> origin) {
+        return submit(cursor, world, origin, null);
+    }
+
+    /** Queues a skip-unchanged fill whose writer reports its writes through {@code changed}. */
+    Job submit(ChunkOrderedFill.Cursor<?> cursor, String world, List<Integer> origin, LongSupplier changed) {
+        if (active.size() >= capacity) {
+            throw new CapacityException(capacity);
+        }
+        Job job = new Job(nextId++, cursor, world, List.copyOf(origin), changed);
+        active.addLast(job);
+        return job;
+    }
+
+    boolean hasActive() {
+        return !active.isEmpty();
+    }
+
+    /** Active or retained job, or null when unknown or already evicted. */
+    Job find(long id) {
+        for (Job job : active) {
+            if (job.id == id) {
+                return job;
+            }
+        }
+        for (Job job : finished) {
+            if (job.id == id) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Advances the oldest job slice by slice while {@code timeLeft} holds and {@code admit} accepts;
+     * a job that ends is handed to {@code onFinished}. {@code sliceLimit} is read per slice: a slice
+     * larger than a bucket's depth would be refused forever and pin the job in the queue.
+     */
+    void step(IntFunction<WorkAdmission.Result> admit, LongSupplier sliceLimit, BooleanSupplier timeLeft,
+              Consumer<Job> onFinished) {
+        while (!active.isEmpty() && timeLeft.getAsBoolean()) {
+            Job job = active.peekFirst();
+            long limit = Math.max(1, Math.min(sliceUnits, sliceLimit.getAsLong()));
+            int units = (int) Math.min(job.cursor.remaining(), limit);
+            if (admit.apply(units) != WorkAdmission.Result.ACCEPTED) {
+                // budget が戻るまで次 tick 以降に持ち越す。
+                return;
+            }
+            job.state = State.RUNNING;
+            try {
+                job.cursor.advance(units);
+            } catch (RuntimeException e) {
+                logger.warning("Block job " + job.id + " failed: " + e);
+                finish(job, State.FAILED, onFinished);
+                continue;
+            }
+            if (job.cursor.isDone()) {
+                finish(job, State.DONE, onFinished);
+            }
+        }
+    }
+
+    /** Cancels an active job; finished jobs keep their state. Returns null for an unknown id. */
+    Job cancel(long id, Consumer<Job> onFinished) {
+        Iterator<Job> iterator = active.iterator();
+        while (iterator.hasNext()) {
+            Job job = iterator.next();
+            if (job.id == id) {
+                iterator.remove();
+                retire(job, State.CANCELLED, onFinished);
+                return job;
+            }
+        }
+        return find(id);
+    }
+
+    /** Drops every job without completion events, for connection close. */
+    void clear() {
+        active.clear();
+        finished.clear();
+    }
+
+    private void finish(Job job, State state, Consumer<Job> onFinished) {
+        active.remove(job);
+        retire(job, state, onFinished);
+    }
+
+    private void retire(Job job, State state, Consumer<Job> onFinished) {
+        job.state = state;
+        finished.addLast(job);
+        while (finished.size() > capacity) {
+            finished.removeFirst();
+        }
+        onFinished.accept(job);
+    }
+
+    /** One background fill as seen by job.status and the completion event. */
+    static final class Job {
+        private final long id;
+        private final ChunkOrderedFill.Cursor<?> cursor;
+        private final String world;
+        private final List<Integer> origin;
+        private final LongSupplier changed;
+        private State state = State.QUEUED;
+
+        private Job(long id, ChunkOrderedFill.Cursor<?> cursor, String world, List<Integer> origin,
+                    LongSupplier changed) {
+            this.id = id;
+            this.cursor = cursor;
+            this.world = world;
+            this.origin = origin;
+            this.changed = changed;
+        }
+
+        long id() {
+            return id;
+        }
+
+        State state() {
+            return state;
+        }
+
+        String world() {
+            return world;
+        }
+
+        List<Integer> origin() {
+            return origin;
+        }
+
+        long written() {
+            return cursor.written();
+        }
+
+        long volume() {
+            return cursor.volume();
+        }
+
+        /** Blocks actually changed so far, or null when the job writes every position. */
+        Long changed() {
+            return changed == null ? null : changed.getAsLong();
+        }
+
+        Map<String, Object> status() {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("job_id", id);
+            status.put("state", state.wireName());
+            status.put("written", cursor.written());
+            status.put("volume", cursor.volume());
+            status.put("changed", changed());
+            return status;
+        }
+    }
+
+    static final class CapacityException extends RuntimeException {
+        private final int limit;
+
+        CapacityException(int limit) {
+            super("too many background jobs", null, false, false);
+            this.limit = limit;
+        }
+
+        int limit() {
+            return limit;
+        }
+    }
+}
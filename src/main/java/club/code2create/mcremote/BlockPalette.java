@@ -0,0 +1,84 @@
+package club.code2create.mcremote;
+
+import org.bukkit.block.data.BlockData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Connection-epoch scoped BlockData registered by block.definePalette.
+ *
+ * <p>Edits may pass a small integer id instead of a BlockSpec, so a script that places the same
+ * few blocks thousands of times validates and parses each of them once. Equal states share one id.
+ * Ids are never reused within a connection; the palette is cleared on close.</p>
+ */
+final class BlockPalette {
+    private final int capacity;
+    private final List<BlockData> entries = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    BlockPalette(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("palette capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /** Registers {@code blocks} all or nothing and returns their ids in the same order. */
+    synchronized int[] define(List<BlockData> blocks) {
+        Set<String> added = new HashSet<>();
+        for (BlockData block : blocks) {
+            String key = block.getAsString();
+            if (!ids.containsKey(key)) {
+                added.add(key);
+            }
+        }
+        if (entries.size() + added.size() > capacity) {
+            throw new CapacityException(capacity);
+        }
+        int[] result = new int[blocks.size()];
+        for (int i = 0; i < result.length; i++) {
+            BlockData block = blocks.get(i);
+            String key = block.getAsString();
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = entries.size();
+                entries.add(block);
+                ids.put(key, id);
+            }
+            result[i] = id;
+        }
+        return result;
+    }
+
+    /** The registered BlockData, or null for an id this connection never defined. */
+    synchronized BlockData get(int id) {
+        return id >= 0 && id < entries.size() ? entries.get(id) : null;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        ids.clear();
+    }
+
+    static final class CapacityException extends RuntimeException {
+        private final int limit;
+
+        CapacityException(int limit) {
+            super("block palette is full", null, false, false);
+            this.limit = limit;
+        }
+
+        int limit() {
+            return limit;
+        }
+    }
+}
@@ -23,17 +23,23 @@ public class BlockQueryCommands {
         this.miscCommands = miscCommands;
     }
 
-    public void handleGetBlock(JsonElement params) {
+    /** Reader-side validation for world.getBlock. */
+    static BlockQueryRegion.Position prepareGetBlock(JsonElement params) {
+        JsonArray args = WireParams.positional(params, 3);
+        return new BlockQueryRegion.Position(
+                WireParams.integer(args, 0),
+                WireParams.integer(args, 1),
+                WireParams.integer(args, 2));
+    }
+
+    void handleGetBlock(PreparedParams<BlockQueryRegion.Position, RuntimeException> params) {
         try {
-            JsonArray args = WireParams.positional(params, 3);
-            int x = WireParams.integer(args, 0);
-            int y = WireParams.integer(args, 1);
-            int z = WireParams.integer(args, 2);
+            BlockQueryRegion.Position position = params.get();
             World world = session.getOrigin().getWorld();
-            Location loc = miscCommands.parseRelativeBlockLocation(x, y, z);
+            Location loc = miscCommands.parseRelativeBlockLocation(position.x(), position.y(), position.z());
             // 未ロード/未生成 chunk は getBlockAt が同期でロード・生成する（旧リリース挙動）。拒否はしない。
             Block block = world.getBlockAt(loc);
-            session.respondResult(BlockCodec.encode(block.getBlockData()));
+            session.respondResult(session.getPlugin().getBlockValueCache().encode(block.getBlockData()));
         } catch (IllegalArgumentException e) {
             Map<String, Object> data = new LinkedHashMap<>();
             data.put("path", "params");
@@ -42,17 +48,18 @@ public class BlockQueryCommands {
         }
     }
 
-    public void handleGetBlocks(JsonElement params) {
+    void handleGetBlocks(PreparedParams<BlockQueryRegion, BlockQueryRegion.WorkLimitExceededException> params) {
         try {
-            // The axis/work admission is deliberately completed before build-origin or world access.
-            BlockQueryRegion relative = BlockQueryRegion.parse(params);
+            // The axis/work admission is completed on the reader, before build-origin or world access.
+            BlockQueryRegion relative = params.get();
             Location origin = session.getOrigin();
             BlockQueryRegion absolute = relative.translate(
                     origin.getBlockX(), origin.getBlockY(), origin.getBlockZ());
             World world = origin.getWorld();
-            List<Map<String, Object>> values = new ArrayList<>(absolute.size());
+            BlockValueCache blockValues = session.getPlugin().getBlockValueCache();
+            List<RawJson> values = new ArrayList<>(absolute.size());
             for (BlockQueryRegion.Position position : absolute.positions()) {
-                values.add(BlockCodec.encode(world.getBlockAt(
+                values.add(blockValues.encode(world.getBlockAt(
                         position.x(), position.y(), position.z()).getBlockData()));
             }
             session.respondResult(List.copyOf(values));
@@ -0,0 +1,182 @@
+package club.code2create.mcremote;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Typed, immutable view of the catalog's block states for BlockSpec validation.
+ *
+ * <p>{@link CatalogService} compiles it once from the generic catalog body, so a lookup is two hash
+ * probes and a scan of a handful of allowed values instead of walking {@code Map<String, Object>}
+ * with instanceof checks and copying the result. Numbers are matched as longs: every catalog state
+ * number is an integer, and {@link WireNumbers#integral} reads client numbers without BigDecimal.</p>
+ */
+final class BlockStateIndex {
+    private final Map<String, Block> blocks;
+
+    private BlockStateIndex(Map<String, Block> blocks) {
+        this.blocks = blocks;
+    }
+
+    /** Compiles the catalog's {@code block} section: {@code {id: {"states": {property: [values]}}}}. */
+    static BlockStateIndex compile(Object blockSection) {
+        Map<String, Map<String, List<Object>>> states = new HashMap<>();
+        if (blockSection instanceof Map<?, ?> section) {
+            for (Map.Entry<?, ?> block : section.entrySet()) {
+                if (!(block.getValue() instanceof Map<?, ?> entry) || !(entry.get("states") instanceof Map<?, ?> raw)) {
+                    continue;
+                }
+                Map<String, List<Object>> properties = new HashMap<>();
+                for (Map.Entry<?, ?> property : raw.entrySet()) {
+                    if (!(property.getValue() instanceof List<?> values)) {
+                        throw new IllegalStateException("invalid generated state catalog for " + block.getKey());
+                    }
+                    properties.put(property.getKey().toString(), new ArrayList<>(values));
+                }
+                states.put(block.getKey().toString(), properties);
+            }
+        }
+        return of(states);
+    }
+
+    /** Builds the index from block id → property → allowed values in catalog order. */
+    static BlockStateIndex of(Map<String, Map<String, List<Object>>> states) {
+        Map<String, Block> blocks = new HashMap<>();
+        for (Map.Entry<String, Map<String, List<Object>>> block : states.entrySet()) {
+            blocks.put(block.getKey(), new Block(block.getKey(), block.getValue()));
+        }
+        return new BlockStateIndex(Collections.unmodifiableMap(blocks));
+    }
+
+    /** The block's states, or null for an id the catalog does not know. */
+    Block block(String blockId) {
+        return blocks.get(blockId);
+    }
+
+    int size() {
+        return blocks.size();
+    }
+
+    /** One block's properties, ordered by name as the canonical state string lists them. */
+    static final class Block {
+        private final String id;
+        private final Property[] properties;
+        private final Map<String, Property> byName;
+
+        private Block(String id, Map<String, List<Object>> states) {
+            this.id = id;
+            Map<String, List<Object>> sorted = new TreeMap<>(states);
+            this.properties = new Property[sorted.size()];
+            Map<String, Property> byName = new HashMap<>();
+            int ordinal = 0;
+            for (Map.Entry<String, List<Object>> state : sorted.entrySet()) {
+                Property property = new Property(state.getKey(), ordinal, state.getValue());
+                properties[ordinal++] = property;
+                byName.put(property.name, property);
+            }
+            this.byName = Collections.unmodifiableMap(byName);
+        }
+
+        String id() {
+            return id;
+        }
+
+        /** Null when the block has no such property. */
+        Property property(String name) {
+            return byName.get(name);
+        }
+
+        int propertyCount() {
+            return properties.length;
+        }
+
+        /** The property at {@code ordinal} in name order. */
+        Property property(int ordinal) {
+            return properties[ordinal];
+        }
+    }
+
+    /** Allowed values of one property; {@code match} returns the catalog's own value object. */
+    static final class Property {
+        private final String name;
+        private final int ordinal;
+        private final List<Object> allowed;
+        private final Object[] strings;
+        private final long[] numbers;
+        private final Object[] numberValues;
+        private final Object trueValue;
+        private final Object falseValue;
+
+        private Property(String name, int ordinal, List<Object> values) {
+            this.name = name;
+            this.ordinal = ordinal;
+            this.allowed = List.copyOf(values);
+            List<Object> strings = new ArrayList<>();
+            List<Object> numberValues = new ArrayList<>();
+            Object trueValue = null;
+            Object falseValue = null;
+            for (Object value : allowed) {
+                if (value instanceof Boolean bool) {
+                    if (bool) {
+                        trueValue = value;
+                    } else {
+                        falseValue = value;
+                    }
+                } else if (value instanceof Integer || value instanceof Long
+                        || value instanceof Short || value instanceof Byte) {
+                    numberValues.add(value);
+                } else if (value instanceof String) {
+                    strings.add(value);
+                } else {
+                    throw new IllegalStateException("unsupported state value for " + name + ": " + value);
+                }
+            }
+            this.strings = strings.toArray();
+            this.numberValues = numberValues.toArray();
+            this.numbers = new long[this.numberValues.length];
+            for (int i = 0; i < numbers.length; i++) {
+                numbers[i] = ((Number) this.numberValues[i]).longValue();
+            }
+            this.trueValue = trueValue;
+            this.falseValue = falseValue;
+        }
+
+        String name() {
+            return name;
+        }
+
+        int ordinal() {
+            return ordinal;
+        }
+
+        List<Object> allowed() {
+            return allowed;
+        }
+
+        Object match(boolean value) {
+            return value ? trueValue : falseValue;
+        }
+
+        Object match(long value) {
+            for (int i = 0; i < numbers.length; i++) {
+                if (numbers[i] == value) {
+                    return numberValues[i];
+                }
+            }
+            return null;
+        }
+
+        Object match(String value) {
+            for (Object candidate : strings) {
+                if (candidate.equals(value)) {
+                    return candidate;
+                }
+            }
+            return null;
+        }
+    }
+}
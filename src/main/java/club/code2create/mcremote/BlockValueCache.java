@@ -0,0 +1,77 @@
+package club.code2create.mcremote;
+
+import org.bukkit.block.data.BlockData;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide LRU of encoded BlockValues, one {@link RawJson} per distinct block state.
+ *
+ * <p>{@link BlockCodec#encode} serializes the state, re-parses its properties and builds two maps;
+ * world.getBlocks and the right-click/projectile captures did that for every block. Here a state is
+ * encoded once and every later read of it shares the same immutable value and its JSON bytes, which
+ * {@link ResponseWriter} copies verbatim. Keys are BlockData clones and rely on the server's BlockData
+ * equality, which compares the underlying block state.</p>
+ */
+final class BlockValueCache {
+    private final int capacity;
+    private final LinkedHashMap<BlockData, RawJson> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    BlockValueCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("cache capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<BlockData, RawJson> eldest) {
+                if (size() > BlockValueCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** The shared BlockValue of {@code data}'s state; the value must not be modified. */
+    synchronized RawJson encode(BlockData data) {
+        RawJson cached = entries.get(data);
+        if (cached != null) {
+            hits++;
+            return cached;
+        }
+        misses++;
+        RawJson encoded = RawJson.of(BlockCodec.encode(data));
+        entries.put(data.clone(), encoded);
+        return encoded;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+
+    synchronized long evictions() {
+        return evictions;
+    }
+
+    /** {@code /mcremote stats} 用。 */
+    synchronized String describe() {
+        long lookups = hits + misses;
+        return "block value cache " + entries.size() + "/" + capacity
+                + ": hits=" + hits + " misses=" + misses + " evictions=" + evictions
+                + (lookups == 0 ? "" : " (" + (100 * hits / lookups) + "% hit)");
+    }
+}
@@ -1,7 +1,19 @@
 package club.code2create.mcremote;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * b3 {@code catalog.get} command（wire-format-design §7.2.1）。
+ *
+ * <p>params は {@code []}（全量）、{@code [catalogHash]}、{@code [catalogHash, {section: hash}]}。
+ * 手元の catalog が現行と一致すれば {@code {"catalogHash":…,"not_modified":true}} だけを返し、
+ * section hash を添えれば変わった名前空間だけを {@code delta} で返す。全量・差分応答とも
+ * {@code sections: {block, entity, particle → hash}} を含み、client は次回これをそのまま送り返す。</p>
  */
 public final class CatalogCommands {
     private final RemoteSession session;
@@ -12,10 +24,23 @@ public final class CatalogCommands {
         this.catalogService = catalogService;
     }
 
-    public void handleGet(String[] args) {
-        if (args.length != 0) {
-            session.respondError(-32602, "invalid_params", null);
-            return;
+    public void handleGet(JsonElement params) {
+        String heldHash = null;
+        Map<String, String> heldSections = null;
+        // object／省略 params は従来どおり全量要求として扱う。
+        if (params != null && params.isJsonArray()) {
+            try {
+                JsonArray args = WireParams.positional(params, 0, 1, 2);
+                if (args.size() >= 1) {
+                    heldHash = WireParams.string(args, 0);
+                }
+                if (args.size() == 2) {
+                    heldSections = sectionHashes(args.get(1));
+                }
+            } catch (IllegalArgumentException e) {
+                session.respondError(-32602, "invalid_params", null);
+                return;
+            }
         }
         // catalog 配送は認証後のみ（§7.2）。auth enforcement の開発トグルが OFF でも、
         // token 無し hello を catalog 取得権限へ昇格させない。
@@ -23,6 +48,25 @@ public final class CatalogCommands {
             session.respondError(-32000, "auth_required", null);
             return;
         }
-        session.respondResult(catalogService.getResponse());
+        session.respondResult(heldHash == null
+                ? catalogService.getEncodedResponse()
+                : catalogService.conditionalResponse(heldHash, heldSections));
+    }
+
+    private static Map<String, String> sectionHashes(JsonElement element) {
+        if (element == null || !element.isJsonObject()) {
+            throw new IllegalArgumentException("section hashes must be an object");
+        }
+        JsonObject object = element.getAsJsonObject();
+        Map<String, String> hashes = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+            JsonElement value = entry.getValue();
+            if (!CatalogService.SECTIONS.contains(entry.getKey())
+                    || !value.isJsonPrimitive() || !value.getAsJsonPrimitive().isString()) {
+                throw new IllegalArgumentException("unknown catalog section or non-string hash");
+            }
+            hashes.put(entry.getKey(), value.getAsString());
+        }
+        return hashes;
     }
 }
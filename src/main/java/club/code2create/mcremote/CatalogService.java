@@ -26,30 +26,69 @@ import java.util.TreeMap;
  */
 public final class CatalogService {
     private static final Gson GSON = new GsonBuilder().create();
+    /** catalog 本体の名前空間。条件付き catalog.get はこの単位で差分を返す。 */
+    static final List<String> SECTIONS = List.of("block", "entity", "particle");
     private static final Comparator<Object> STATE_VALUE_ORDER =
             Comparator.comparingInt(CatalogService::stateValueRank)
                     .thenComparing(CatalogService::compareStateValues);
 
     private final Map<String, Object> body;
+    // BlockSpec 検証用の型付き index。汎用 Map の body を要求ごとに辿らない。
+    private final BlockStateIndex blockStates;
     private final Map<String, Object> response;
+    // 応答 result として書き出す UTF-8 bytes（と任意で deflate 済み版）。接続ごとに再直列化しない。
+    private final RawJson encodedResponse;
     private final String catalogHash;
-    private final int serializedBytes;
+    // 名前空間ごとの hash（catalogHash と同じ正規化）と、差分応答に差し込む符号化済み section。
+    private final Map<String, String> sectionHashes;
+    private final Map<String, RawJson> encodedSections;
+    private final RawJson notModified;
 
     public CatalogService() {
-        Map<String, Object> generated = new LinkedHashMap<>();
-        generated.put("block", buildBlockCatalog());
-        generated.put("entity", buildKeyCatalog(Registry.ENTITY_TYPE));
-        generated.put("particle", buildKeyCatalog(Registry.PARTICLE_TYPE));
+        this(false);
+    }
+
+    /** @param precompress {@code compression: "deflate"} 接続向けの圧縮済み版も一度だけ作るか */
+    public CatalogService(boolean precompress) {
+        this(generate(), precompress);
+    }
+
+    CatalogService(Map<String, Object> generated, boolean precompress) {
         this.body = generated;
+        this.blockStates = BlockStateIndex.compile(generated.get("block"));
 
         String canonicalBody = GSON.toJson(canonicalize(generated));
         this.catalogHash = sha256Hex(canonicalBody.getBytes(StandardCharsets.UTF_8));
 
+        Map<String, String> hashes = new LinkedHashMap<>();
+        Map<String, RawJson> sections = new LinkedHashMap<>();
+        for (String section : SECTIONS) {
+            Object value = body.get(section);
+            hashes.put(section, sha256Hex(GSON.toJson(canonicalize(value)).getBytes(StandardCharsets.UTF_8)));
+            sections.put(section, RawJson.of(value));
+        }
+        this.sectionHashes = Collections.unmodifiableMap(hashes);
+        this.encodedSections = Collections.unmodifiableMap(sections);
+
+        // 全量・差分どちらの応答にも section hash を載せ、client が次回の差分要求に使えるようにする。
         Map<String, Object> fullResponse = new LinkedHashMap<>();
         fullResponse.put("catalogHash", catalogHash);
+        fullResponse.put("sections", sectionHashes);
         fullResponse.putAll(body);
         this.response = fullResponse;
-        this.serializedBytes = GSON.toJson(fullResponse).getBytes(StandardCharsets.UTF_8).length;
+        this.encodedResponse = precompress ? RawJson.precompressed(fullResponse) : RawJson.of(fullResponse);
+        Map<String, Object> unchanged = new LinkedHashMap<>();
+        unchanged.put("catalogHash", catalogHash);
+        unchanged.put("not_modified", true);
+        this.notModified = RawJson.of(unchanged);
+    }
+
+    private static Map<String, Object> generate() {
+        Map<String, Object> generated = new LinkedHashMap<>();
+        generated.put("block", buildBlockCatalog());
+        generated.put("entity", buildKeyCatalog(Registry.ENTITY_TYPE));
+        generated.put("particle", buildKeyCatalog(Registry.PARTICLE_TYPE));
+        return generated;
     }
 
     public String getCatalogHash() {
@@ -60,6 +99,49 @@ public final class CatalogService {
         return response;
     }
 
+    /** {@code catalog.get} の result。応答封筒へそのまま差し込む符号化済み catalog。 */
+    RawJson getEncodedResponse() {
+        return encodedResponse;
+    }
+
+    /** 名前空間ごとの SHA-256 hex（{@code catalogHash} と同じ再帰キーソート・compact JSON）。 */
+    Map<String, String> getSectionHashes() {
+        return sectionHashes;
+    }
+
+    /**
+     * 条件付き {@code catalog.get} の result。
+     *
+     * <p>{@code heldHash} が現行 catalog と一致すれば {@code not_modified} だけを返す。一致しなくても
+     * {@code heldSections}（section→hash）があれば、hash の異なる section だけを {@code delta} に列挙して
+     * 返す（現行の {@code sections} hash も添える）。比較材料が無い、または全 section が変わったときは全量応答と同じものを返す。</p>
+     */
+    Object conditionalResponse(String heldHash, Map<String, String> heldSections) {
+        if (catalogHash.equals(heldHash)) {
+            return notModified;
+        }
+        if (heldSections == null || heldSections.isEmpty()) {
+            return encodedResponse;
+        }
+        List<String> changed = new ArrayList<>();
+        for (String section : SECTIONS) {
+            if (!sectionHashes.get(section).equals(heldSections.get(section))) {
+                changed.add(section);
+            }
+        }
+        if (changed.size() == SECTIONS.size()) {
+            return encodedResponse;
+        }
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("catalogHash", catalogHash);
+        delta.put("sections", sectionHashes);
+        delta.put("delta", List.copyOf(changed));
+        for (String section : changed) {
+            delta.put(section, encodedSections.get(section));
+        }
+        return delta;
+    }
+
     public int getBlockCount() {
         return sizeOf("block");
     }
@@ -73,54 +155,19 @@ public final class CatalogService {
     }
 
     public int getSerializedBytes() {
-        return serializedBytes;
+        return encodedResponse.length();
     }
 
     /** invalid_property_value の data.allowed に使う、catalog と同じ JSON native value 一覧。 */
-    @SuppressWarnings("unchecked")
     public List<Object> getAllowedBlockStateValues(String blockKey, String property) {
-        Object blockObject = body.get("block");
-        if (!(blockObject instanceof Map<?, ?> blocks)) {
-            return List.of();
-        }
-        Object entryObject = blocks.get(blockKey);
-        if (!(entryObject instanceof Map<?, ?> entry)) {
-            return List.of();
-        }
-        Object statesObject = entry.get("states");
-        if (!(statesObject instanceof Map<?, ?> states)) {
-            return List.of();
-        }
-        Object allowedObject = states.get(property);
-        if (!(allowedObject instanceof List<?> allowed)) {
-            return List.of();
-        }
-        return List.copyOf((List<Object>) allowed);
+        BlockStateIndex.Block block = blockStates.block(blockKey);
+        BlockStateIndex.Property definition = block == null ? null : block.property(property);
+        return definition == null ? List.of() : definition.allowed();
     }
 
-    /** protocol 22 BlockSpec validation用。未知blockはnull、既知blockはproperty→許容値を返す。 */
-    @SuppressWarnings("unchecked")
-    Map<String, List<Object>> getBlockStateValues(String blockKey) {
-        Object blockObject = body.get("block");
-        if (!(blockObject instanceof Map<?, ?> blocks)) {
-            return null;
-        }
-        Object entryObject = blocks.get(blockKey);
-        if (!(entryObject instanceof Map<?, ?> entry)) {
-            return null;
-        }
-        Object statesObject = entry.get("states");
-        if (!(statesObject instanceof Map<?, ?> states)) {
-            return null;
-        }
-        Map<String, List<Object>> result = new TreeMap<>();
-        for (Map.Entry<?, ?> state : states.entrySet()) {
-            if (!(state.getValue() instanceof List<?> values)) {
-                throw new IllegalStateException("invalid generated state catalog for " + blockKey);
-            }
-            result.put(state.getKey().toString(), List.copyOf((List<Object>) values));
-        }
-        return Collections.unmodifiableMap(result);
+    /** protocol 22 BlockSpec validation 用。enable 時に catalog 本体から一度だけ組んだ不変 index。 */
+    BlockStateIndex getBlockStates() {
+        return blockStates;
     }
 
     private int sizeOf(String key) {
@@ -128,7 +175,7 @@ public final class CatalogService {
         return value instanceof Map<?, ?> map ? map.size() : 0;
     }
 
-    private Map<String, Object> buildBlockCatalog() {
+    private static Map<String, Object> buildBlockCatalog() {
         Map<String, Object> blocks = new TreeMap<>();
         for (BlockType blockType : Registry.BLOCK) {
             Map<String, List<Object>> allowedValues = new TreeMap<>();
@@ -151,7 +198,7 @@ public final class CatalogService {
         return blocks;
     }
 
-    private <T extends org.bukkit.Keyed> Map<String, Object> buildKeyCatalog(Registry<T> registry) {
+    private static <T extends org.bukkit.Keyed> Map<String, Object> buildKeyCatalog(Registry<T> registry) {
         Map<String, Object> entries = new TreeMap<>();
         for (T value : registry) {
             entries.put(value.getKey().toString(), Map.of());
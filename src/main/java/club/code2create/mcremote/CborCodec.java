@@ -0,0 +1,375 @@
+package club.code2create.mcremote;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.LazilyParsedNumber;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The JSON data model in CBOR (RFC 8949), for {@code encoding: "cbor"} connections.
+ *
+ * <p>Only the subset that round-trips through a Gson tree is accepted: integers, floats, text strings,
+ * arrays, maps with text keys, booleans and null. Tags are skipped, {@code undefined} reads as null,
+ * and byte strings or non-text map keys are rejected as malformed. Integral Java numbers encode as
+ * CBOR integers; floating-point values stay floats so {@code 1.0} and {@code 1} keep their JSON
+ * distinction.</p>
+ */
+final class CborCodec {
+    // Gson の JsonReader 既定と同じ入れ子上限。
+    private static final int MAX_DEPTH = 255;
+    private static final BigInteger UINT64_MAX = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+    private CborCodec() {}
+
+    /** Encodes {@code value}, reserving {@code prefixBytes} zeroed leading bytes for the caller's framing. */
+    static byte[] encode(JsonElement value, int prefixBytes) {
+        Writer writer = new Writer(prefixBytes);
+        writer.write(value);
+        return writer.toByteArray();
+    }
+
+    /** Decodes exactly one data item spanning the whole slice. */
+    static JsonElement decode(byte[] bytes, int offset, int length) {
+        Reader reader = new Reader(bytes, offset, offset + length);
+        JsonElement value = reader.read(0);
+        if (reader.position != offset + length) {
+            throw new IllegalArgumentException("trailing bytes after CBOR item");
+        }
+        return value;
+    }
+
+    private static final class Writer {
+        private byte[] bytes;
+        private int length;
+
+        private Writer(int prefixBytes) {
+            bytes = new byte[Math.max(64, prefixBytes + 16)];
+            length = prefixBytes;
+        }
+
+        void write(JsonElement value) {
+            if (value == null || value.isJsonNull()) {
+                put(0xf6);
+            } else if (value.isJsonObject()) {
+                JsonObject object = value.getAsJsonObject();
+                head(5, object.size());
+                for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                    text(entry.getKey());
+                    write(entry.getValue());
+                }
+            } else if (value.isJsonArray()) {
+                JsonArray array = value.getAsJsonArray();
+                head(4, array.size());
+                for (JsonElement element : array) {
+                    write(element);
+                }
+            } else {
+                JsonPrimitive primitive = value.getAsJsonPrimitive();
+                if (primitive.isBoolean()) {
+                    put(primitive.getAsBoolean() ? 0xf5 : 0xf4);
+                } else if (primitive.isNumber()) {
+                    number(primitive.getAsNumber());
+                } else {
+                    text(primitive.getAsString());
+                }
+            }
+        }
+
+        private void number(Number number) {
+            if (number instanceof Integer || number instanceof Long
+                    || number instanceof Short || number instanceof Byte) {
+                integer(number.longValue());
+                return;
+            }
+            if (number instanceof BigInteger big) {
+                bigInteger(big);
+                return;
+            }
+            if (number instanceof LazilyParsedNumber || number instanceof BigDecimal) {
+                // 解析済み JSON の数値は字面で整数か実数かを決める。
+                String literal = number.toString();
+                if (literal.indexOf('.') < 0 && literal.indexOf('e') < 0 && literal.indexOf('E') < 0) {
+                    bigInteger(new BigInteger(literal));
+                    return;
+                }
+            }
+            floating(number.doubleValue());
+        }
+
+        private void bigInteger(BigInteger value) {
+            if (value.bitLength() < 64) {
+                integer(value.longValue());
+            } else if (value.signum() > 0 && value.compareTo(UINT64_MAX) <= 0) {
+                put(0x1b);
+                putLong(value.longValue());
+            } else if (value.signum() < 0 && value.negate().subtract(BigInteger.ONE).compareTo(UINT64_MAX) <= 0) {
+                put(0x3b);
+                putLong(value.negate().subtract(BigInteger.ONE).longValue());
+            } else {
+                floating(value.doubleValue());
+            }
+        }
+
+        private void integer(long value) {
+            if (value >= 0) {
+                head(0, value);
+            } else {
+                head(1, -1 - value);
+            }
+        }
+
+        private void floating(double value) {
+            float narrow = (float) value;
+            if (narrow == value || Double.isNaN(value)) {
+                put(0xfa);
+                int bits = Float.floatToIntBits(narrow);
+                put(bits >>> 24);
+                put(bits >>> 16);
+                put(bits >>> 8);
+                put(bits);
+            } else {
+                put(0xfb);
+                putLong(Double.doubleToLongBits(value));
+            }
+        }
+
+        private void text(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            head(3, utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, length, utf8.length);
+            length += utf8.length;
+        }
+
+        /** Major type + unsigned argument in the shortest form; {@code argument} is treated as unsigned. */
+        private void head(int major, long argument) {
+            int type = major << 5;
+            if (argument >= 0 && argument < 24) {
+                put(type | (int) argument);
+            } else if (argument >= 0 && argument <= 0xff) {
+                put(type | 24);
+                put((int) argument);
+            } else if (argument >= 0 && argument <= 0xffff) {
+                put(type | 25);
+                put((int) (argument >>> 8));
+                put((int) argument);
+            } else if (argument >= 0 && argument <= 0xffff_ffffL) {
+                put(type | 26);
+                put((int) (argument >>> 24));
+                put((int) (argument >>> 16));
+                put((int) (argument >>> 8));
+                put((int) argument);
+            } else {
+                put(type | 27);
+                putLong(argument);
+            }
+        }
+
+        private void putLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                put((int) (value >>> shift));
+            }
+        }
+
+        private void put(int b) {
+            ensure(1);
+            bytes[length++] = (byte) b;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private final int limit;
+        private int position;
+
+        private Reader(byte[] bytes, int position, int limit) {
+            this.bytes = bytes;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        JsonElement read(int depth) {
+            if (depth > MAX_DEPTH) {
+                throw new IllegalArgumentException("CBOR nesting too deep");
+            }
+            int initial = next();
+            int major = initial >>> 5;
+            int info = initial & 0x1f;
+            switch (major) {
+                case 0 -> {
+                    long value = argument(info);
+                    return new JsonPrimitive(value >= 0 ? (Number) value : unsigned(value));
+                }
+                case 1 -> {
+                    long value = argument(info);
+                    return new JsonPrimitive(value >= 0 ? (Number) (-1 - value)
+                            : unsigned(value).negate().subtract(BigInteger.ONE));
+                }
+                case 3 -> {
+                    return new JsonPrimitive(text(info));
+                }
+                case 4 -> {
+                    JsonArray array = new JsonArray();
+                    if (info == 31) {
+                        while (!breakCode()) {
+                            array.add(read(depth + 1));
+                        }
+                    } else {
+                        long count = count(info);
+                        for (long i = 0; i < count; i++) {
+                            array.add(read(depth + 1));
+                        }
+                    }
+                    return array;
+                }
+                case 5 -> {
+                    JsonObject object = new JsonObject();
+                    if (info == 31) {
+                        while (!breakCode()) {
+                            object.add(key(), read(depth + 1));
+                        }
+                    } else {
+                        long count = count(info);
+                        for (long i = 0; i < count; i++) {
+                            object.add(key(), read(depth + 1));
+                        }
+                    }
+                    return object;
+                }
+                case 6 -> {
+                    argument(info);
+                    return read(depth + 1);
+                }
+                case 7 -> {
+                    return simple(info);
+                }
+                default -> throw new IllegalArgumentException("CBOR byte strings are not supported");
+            }
+        }
+
+        private JsonElement simple(int info) {
+            return switch (info) {
+                case 20 -> new JsonPrimitive(false);
+                case 21 -> new JsonPrimitive(true);
+                case 22, 23 -> JsonNull.INSTANCE;
+                case 25 -> new JsonPrimitive((double) halfToFloat((int) fixed(2)));
+                case 26 -> new JsonPrimitive((double) Float.intBitsToFloat((int) fixed(4)));
+                case 27 -> new JsonPrimitive(Double.longBitsToDouble(fixed(8)));
+                default -> throw new IllegalArgumentException("unsupported CBOR simple value " + info);
+            };
+        }
+
+        private String key() {
+            int initial = next();
+            if (initial >>> 5 != 3) {
+                throw new IllegalArgumentException("CBOR map keys must be text strings");
+            }
+            return text(initial & 0x1f);
+        }
+
+        private String text(int info) {
+            if (info != 31) {
+                int length = (int) count(info);
+                String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+                position += length;
+                return value;
+            }
+            StringBuilder sb = new StringBuilder();
+            while (!breakCode()) {
+                int chunk = next();
+                if (chunk >>> 5 != 3 || (chunk & 0x1f) == 31) {
+                    throw new IllegalArgumentException("malformed indefinite-length CBOR text");
+                }
+                sb.append(text(chunk & 0x1f));
+            }
+            return sb.toString();
+        }
+
+        /** Definite length that must fit the remaining input (each item takes at least one byte). */
+        private long count(int info) {
+            long count = argument(info);
+            if (count < 0 || count > limit - position) {
+                throw new IllegalArgumentException("CBOR length exceeds frame");
+            }
+            return count;
+        }
+
+        private long argument(int info) {
+            if (info < 24) {
+                return info;
+            }
+            return switch (info) {
+                case 24 -> fixed(1);
+                case 25 -> fixed(2);
+                case 26 -> fixed(4);
+                case 27 -> fixed(8);
+                default -> throw new IllegalArgumentException("malformed CBOR argument " + info);
+            };
+        }
+
+        private long fixed(int size) {
+            if (limit - position < size) {
+                throw new IllegalArgumentException("truncated CBOR item");
+            }
+            long value = 0;
+            for (int i = 0; i < size; i++) {
+                value = (value << 8) | (bytes[position++] & 0xff);
+            }
+            return value;
+        }
+
+        private boolean breakCode() {
+            if (position >= limit) {
+                throw new IllegalArgumentException("truncated CBOR item");
+            }
+            if ((bytes[position] & 0xff) == 0xff) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private int next() {
+            if (position >= limit) {
+                throw new IllegalArgumentException("truncated CBOR item");
+            }
+            return bytes[position++] & 0xff;
+        }
+
+        private static BigInteger unsigned(long value) {
+            return new BigInteger(Long.toUnsignedString(value));
+        }
+
+        private static float halfToFloat(int half) {
+            int exponent = (half >>> 10) & 0x1f;
+            int mantissa = half & 0x3ff;
+            float magnitude;
+            if (exponent == 0) {
+                magnitude = mantissa * 0x1p-24f;
+            } else if (exponent == 31) {
+                magnitude = mantissa == 0 ? Float.POSITIVE_INFINITY : Float.NaN;
+            } else {
+                magnitude = (1 + mantissa / 1024f) * (float) Math.pow(2, exponent - 15);
+            }
+            return (half & 0x8000) != 0 ? -magnitude : magnitude;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package club.code2create.mcremote;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+
+import java.util.Arrays;
+
+/**
+ * Bulk cuboid writes walked chunk by chunk instead of along world axes.
+ *
+ * <p>Each chunk column touched by the cuboid is resolved once through the API, and all of its
+ * positions are written before moving on: sections top-down, and inside a section in the chunk's own
+ * storage order (y, then z, then x). The former x/y/z loop crossed a chunk border on every z row wider
+ * than 16. Writes still go through {@code Chunk#getBlock(...).setBlockData}, which allocates a Block
+ * and lets the server look the chunk up again per position: Paper's API has no section-level write.
+ * The traversal is independent of Bukkit so it can be tested without a server.</p>
+ */
+final class ChunkOrderedFill {
+    private static final int CHUNK_SHIFT = 4;
+    private static final int CHUNK_MASK = 15;
+    // scatter の sort key: chunk z 17 bit / chunk x 17 bit / entry index 29 bit。
+    private static final long SCATTER_CHUNK_SPAN = (1L << 17) - 1;
+    private static final long SCATTER_INDEX_MASK = (1L << 29) - 1;
+
+    private ChunkOrderedFill() {
+    }
+
+    /** Receives the positions of one chunk after {@link #chunk} resolved it. */
+    interface ChunkWriter<C> {
+        C chunk(int chunkX, int chunkZ);
+
+        /** {@code localX}/{@code localZ} are 0..15 inside the chunk; {@code y} is absolute. */
+        void write(C chunk, int localX, int y, int localZ);
+    }
+
+    /** Receives sparse entries of one chunk after {@link #chunk} resolved it. */
+    interface ScatterWriter<C> {
+        C chunk(int chunkX, int chunkZ);
+
+        /** {@code value} is the entry's fourth component, e.g. a palette index. */
+        void write(C chunk, int localX, int y, int localZ, int value);
+    }
+
+    /** Sets {@code data} through the world's chunks without physics updates. */
+    static ChunkWriter<Chunk> writer(World world, BlockData data) {
+        return new ChunkWriter<>() {
+            @Override
+            public Chunk chunk(int chunkX, int chunkZ) {
+                return world.getChunkAt(chunkX, chunkZ);
+            }
+
+            @Override
+            public void write(Chunk chunk, int localX, int y, int localZ) {
+                chunk.getBlock(localX, y, localZ).setBlockData(data, false);
+            }
+        };
+    }
+
+    /**
+     * Like {@link #writer}, but positions that already hold {@code data} are left alone: no write, no
+     * dirty chunk and no block update for clients. {@link DiffWriter#changed} counts the writes made.
+     */
+    static DiffWriter diffWriter(World world, BlockData data) {
+        return new DiffWriter(world, data);
+    }
+
+    /** Visits every position of the inclusive cuboid in chunk order; returns the number visited. */
+    static <C> long fill(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, ChunkWriter<C> writer) {
+        long written = 0;
+        for (int chunkZ = minZ >> CHUNK_SHIFT; chunkZ <= maxZ >> CHUNK_SHIFT; chunkZ++) {
+            int fromZ = Math.max(minZ, chunkZ << CHUNK_SHIFT) & CHUNK_MASK;
+            int toZ = Math.min(maxZ, (chunkZ << CHUNK_SHIFT) | CHUNK_MASK) & CHUNK_MASK;
+            for (int chunkX = minX >> CHUNK_SHIFT; chunkX <= maxX >> CHUNK_SHIFT; chunkX++) {
+                int fromX = Math.max(minX, chunkX << CHUNK_SHIFT) & CHUNK_MASK;
+                int toX = Math.min(maxX, (chunkX << CHUNK_SHIFT) | CHUNK_MASK) & CHUNK_MASK;
+                C chunk = writer.chunk(chunkX, chunkZ);
+                // 上から下へ（従来の setCuboid と同じ y 降順）。section 内は y→z→x の格納順。
+                for (int y = maxY; y >= minY; y--) {
+                    for (int z = fromZ; z <= toZ; z++) {
+                        for (int x = fromX; x <= toX; x++) {
+                            writer.write(chunk, x, y, z);
+                        }
+                    }
+                }
+                written += (long) (toX - fromX + 1) * (toZ - fromZ + 1) * ((long) maxY - minY + 1);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Visits flat {@code (x, y, z, value)} entries grouped by chunk, chunks in the same order as
+     * {@link #fill}; entries of one chunk keep their request order, so a repeated position still ends
+     * with its last value. {@code offsetX/Y/Z} are added to every entry. Returns the number visited.
+     */
+    static <C> long scatter(int[] entries, int offsetX, int offsetY, int offsetZ, ScatterWriter<C> writer) {
+        int count = entries.length / 4;
+        if (count == 0) {
+            return 0;
+        }
+        int minChunkX = Integer.MAX_VALUE;
+        int minChunkZ = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            minChunkX = Math.min(minChunkX, (entries[i * 4] + offsetX) >> CHUNK_SHIFT);
+            minChunkZ = Math.min(minChunkZ, (entries[i * 4 + 2] + offsetZ) >> CHUNK_SHIFT);
+        }
+        // chunk z / chunk x / 要求内の順番を 1 つの long に詰めて primitive sort（安定ソートの代わり）。
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            long chunkX = ((entries[i * 4] + offsetX) >> CHUNK_SHIFT) - minChunkX;
+            long chunkZ = ((entries[i * 4 + 2] + offsetZ) >> CHUNK_SHIFT) - minChunkZ;
+            if (chunkX > SCATTER_CHUNK_SPAN || chunkZ > SCATTER_CHUNK_SPAN || i > SCATTER_INDEX_MASK) {
+                throw new IllegalArgumentException("scatter entries span too far");
+            }
+            keys[i] = chunkZ << 46 | chunkX << 29 | i;
+        }
+        Arrays.sort(keys);
+
+        C chunk = null;
+        long currentChunk = -1;
+        for (long key : keys) {
+            int i = (int) (key & SCATTER_INDEX_MASK);
+            int x = entries[i * 4] + offsetX;
+            int z = entries[i * 4 + 2] + offsetZ;
+            long chunkKey = key >>> 29;
+            if (chunkKey != currentChunk) {
+                chunk = writer.chunk(x >> CHUNK_SHIFT, z >> CHUNK_SHIFT);
+                currentChunk = chunkKey;
+            }
+            writer.write(chunk, x & CHUNK_MASK, entries[i * 4 + 1] + offsetY, z & CHUNK_MASK, entries[i * 4 + 3]);
+        }
+        return count;
+    }
+
+    /** Skip-unchanged writer returned by {@link #diffWriter}. */
+    static final class DiffWriter implements ChunkWriter<Chunk> {
+        private final World world;
+        private final BlockData data;
+        private long changed;
+
+        private DiffWriter(World world, BlockData data) {
+            this.world = world;
+            this.data = data;
+        }
+
+        @Override
+        public Chunk chunk(int chunkX, int chunkZ) {
+            return world.getChunkAt(chunkX, chunkZ);
+        }
+
+        @Override
+        public void write(Chunk chunk, int localX, int y, int localZ) {
+            Block block = chunk.getBlock(localX, y, localZ);
+            // decode 済みの data は全 property を持つ完全な state なので、equals が「書いても同じ」と同値。
+            if (!block.getBlockData().equals(data)) {
+                block.setBlockData(data, false);
+                changed++;
+            }
+        }
+
+        long changed() {
+            return changed;
+        }
+    }
+
+    /**
+     * The same order as {@link #fill}, resumable: {@link #advance} writes the next {@code budget}
+     * positions and keeps its place, so a background job can spread one cuboid over several ticks.
+     * The chunk is resolved again on every call because it may have unloaded in between.
+     */
+    static final class Cursor<C> {
+        private final int minX;
+        private final int minY;
+        private final int minZ;
+        private final int maxX;
+        private final int maxY;
+        private final int maxZ;
+        private final ChunkWriter<C> writer;
+        private final long volume;
+        private long written;
+        private int chunkX;
+        private int chunkZ;
+        private int fromX;
+        private int toX;
+        private int fromZ;
+        private int toZ;
+        // x/z はチャンク内のローカル座標、y は絶対座標。
+        private int x;
+        private int y;
+        private int z;
+
+        Cursor(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, ChunkWriter<C> writer) {
+            if (minX > maxX || minY > maxY || minZ > maxZ) {
+                throw new IllegalArgumentException("cuboid corners must be ordered");
+            }
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.maxZ = maxZ;
+            this.writer = writer;
+            this.volume = ((long) maxX - minX + 1) * ((long) maxY - minY + 1) * ((long) maxZ - minZ + 1);
+            this.chunkX = minX >> CHUNK_SHIFT;
+            this.chunkZ = minZ >> CHUNK_SHIFT;
+            enterChunk();
+        }
+
+        long volume() {
+            return volume;
+        }
+
+        long written() {
+            return written;
+        }
+
+        long remaining() {
+            return volume - written;
+        }
+
+        boolean isDone() {
+            return written >= volume;
+        }
+
+        /** Writes up to {@code budget} further positions; returns how many were written. */
+        long advance(long budget) {
+            long done = 0;
+            while (done < budget && written < volume) {
+                C chunk = writer.chunk(chunkX, chunkZ);
+                while (done < budget) {
+                    writer.write(chunk, x, y, z);
+                    done++;
+                    written++;
+                    if (++x <= toX) {
+                        continue;
+                    }
+                    x = fromX;
+                    if (++z <= toZ) {
+                        continue;
+                    }
+                    z = fromZ;
+                    if (--y >= minY) {
+                        continue;
+                    }
+                    nextChunk();
+                    break;
+                }
+            }
+            return done;
+        }
+
+        private void nextChunk() {
+            if (++chunkX > maxX >> CHUNK_SHIFT) {
+                chunkX = minX >> CHUNK_SHIFT;
+                chunkZ++;
+            }
+            if (chunkZ <= maxZ >> CHUNK_SHIFT) {
+                enterChunk();
+            }
+        }
+
+        private void enterChunk() {
+            fromX = Math.max(minX, chunkX << CHUNK_SHIFT) & CHUNK_MASK;
+            toX = Math.min(maxX, (chunkX << CHUNK_SHIFT) | CHUNK_MASK) & CHUNK_MASK;
+            fromZ = Math.max(minZ, chunkZ << CHUNK_SHIFT) & CHUNK_MASK;
+            toZ = Math.min(maxZ, (chunkZ << CHUNK_SHIFT) | CHUNK_MASK) & CHUNK_MASK;
+            x = fromX;
+            z = fromZ;
+            y = maxY;
+        }
+    }
+}
@@ -5,15 +5,31 @@ import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.logging.Logger;
 
-public class CommandDispatcher {
+public class CommandDispatcher<S> {
     private static final Logger logger = Logger.getLogger("McR_CommandDispatcher");
 
     private final CommandDispatchContext session;
-    private final CommandRegistry registry;
+    private final CommandRegistry<S> registry;
+    // この接続の handler 群。共有 registry の各 opcode はこれに対して実行される。
+    private final S handlers;
 
-    public CommandDispatcher(CommandDispatchContext session, CommandRegistry registry) {
+    public CommandDispatcher(CommandDispatchContext session, CommandRegistry<S> registry, S handlers) {
         this.session = session;
         this.registry = registry;
+        this.handlers = handlers;
+    }
+
+    /**
+     * Reader-side half of dispatch: resolves the opcode and attaches the pure params validation of a
+     * registered command. Unknown methods, hello and auth.* are left alone so the main thread reports
+     * them as before.
+     */
+    void prepare(ParsedCommand parsedCommand) {
+        int opcode = registry.opcode(parsedCommand.getName());
+        if (opcode != CommandRegistry.UNKNOWN) {
+            parsedCommand.resolveOpcode(opcode);
+            registry.get(opcode).prepare(handlers, parsedCommand);
+        }
     }
 
     public void dispatch(ParsedCommand parsedCommand) {
@@ -21,12 +37,16 @@ public class CommandDispatcher {
         String[] args = parsedCommand.getArgs();
 
         try {
-            CommandRegistry.CommandRegistration registration = registry.get(commandName);
-            if (registration == null) {
+            int opcode = parsedCommand.getOpcode();
+            if (opcode == CommandRegistry.UNKNOWN) {
+                opcode = registry.opcode(commandName);
+            }
+            if (opcode == CommandRegistry.UNKNOWN) {
                 session.respondError(-32601, "method_not_found", null);
                 logger.warning("No such method: " + commandName);
                 return;
             }
+            CommandRegistry.CommandRegistration<S> registration = registry.get(opcode);
 
             if (registration.requiresOrigin() && session.getOrigin() == null) {
                 session.respondError(-32000, "origin_not_set", null);
@@ -36,7 +56,7 @@ public class CommandDispatcher {
                 return;
             }
 
-            registration.execute(parsedCommand);
+            registration.execute(handlers, parsedCommand);
         } catch (CommandDeferredException e) {
             throw e;
         } catch (Exception e) {
@@ -2,11 +2,20 @@ package club.code2create.mcremote;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
 
-import java.math.BigDecimal;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * 直 TCP の1行＝1 JSON（compact, \n 終端）を JSON-RPC 2.0 としてパースする（wire-format-design §2/§3）。
@@ -14,24 +23,106 @@ import java.math.BigDecimal;
  * （hello は object 形なので {@link ParsedCommand#getParams()} 側から読む）。
  */
 public class CommandParser {
+    /** batch 1つの要素数上限。batch は1 tick 内で丸ごと実行するので、1 tick のコマンド上限を超えさせない。 */
+    static final int MAX_BATCH_ELEMENTS = RemoteSession.MAX_COMMANDS_PER_TICK;
+
+    // 受信行のバイト列を String 化せずに Gson へ流す。parser は1接続の読み手専用なので使い回す。
+    private final Utf8SliceReader sliceReader = new Utf8SliceReader();
+
     public ParsedCommand parse(String line) {
-        JsonObject root;
+        JsonElement el;
         try {
-            JsonElement el = JsonParser.parseString(line);
-            if (!el.isJsonObject()) {
-                throw new IllegalArgumentException("Not a JSON-RPC object: " + line);
-            }
-            root = el.getAsJsonObject();
+            el = JsonParser.parseString(line);
         } catch (JsonSyntaxException e) {
             throw new IllegalArgumentException("Malformed JSON: " + line);
         }
+        return toCommand(el, () -> line);
+    }
+
+    /** UTF-8 の1行（終端無し）を直接パースする。受理範囲とエラー文言は {@link #parse(String)} と同一。 */
+    public ParsedCommand parse(byte[] bytes, int offset, int length) {
+        // 行の文字列化はエラー文言を組むときだけ。
+        Supplier<String> line = () -> new String(bytes, offset, length, StandardCharsets.UTF_8);
+        return toCommand(jsonTree(bytes, offset, length, line), line);
+    }
+
+    /**
+     * 1フレームを単発要求または JSON-RPC batch（配列）としてパースする。CBOR は hello で合意した接続の
+     * payload（length prefix を除く）。
+     * 空配列と {@link #MAX_BATCH_ELEMENTS} 超の配列は不正フレーム。batch 内の不正要素はフレーム全体を捨てずに {@link MalformedFrame} として配列順に残す。
+     */
+    public ParsedFrame parseFrame(byte[] bytes, int offset, int length, WireEncoding encoding) {
+        JsonElement el;
+        Supplier<String> line;
+        if (encoding == WireEncoding.CBOR) {
+            el = cborTree(bytes, offset, length);
+            line = el::toString;
+        } else {
+            line = () -> new String(bytes, offset, length, StandardCharsets.UTF_8);
+            el = jsonTree(bytes, offset, length, line);
+        }
+        if (!el.isJsonArray()) {
+            return toCommand(el, line);
+        }
+        JsonArray elements = el.getAsJsonArray();
+        if (elements.isEmpty()) {
+            throw new IllegalArgumentException("Empty batch: " + line.get());
+        }
+        if (elements.size() > MAX_BATCH_ELEMENTS) {
+            throw new IllegalArgumentException(
+                    "Batch of " + elements.size() + " elements exceeds " + MAX_BATCH_ELEMENTS);
+        }
+        List<ParsedFrame> parsed = new ArrayList<>(elements.size());
+        for (JsonElement element : elements) {
+            try {
+                parsed.add(toCommand(element, element::toString));
+            } catch (IllegalArgumentException e) {
+                parsed.add(new MalformedFrame(e.getMessage(), readableId(element)));
+            }
+        }
+        return new ParsedBatch(parsed);
+    }
+
+    /** 不正な batch 要素から、エラー応答の相関に使える id を拾う。読めなければ null。 */
+    private Integer readableId(JsonElement element) {
+        if (!element.isJsonObject()) {
+            return null;
+        }
+        try {
+            return parseRequestId(element.getAsJsonObject());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private JsonElement jsonTree(byte[] bytes, int offset, int length, Supplier<String> line) {
+        try {
+            return JsonParser.parseReader(sliceReader.reset(bytes, offset, length));
+        } catch (JsonSyntaxException | JsonIOException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + line.get());
+        }
+    }
+
+    private static JsonElement cborTree(byte[] bytes, int offset, int length) {
+        try {
+            return CborCodec.decode(bytes, offset, length);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed CBOR (" + length + " bytes): " + e.getMessage());
+        }
+    }
+
+    private ParsedCommand toCommand(JsonElement el, Supplier<String> line) {
+        if (!el.isJsonObject()) {
+            throw new IllegalArgumentException("Not a JSON-RPC object: " + line.get());
+        }
+        JsonObject root = el.getAsJsonObject();
 
         if (!"2.0".equals(asStringOrNull(root.get("jsonrpc")))) {
-            throw new IllegalArgumentException("Missing/invalid jsonrpc version: " + line);
+            throw new IllegalArgumentException("Missing/invalid jsonrpc version: " + line.get());
         }
         JsonElement methodEl = root.get("method");
         if (methodEl == null || !methodEl.isJsonPrimitive()) {
-            throw new IllegalArgumentException("Missing method: " + line);
+            throw new IllegalArgumentException("Missing method: " + line.get());
         }
         String method = methodEl.getAsString();
 
@@ -51,7 +142,7 @@ public class CommandParser {
             throw new IllegalArgumentException("Request id must be a JSON integer");
         }
         try {
-            int id = new BigDecimal(value.getAsString()).toBigIntegerExact().intValueExact();
+            int id = Math.toIntExact(WireNumbers.integral(value.getAsJsonPrimitive()));
             if (id < 1) {
                 throw new IllegalArgumentException("Request id must be positive");
             }
@@ -84,4 +175,45 @@ public class CommandParser {
     private String asStringOrNull(JsonElement e) {
         return (e != null && e.isJsonPrimitive()) ? e.getAsString() : null;
     }
+
+    /**
+     * Reusable {@link Reader} over a UTF-8 byte slice. Malformed input decodes to U+FFFD exactly as
+     * {@code new String(bytes, UTF_8)} and {@code InputStreamReader} would.
+     */
+    private static final class Utf8SliceReader extends Reader {
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private ByteBuffer input = ByteBuffer.allocate(0);
+        private boolean flushed;
+
+        Utf8SliceReader reset(byte[] bytes, int offset, int length) {
+            input = ByteBuffer.wrap(bytes, offset, length);
+            decoder.reset();
+            flushed = false;
+            return this;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (flushed) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+            decoder.decode(input, out, true);
+            if (!input.hasRemaining() && decoder.flush(out).isUnderflow()) {
+                flushed = true;
+            }
+            int read = out.position() - off;
+            return read == 0 && flushed ? -1 : read;
+        }
+
+        @Override
+        public void close() {
+            // 借り物の配列を参照しているだけなので解放するものは無い。
+        }
+    }
 }
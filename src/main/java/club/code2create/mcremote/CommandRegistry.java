@@ -2,58 +2,149 @@ package club.code2create.mcremote;
 
 import com.google.gson.JsonElement;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
-public class CommandRegistry {
-    private final Map<String, CommandRegistration> commands = new HashMap<>();
+/**
+ * Immutable method table shared by every session.
+ *
+ * <p>Method names are interned into dense opcodes once, when the plugin enables. Each entry invokes
+ * its handler against the session's handler set {@code S}, so a connection only supplies that set
+ * and dispatch is an array index instead of a map lookup plus a per-session lambda.</p>
+ *
+ * @param <S> per-session handler set the commands are bound against
+ */
+public final class CommandRegistry<S> {
+    /** Opcode of a method this table does not know; dispatch answers {@code method_not_found}. */
+    static final int UNKNOWN = -1;
 
-    public void register(String name, RemoteCommand command) {
-        register(name, command, true);
+    private final Map<String, Integer> opcodes;
+    private final String[] names;
+    private final CommandRegistration<S>[] registrations;
+
+    private CommandRegistry(Map<String, Integer> opcodes, String[] names, CommandRegistration<S>[] registrations) {
+        this.opcodes = opcodes;
+        this.names = names;
+        this.registrations = registrations;
     }
 
-    public void register(String name, RemoteCommand command, boolean requiresOrigin) {
-        commands.put(name, new CommandRegistration(command, null, requiresOrigin));
+    static <S> Builder<S> builder() {
+        return new Builder<>();
     }
 
-    public void registerStructured(String name, StructuredRemoteCommand command) {
-        registerStructured(name, command, true);
+    int opcode(String name) {
+        Integer opcode = name == null ? null : opcodes.get(name);
+        return opcode == null ? UNKNOWN : opcode;
     }
 
-    public void registerStructured(String name, StructuredRemoteCommand command, boolean requiresOrigin) {
-        commands.put(name, new CommandRegistration(null, command, requiresOrigin));
+    String name(int opcode) {
+        return names[opcode];
     }
 
-    public CommandRegistration get(String name) {
-        return commands.get(name);
+    int size() {
+        return names.length;
     }
 
-    public static class CommandRegistration {
-        private final RemoteCommand command;
-        private final StructuredRemoteCommand structuredCommand;
-        private final boolean requiresOrigin;
+    CommandRegistration<S> get(int opcode) {
+        return registrations[opcode];
+    }
+
+    /** Collects registrations at enable; {@link #build()} freezes them into opcodes in registration order. */
+    static final class Builder<S> {
+        private final Map<String, CommandRegistration<S>> commands = new HashMap<>();
+        private final List<String> order = new ArrayList<>();
+
+        void register(String name, RemoteCommand<S> command) {
+            register(name, command, true);
+        }
+
+        void register(String name, RemoteCommand<S> command, boolean requiresOrigin) {
+            put(name, new CommandRegistration<>(
+                    (handlers, parsed) -> command.execute(handlers, parsed.getArgs()), null, requiresOrigin));
+        }
 
-        private CommandRegistration(
-                RemoteCommand command,
-                StructuredRemoteCommand structuredCommand,
-                boolean requiresOrigin
+        void registerStructured(String name, StructuredRemoteCommand<S> command) {
+            registerStructured(name, command, true);
+        }
+
+        void registerStructured(String name, StructuredRemoteCommand<S> command, boolean requiresOrigin) {
+            put(name, new CommandRegistration<>(
+                    (handlers, parsed) -> command.execute(handlers, parsed.getParams()), null, requiresOrigin));
+        }
+
+        /** params の純粋な検証を reader 側で済ませるコマンド。検証結果は handler に {@link PreparedParams} で渡る。 */
+        <T, E extends Exception> void registerPrepared(
+                String name,
+                PreparedParams.Preparer<S, T, E> preparer,
+                PreparedRemoteCommand<S, T, E> command
         ) {
-            this.command = command;
-            this.structuredCommand = structuredCommand;
+            put(name, new CommandRegistration<>((handlers, parsed) -> {
+                @SuppressWarnings("unchecked")
+                PreparedParams<T, E> prepared = (PreparedParams<T, E>) parsed.getPrepared();
+                // reader を経ずに組み立てた ParsedCommand（テスト等）はここで検証する。
+                command.execute(handlers, prepared != null
+                        ? prepared
+                        : PreparedParams.of(preparer, handlers, parsed.getParams()));
+            }, (handlers, params) -> PreparedParams.of(preparer, handlers, params), true));
+        }
+
+        private void put(String name, CommandRegistration<S> registration) {
+            if (commands.put(name, registration) == null) {
+                order.add(name);
+            }
+        }
+
+        CommandRegistry<S> build() {
+            Map<String, Integer> opcodes = new HashMap<>();
+            String[] names = new String[order.size()];
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            CommandRegistration<S>[] registrations = new CommandRegistration[order.size()];
+            for (int opcode = 0; opcode < names.length; opcode++) {
+                String name = order.get(opcode).intern();
+                names[opcode] = name;
+                opcodes.put(name, opcode);
+                registrations[opcode] = commands.get(name);
+            }
+            return new CommandRegistry<>(Map.copyOf(opcodes), names, registrations);
+        }
+    }
+
+    static final class CommandRegistration<S> {
+        private final Invoker<S> invoker;
+        private final ParamsPreparer<S> preparer;
+        private final boolean requiresOrigin;
+
+        private CommandRegistration(Invoker<S> invoker, ParamsPreparer<S> preparer, boolean requiresOrigin) {
+            this.invoker = invoker;
+            this.preparer = preparer;
             this.requiresOrigin = requiresOrigin;
         }
 
-        public void execute(ParsedCommand parsedCommand) {
-            if (structuredCommand != null) {
-                JsonElement params = parsedCommand.getParams();
-                structuredCommand.execute(params);
-            } else {
-                command.execute(parsedCommand.getArgs());
+        /** reader 側：検証結果を ParsedCommand に添付する。検証を持たないコマンドでは何もしない。 */
+        void prepare(S handlers, ParsedCommand parsedCommand) {
+            if (preparer != null) {
+                parsedCommand.attachPrepared(preparer.prepare(handlers, parsedCommand.getParams()));
             }
         }
 
-        public boolean requiresOrigin() {
+        void execute(S handlers, ParsedCommand parsedCommand) {
+            invoker.invoke(handlers, parsedCommand);
+        }
+
+        boolean requiresOrigin() {
             return requiresOrigin;
         }
     }
+
+    @FunctionalInterface
+    private interface Invoker<S> {
+        void invoke(S handlers, ParsedCommand parsedCommand);
+    }
+
+    @FunctionalInterface
+    private interface ParamsPreparer<S> {
+        Object prepare(S handlers, JsonElement params);
+    }
 }
@@ -6,9 +6,11 @@ import java.util.concurrent.ArrayBlockingQueue;
 /**
  * Bounded, thread-safe FIFO between a connection's socket reader and the Paper main thread.
  * A full queue blocks the reader so TCP backpressure is applied instead of dropping notifications.
+ *
+ * @param <E> inbound unit handed over by the transport
  */
-final class ConnectionCommandQueue {
-    private final ArrayBlockingQueue<String> commands;
+final class ConnectionCommandQueue<E> {
+    private final ArrayBlockingQueue<E> commands;
 
     ConnectionCommandQueue(int capacity) {
         if (capacity <= 0) {
@@ -17,15 +19,20 @@ final class ConnectionCommandQueue {
         this.commands = new ArrayBlockingQueue<>(capacity, true);
     }
 
-    void put(String command) throws InterruptedException {
+    void put(E command) throws InterruptedException {
         commands.put(Objects.requireNonNull(command, "command"));
     }
 
-    String peek() {
+    /** Non-blocking variant for event-loop readers, which pause reading instead of blocking. */
+    boolean offer(E command) {
+        return commands.offer(Objects.requireNonNull(command, "command"));
+    }
+
+    E peek() {
         return commands.peek();
     }
 
-    String removeHead() {
+    E removeHead() {
         return commands.poll();
     }
 
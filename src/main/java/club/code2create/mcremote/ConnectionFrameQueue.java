@@ -9,10 +9,12 @@ import java.util.Objects;
  * <p>Saturation is terminal: the queue reports failure, clears retained frames, and rejects every
  * later frame. The owning {@link RemoteSession} then closes the transport, so a dropped frame can
  * never be mistaken for a successful {@code connection.flush} response.</p>
+ *
+ * @param <F> frame representation handed to the transport
  */
-final class ConnectionFrameQueue {
+final class ConnectionFrameQueue<F> {
     private final int capacity;
-    private final ArrayDeque<String> frames = new ArrayDeque<>();
+    private final ArrayDeque<F> frames = new ArrayDeque<>();
     private boolean failed;
 
     ConnectionFrameQueue(int capacity) {
@@ -22,7 +24,7 @@ final class ConnectionFrameQueue {
         this.capacity = capacity;
     }
 
-    synchronized boolean offer(String frame) {
+    synchronized boolean offer(F frame) {
         Objects.requireNonNull(frame, "frame");
         if (failed) {
             return false;
@@ -36,7 +38,7 @@ final class ConnectionFrameQueue {
         return true;
     }
 
-    synchronized String poll() {
+    synchronized F poll() {
         return failed ? null : frames.pollFirst();
     }
 
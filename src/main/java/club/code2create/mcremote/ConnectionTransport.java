@@ -0,0 +1,32 @@
+package club.code2create.mcremote;
+
+/**
+ * Socket I/O strategy for one {@link RemoteSession}.
+ *
+ * <p>The session owns the command/frame queues and the close state; a transport only moves frames
+ * between the socket and those queues. Every implementation keeps the same contract: commands
+ * enter the FIFO in arrival order, a full FIFO applies TCP backpressure instead of dropping, and
+ * close-after-flush closes the socket only after every queued frame was written.</p>
+ */
+interface ConnectionTransport {
+    void start();
+
+    /**
+     * Frames read after this call use {@code encoding}, inflating compressed frames when
+     * {@code inflate} is set. Called on the main thread before the hello response is queued, so no
+     * frame in the new format can have arrived yet.
+     */
+    void switchInputFormat(WireEncoding encoding, boolean inflate);
+
+    /** A frame was queued or close-after-flush was requested. */
+    void outputReady();
+
+    /** The main thread removed commands, so a reader paused on a full FIFO may resume. */
+    void inputDrained();
+
+    /** Stops I/O without waiting, e.g. after response-queue saturation on the main thread. */
+    void abort();
+
+    /** Stops I/O and waits briefly for transport-owned threads to finish. */
+    void stop();
+}
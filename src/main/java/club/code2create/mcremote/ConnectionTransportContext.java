@@ -0,0 +1,29 @@
+package club.code2create.mcremote;
+
+/**
+ * Minimal session surface required by a connection transport.
+ *
+ * @param <R> the queued form of one inbound frame
+ */
+interface ConnectionTransportContext<R> {
+    /**
+     * Turns a framed line into its queued form. Runs on the reader side (input thread or selector
+     * loop), so it may only do pure work: parsing and params validation, never world access.
+     */
+    R decode(InboundLine line);
+
+    ConnectionCommandQueue<R> commandQueue();
+
+    /** Wire-ready frames: a JSON line with its {@code \n}, or a length-prefixed binary frame. */
+    ConnectionFrameQueue<OutboundFrame> frameQueue();
+
+    boolean isRunning();
+
+    /** Input reached EOF or the transport failed; already queued commands are still drained. */
+    void stopRunning();
+
+    boolean isClosingAfterFlush();
+
+    /** Close-after-flush completed: every queued frame was written and the socket is closed. */
+    void closedAfterFlush();
+}
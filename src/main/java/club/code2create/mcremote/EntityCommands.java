@@ -21,49 +21,77 @@ public class EntityCommands {
         this.miscCommands = miscCommands;
     }
 
-    public void handleEntityCommands(String c, String[] args) {
+    // opcode ごとに別メソッド。コマンド名で再 switch しない（CommandRegistry が直接束縛する）。
+    public void handleGetPos(String[] args) {
+        Entity entity = resolveEntity(args);
+        if (entity != null) {
+            handleEntityGetPos(entity);
+        }
+    }
+
+    public void handleSetPos(String[] args) {
+        Entity entity = resolveEntity(args);
+        if (entity != null) {
+            handleEntitySetPos(entity, args);
+        }
+    }
+
+    public void handleGetRotation(String[] args) {
+        Entity entity = resolveEntity(args);
+        if (entity != null) {
+            handleEntityGetRotation(entity);
+        }
+    }
+
+    public void handleSetRotation(String[] args) {
+        Entity entity = resolveEntity(args);
+        if (entity != null) {
+            handleEntitySetRotation(entity, args);
+        }
+    }
+
+    public void handleGetPitch(String[] args) {
+        Entity entity = resolveEntity(args);
+        if (entity != null) {
+            handleEntityGetPitch(entity);
+        }
+    }
+
+    public void handleSetPitch(String[] args) {
+        Entity entity = resolveEntity(args);
+        if (entity != null) {
+            handleEntitySetPitch(entity, args);
+        }
+    }
+
+    public void handleGetYaw(String[] args) {
+        Entity entity = resolveEntity(args);
+        if (entity != null) {
+            handleEntityGetYaw(entity);
+        }
+    }
+
+    public void handleSetYaw(String[] args) {
+        Entity entity = resolveEntity(args);
+        if (entity != null) {
+            handleEntitySetYaw(entity, args);
+        }
+    }
+
+    public void handleRemove(String[] args) {
+        Entity entity = resolveEntity(args);
+        if (entity != null) {
+            handleEntityRemove(entity);
+        }
+    }
+
+    private Entity resolveEntity(String[] args) {
         Entity entity = Bukkit.getEntity(UUID.fromString(args[0]));
         if (entity == null) {
             session.send("Entity not found");
             logger.warning("Entity not found: " + args[0]);
-            return;
-        }
-
-        switch (c) {
-            case "entity.getPos":
-                handleEntityGetPos(entity);
-                break;
-            case "entity.setPos":
-                handleEntitySetPos(entity, args);
-                break;
-            case "entity.getRotation":
-                handleEntityGetRotation(entity);
-                break;
-            case "entity.setRotation":
-                handleEntitySetRotation(entity, args);
-                break;
-            case "entity.getPitch":
-                handleEntityGetPitch(entity);
-                break;
-            case "entity.setPitch":
-                handleEntitySetPitch(entity, args);
-                break;
-            case "entity.getYaw":
-                handleEntityGetYaw(entity);
-                break;
-            case "entity.setYaw":
-                handleEntitySetYaw(entity, args);
-                break;
-            case "entity.remove":
-                handleEntityRemove(entity);
-                break;
-            case "entity.getNearbyEntities":
-                handleGetNearbyEntities(entity.getWorld(), args);
-                break;
-            default:
-                session.send("Unknown entity command: " + c);
-                break;
         }
+        return entity;
     }
 
     private void handleEntityGetPos(Entity entity) {
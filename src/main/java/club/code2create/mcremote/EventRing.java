@@ -1,9 +1,5 @@
 package club.code2create.mcremote;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -13,8 +9,6 @@ import java.util.Map;
 
 /** Connection-epoch scoped, non-destructive b5 event ring. */
 final class EventRing {
-    private static final Gson GSON = new GsonBuilder().serializeNulls().create();
-
     private final int maxEvents;
     private final int maxBytes;
     private final int maxResultBytes;
@@ -127,7 +121,7 @@ final class EventRing {
     }
 
     private static int jsonBytes(Object value) {
-        return GSON.toJson(value).getBytes(StandardCharsets.UTF_8).length;
+        return ResponseWriter.encodedLength(value);
     }
 
     private record Entry(long sequence, Map<String, Object> event, int bytes) {
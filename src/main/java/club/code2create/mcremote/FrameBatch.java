@@ -0,0 +1,77 @@
+package club.code2create.mcremote;
+
+import java.util.Arrays;
+
+/**
+ * Reusable staging buffer that coalesces queued response frames into one socket write, encoding
+ * (compressing) each one as it is taken.
+ *
+ * <p>A drain stops once {@code maxBytes} is reached, so a burst of pipelined responses becomes a few
+ * large writes instead of one write and flush per frame. A single frame larger than the limit is
+ * still staged whole; frames are never split across batches.</p>
+ */
+final class FrameBatch {
+    static final int DEFAULT_MAX_BYTES = 64 * 1024;
+
+    private final int maxBytes;
+    private byte[] bytes;
+    private int length;
+    private int frames;
+
+    FrameBatch(int maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        this.maxBytes = maxBytes;
+        this.bytes = new byte[Math.min(maxBytes, 8_192)];
+    }
+
+    /** Moves frames from {@code queue} until it is empty or the batch is full; returns frames taken. */
+    int drain(ConnectionFrameQueue<OutboundFrame> queue) {
+        int taken = 0;
+        while (length < maxBytes) {
+            OutboundFrame frame = queue.poll();
+            if (frame == null) {
+                break;
+            }
+            append(frame.encode());
+            taken++;
+        }
+        return taken;
+    }
+
+    void append(byte[] frame) {
+        int required = length + frame.length;
+        if (required > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(required, Math.min(bytes.length * 2, maxBytes)));
+        }
+        System.arraycopy(frame, 0, bytes, length, frame.length);
+        length += frame.length;
+        frames++;
+    }
+
+    boolean isEmpty() {
+        return frames == 0;
+    }
+
+    byte[] array() {
+        return bytes;
+    }
+
+    int length() {
+        return length;
+    }
+
+    int frames() {
+        return frames;
+    }
+
+    void clear() {
+        length = 0;
+        frames = 0;
+        // 上限を超える単発フレームで膨らんだ配列は次回の通常バッチに持ち越さない。
+        if (bytes.length > maxBytes) {
+            bytes = new byte[maxBytes];
+        }
+    }
+}
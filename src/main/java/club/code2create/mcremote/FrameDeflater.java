@@ -0,0 +1,142 @@
+package club.code2create.mcremote;
+
+import com.google.gson.JsonElement;
+
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Outbound half of {@code compression: "deflate"}: one raw DEFLATE stream per connection.
+ *
+ * <p>Payloads of at least {@code thresholdBytes} are compressed and end with a sync flush, so each
+ * frame is decodable on arrival while later frames still reuse the history window (repeated
+ * BlockValue keys compress across responses). Smaller payloads are sent raw and bypass the stream.
+ * Frames are length-prefixed with {@link #COMPRESSED_FLAG} set on compressed ones. Used by the
+ * connection's writer through {@link OutboundFrame}; {@link #close} may come from the main thread, after
+ * which the remaining frames fail instead of touching a released stream.</p>
+ */
+final class FrameDeflater implements AutoCloseable {
+    static final int COMPRESSED_FLAG = 0x8000_0000;
+    static final int DEFAULT_THRESHOLD_BYTES = 1_024;
+
+    // DEFLATE の参照窓（32 KiB）。spliced 後はこの長さだけ履歴を張り直す。
+    private static final int WINDOW_BYTES = 32 * 1_024;
+
+    private final Deflater deflater;
+    private final int thresholdBytes;
+    private byte[] scratch = new byte[8_192];
+    private boolean closed;
+
+    /** True when hello {@code params.compression} names {@code "deflate"} (string or preference list). */
+    static boolean requested(JsonElement requested) {
+        if (requested == null || requested.isJsonNull()) {
+            return false;
+        }
+        if (requested.isJsonArray()) {
+            for (JsonElement candidate : requested.getAsJsonArray()) {
+                if (isDeflate(candidate)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return isDeflate(requested);
+    }
+
+    private static boolean isDeflate(JsonElement value) {
+        return value.isJsonPrimitive() && "deflate".equalsIgnoreCase(value.getAsString().trim());
+    }
+
+    FrameDeflater(int thresholdBytes) {
+        this(thresholdBytes, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    private FrameDeflater(int thresholdBytes, int level) {
+        this.thresholdBytes = thresholdBytes;
+        this.deflater = new Deflater(level, true);
+    }
+
+    synchronized byte[] frame(byte[] payload) {
+        if (payload.length < thresholdBytes) {
+            return prefixed(payload, 0, payload.length, 0);
+        }
+        ensureOpen();
+        return compressedFrame(deflate(payload, WireEncoding.LENGTH_PREFIX_BYTES));
+    }
+
+    /**
+     * One compressed frame for {@code head + fragment + tail} that reuses the fragment's precompressed
+     * blocks. Those blocks only reference their own bytes, so they decode anywhere in the stream;
+     * afterwards this stream is re-seeded with the fragment's last window, so later back-references
+     * point at the same bytes the peer's inflater holds.
+     */
+    synchronized byte[] spliced(byte[] head, RawJson fragment, byte[] tail) {
+        ensureOpen();
+        int length = deflate(head, WireEncoding.LENGTH_PREFIX_BYTES);
+        byte[] blocks = fragment.deflated();
+        ensure(length + blocks.length);
+        System.arraycopy(blocks, 0, scratch, length, blocks.length);
+        length += blocks.length;
+        byte[] utf8 = fragment.utf8();
+        int window = Math.min(utf8.length, WINDOW_BYTES);
+        deflater.reset();
+        deflater.setDictionary(utf8, utf8.length - window, window);
+        return compressedFrame(deflate(tail, length));
+    }
+
+    /** Standalone sync-flushed raw DEFLATE blocks for {@link RawJson#precompressed}. */
+    static byte[] precompress(byte[] payload) {
+        try (FrameDeflater once = new FrameDeflater(0, Deflater.BEST_COMPRESSION)) {
+            int length = once.deflate(payload, 0);
+            return Arrays.copyOf(once.scratch, length);
+        }
+    }
+
+    /** Compresses {@code input} with a sync flush into {@link #scratch} from {@code offset}; returns the end. */
+    private int deflate(byte[] input, int offset) {
+        deflater.setInput(input);
+        int length = offset;
+        while (true) {
+            ensure(length + 1);
+            int written = deflater.deflate(scratch, length, scratch.length - length, Deflater.SYNC_FLUSH);
+            length += written;
+            // 出力枠を使い切らなかった＝sync flush まで書き終えた（Deflater#deflate の SYNC_FLUSH 規約）。
+            if (length < scratch.length) {
+                return length;
+            }
+        }
+    }
+
+    private byte[] compressedFrame(int length) {
+        byte[] frame = Arrays.copyOf(scratch, length);
+        WireEncoding.writeLengthPrefix(frame, (length - WireEncoding.LENGTH_PREFIX_BYTES) | COMPRESSED_FLAG);
+        return frame;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("connection deflater closed");
+        }
+    }
+
+    private void ensure(int capacity) {
+        if (capacity > scratch.length) {
+            scratch = Arrays.copyOf(scratch, Math.max(scratch.length * 2, capacity));
+        }
+    }
+
+    private static byte[] prefixed(byte[] payload, int offset, int length, int flags) {
+        byte[] frame = new byte[WireEncoding.LENGTH_PREFIX_BYTES + length];
+        System.arraycopy(payload, offset, frame, WireEncoding.LENGTH_PREFIX_BYTES, length);
+        WireEncoding.writeLengthPrefix(frame, length | flags);
+        return frame;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package club.code2create.mcremote;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One inbound frame: a {@code \n}-terminated JSON line as raw UTF-8 (without the terminator or a
+ * trailing {@code \r}), or the payload of a length-prefixed binary frame after hello negotiated one.
+ *
+ * <p>A line longer than {@code api_max_line_bytes} is never buffered: the framer discards it and
+ * queues an oversized marker in its place, so the main thread still applies the malformed-line rule
+ * (close before hello, discard after) in FIFO order.</p>
+ *
+ * <p>A framed line is a view into the framer's reused buffer and is only valid until the framer's
+ * next {@code read}/{@code next}/{@code finish}. Both transports decode it before reading again, so
+ * the common path never copies; anything that keeps the raw line longer must take {@link #detach()}.</p>
+ */
+final class InboundLine {
+    private static final byte[] EMPTY = new byte[0];
+
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+    private final WireEncoding encoding;
+    private final long oversizedLength;
+
+    private InboundLine(byte[] bytes, int offset, int length, WireEncoding encoding, long oversizedLength) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        this.encoding = encoding;
+        this.oversizedLength = oversizedLength;
+    }
+
+    /** View of {@code source[offset, offset + length)}; the caller keeps ownership of the array. */
+    static InboundLine slice(byte[] source, int offset, int length, WireEncoding encoding) {
+        return new InboundLine(source, offset, length, encoding, -1);
+    }
+
+    static InboundLine oversized(long length, WireEncoding encoding) {
+        return new InboundLine(EMPTY, 0, 0, encoding, length);
+    }
+
+    /** Copy that stays valid after the framer reuses its buffer. */
+    InboundLine detach() {
+        if (isOversized()) {
+            return this;
+        }
+        byte[] copy = new byte[length];
+        System.arraycopy(bytes, offset, copy, 0, length);
+        return new InboundLine(copy, 0, length, encoding, -1);
+    }
+
+    /** Encoding the frame was framed under; decides how {@link #bytes()} is parsed. */
+    WireEncoding encoding() {
+        return encoding;
+    }
+
+    boolean isOversized() {
+        return oversizedLength >= 0;
+    }
+
+    /** Discarded byte count of an oversized line. */
+    long oversizedLength() {
+        return oversizedLength;
+    }
+
+    /** Backing array; the frame is {@code [offset(), offset() + length())}. */
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int offset() {
+        return offset;
+    }
+
+    int length() {
+        return length;
+    }
+
+    /** Decoded form for logs and tests; the dispatch path parses {@link #bytes()} directly. */
+    String text() {
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+}
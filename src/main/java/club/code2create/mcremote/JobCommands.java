@@ -0,0 +1,62 @@
+package club.code2create.mcremote;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * job.status / job.cancel for background fills started by {@code world.setBlocks} with
+ * {@code {"job": true}}. Both take {@code [job_id]} and answer
+ * {@code {"job_id", "state", "written", "volume", "changed"}} ({@code changed} is null unless
+ * the fill was started with {@code "diff": true}); a job's end is also published as a
+ * {@code job_finished} event.
+ */
+final class JobCommands {
+    private final RemoteSession session;
+    private final BlockJobs jobs;
+
+    JobCommands(RemoteSession session, BlockJobs jobs) {
+        this.session = session;
+        this.jobs = jobs;
+    }
+
+    void handleStatus(JsonElement params) {
+        Long id = jobId(params);
+        if (id == null) {
+            return;
+        }
+        respond(jobs.find(id), id);
+    }
+
+    void handleCancel(JsonElement params) {
+        Long id = jobId(params);
+        if (id == null) {
+            return;
+        }
+        respond(jobs.cancel(id, session::publishJobFinished), id);
+    }
+
+    private Long jobId(JsonElement params) {
+        try {
+            JsonArray args = WireParams.positional(params, 1);
+            return WireParams.longInteger(args, 0);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("path", "params[0]");
+            session.respondError(-32602, "invalid_params", data);
+            return null;
+        }
+    }
+
+    private void respond(BlockJobs.Job job, long id) {
+        if (job == null) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("job_id", id);
+            session.respondError(-32000, "job_not_found", data);
+            return;
+        }
+        session.respondResult(job.status());
+    }
+}
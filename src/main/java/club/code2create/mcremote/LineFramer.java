@@ -0,0 +1,275 @@
+package club.code2create.mcremote;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Splits a connection's byte stream into frames inside one reused read buffer.
+ *
+ * <p>JSON connections are split on {@code \n}; after hello negotiates a binary
+ * {@link WireEncoding} or compression, frames are read by their 4-byte length prefix instead, and
+ * frames flagged {@link FrameDeflater#COMPRESSED_FLAG} are inflated here, off the main thread,
+ * through the connection's single inbound DEFLATE stream. The buffer starts
+ * small and grows only up to {@code maxLineBytes} plus the prefix, so a peer that never sends a
+ * newline costs at most one bounded buffer instead of an unbounded {@code StringBuilder}. A frame
+ * that does not fit is skipped and reported as {@link InboundLine#oversized}. Returned frames are
+ * views into the reused buffers and stay valid only until the next {@code read}, {@code next} or
+ * {@code finish}. Not thread-safe apart from {@link #switchTo}; owned by the connection's reader.</p>
+ */
+final class LineFramer {
+    static final int DEFAULT_MAX_LINE_BYTES = 1024 * 1024;
+    private static final int INITIAL_BUFFER_BYTES = 8_192;
+
+    private final int maxLineBytes;
+    private byte[] buffer;
+    private ByteBuffer view;
+    // [start, end) が未処理バイト、scan までは \n 無しと確認済み。
+    private int start;
+    private int end;
+    private int scan;
+    // 上限超過フレームを読み捨て中なら、そのフレームで既に捨てたバイト数（それ以外は -1）。
+    private long discarded = -1;
+    // binary で上限超過と分かっているフレームの残り読み捨てバイト数。
+    private long skipRemaining;
+    // main thread が hello 応答を積む前に切り替える。
+    private volatile Format format = Format.JSON_LINES;
+    private byte[] inflated = new byte[0];
+
+    /** Inbound format; {@code inflater} is non-null once compression is negotiated. */
+    private record Format(WireEncoding encoding, Inflater inflater) {
+        static final Format JSON_LINES = new Format(WireEncoding.JSON, null);
+
+        boolean prefixed() {
+            return encoding != WireEncoding.JSON || inflater != null;
+        }
+    }
+
+    LineFramer(int maxLineBytes) {
+        if (maxLineBytes < 1) {
+            throw new IllegalArgumentException("maxLineBytes must be positive");
+        }
+        this.maxLineBytes = maxLineBytes;
+        this.buffer = new byte[Math.min(INITIAL_BUFFER_BYTES, capacityLimit())];
+        this.view = ByteBuffer.wrap(buffer);
+    }
+
+    void switchTo(WireEncoding next) {
+        switchTo(next, false);
+    }
+
+    void switchTo(WireEncoding next, boolean inflate) {
+        format = new Format(next, inflate ? new Inflater(true) : null);
+    }
+
+    /** Blocking read of whatever the stream has; returns the byte count or -1 at EOF. */
+    int read(InputStream in) throws IOException {
+        makeRoom();
+        int read = in.read(buffer, end, buffer.length - end);
+        if (read > 0) {
+            end += read;
+        }
+        return read;
+    }
+
+    /** Channel read for event-loop readers; returns the byte count, 0 if none ready, or -1 at EOF. */
+    int read(ReadableByteChannel channel) throws IOException {
+        makeRoom();
+        view.limit(buffer.length).position(end);
+        int read = channel.read(view);
+        if (read > 0) {
+            end += read;
+        }
+        return read;
+    }
+
+    /**
+     * Next complete frame in the buffer, or {@code null} until more bytes arrive.
+     *
+     * @throws ZipException when the inbound DEFLATE stream is corrupt; the connection cannot recover
+     */
+    InboundLine next() throws ZipException {
+        Format current = format;
+        return current.prefixed() ? nextPrefixed(current) : nextLine();
+    }
+
+    private InboundLine nextLine() {
+        for (int i = scan; i < end; i++) {
+            if (buffer[i] == '\n') {
+                int length = lineLength(start, i);
+                InboundLine line;
+                if (discarded >= 0) {
+                    line = InboundLine.oversized(discarded + (i - start), WireEncoding.JSON);
+                } else if (length > maxLineBytes) {
+                    // 1回の read で改行まで届いた上限超過行（buffer は上限＋prefix 分まで育つ）。
+                    line = InboundLine.oversized(length, WireEncoding.JSON);
+                } else {
+                    line = InboundLine.slice(buffer, start, length, WireEncoding.JSON);
+                }
+                discarded = -1;
+                start = i + 1;
+                scan = start;
+                return line;
+            }
+        }
+        scan = end;
+        if (end - start > maxLineBytes) {
+            discarded = Math.max(discarded, 0) + (end - start);
+            reset();
+        }
+        return null;
+    }
+
+    private InboundLine nextPrefixed(Format current) throws ZipException {
+        if (skipRemaining > 0) {
+            int skipped = (int) Math.min(skipRemaining, end - start);
+            start += skipped;
+            skipRemaining -= skipped;
+            if (skipRemaining > 0) {
+                reset();
+                return null;
+            }
+            long length = discarded;
+            discarded = -1;
+            scan = start;
+            return InboundLine.oversized(length, current.encoding());
+        }
+        if (end - start < WireEncoding.LENGTH_PREFIX_BYTES) {
+            scan = start;
+            return null;
+        }
+        int word = ((buffer[start] & 0xff) << 24) | ((buffer[start + 1] & 0xff) << 16)
+                | ((buffer[start + 2] & 0xff) << 8) | (buffer[start + 3] & 0xff);
+        boolean compressed = (word & FrameDeflater.COMPRESSED_FLAG) != 0;
+        long length = word & ~FrameDeflater.COMPRESSED_FLAG;
+        if (compressed && current.inflater() == null) {
+            throw new ZipException("compressed frame without negotiated compression");
+        }
+        if (length > maxLineBytes) {
+            if (compressed) {
+                // 読み捨てると inflate の履歴が欠けて以降のフレームを復元できない。
+                throw new ZipException("compressed frame exceeds " + maxLineBytes + " bytes");
+            }
+            start += WireEncoding.LENGTH_PREFIX_BYTES;
+            discarded = length;
+            skipRemaining = length;
+            return nextPrefixed(current);
+        }
+        int frameEnd = start + WireEncoding.LENGTH_PREFIX_BYTES + (int) length;
+        if (frameEnd > end) {
+            scan = start;
+            return null;
+        }
+        int payloadStart = start + WireEncoding.LENGTH_PREFIX_BYTES;
+        start = frameEnd;
+        scan = start;
+        return compressed
+                ? inflate(current, payloadStart, (int) length)
+                : InboundLine.slice(buffer, payloadStart, (int) length, current.encoding());
+    }
+
+    /** Inflates one sync-flushed frame; output beyond the line limit is drained and reported oversized. */
+    private InboundLine inflate(Format current, int offset, int length) throws ZipException {
+        Inflater inflater = current.inflater();
+        inflater.setInput(buffer, offset, length);
+        int size = 0;
+        long total = 0;
+        try {
+            while (true) {
+                if (size == inflated.length) {
+                    if (inflated.length > maxLineBytes) {
+                        // 上限超過：履歴を保つため最後まで inflate し、中身は捨てる。
+                        total += size;
+                        size = 0;
+                    } else {
+                        inflated = Arrays.copyOf(inflated,
+                                (int) Math.min((long) maxLineBytes + 1, Math.max(1_024L, inflated.length * 2L)));
+                    }
+                }
+                int read = inflater.inflate(inflated, size, inflated.length - size);
+                size += read;
+                if (read == 0 && (inflater.needsInput() || inflater.finished())) {
+                    break;
+                }
+                if (read == 0 && inflater.needsDictionary()) {
+                    throw new ZipException("unexpected DEFLATE dictionary request");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException("corrupt compressed frame: " + e.getMessage());
+        }
+        total += size;
+        if (total > maxLineBytes) {
+            return InboundLine.oversized(total, current.encoding());
+        }
+        return InboundLine.slice(inflated, 0, size, current.encoding());
+    }
+
+    /**
+     * BufferedReader.readLine と同じく、EOF 直前の改行無し最終行も1行として返す。
+     * binary の途中で切れたフレームは要求として成立しないので捨てる。
+     */
+    InboundLine finish() {
+        WireEncoding current = format.prefixed() ? null : WireEncoding.JSON;
+        InboundLine line = null;
+        if (discarded >= 0) {
+            line = current == WireEncoding.JSON
+                    ? InboundLine.oversized(discarded + (end - start), current)
+                    : InboundLine.oversized(discarded, format.encoding());
+        } else if (end > start && current == WireEncoding.JSON) {
+            int length = lineLength(start, end);
+            line = length > maxLineBytes
+                    ? InboundLine.oversized(length, current)
+                    : InboundLine.slice(buffer, start, length, current);
+        }
+        discarded = -1;
+        skipRemaining = 0;
+        reset();
+        Inflater inflater = format.inflater();
+        if (inflater != null) {
+            inflater.end();
+        }
+        return line;
+    }
+
+    private int lineLength(int from, int newline) {
+        int length = newline - from;
+        if (length > 0 && buffer[newline - 1] == '\r') {
+            length--;
+        }
+        return length;
+    }
+
+    private void reset() {
+        start = 0;
+        end = 0;
+        scan = 0;
+    }
+
+    private int capacityLimit() {
+        return (int) Math.min(Integer.MAX_VALUE - 8L, (long) maxLineBytes + WireEncoding.LENGTH_PREFIX_BYTES);
+    }
+
+    private void makeRoom() {
+        if (end < buffer.length) {
+            return;
+        }
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            scan -= start;
+            start = 0;
+            return;
+        }
+        // next() が上限超過を先に捌くので、ここでの拡張は上限（最大フレーム＋長さ prefix）を超えない。
+        byte[] grown = new byte[(int) Math.min(capacityLimit(), (long) buffer.length * 2)];
+        System.arraycopy(buffer, 0, grown, 0, end);
+        buffer = grown;
+        view = ByteBuffer.wrap(buffer);
+    }
+}
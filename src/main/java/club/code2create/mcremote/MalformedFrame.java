@@ -0,0 +1,14 @@
+package club.code2create.mcremote;
+
+/**
+ * reader 側で JSON-RPC として受理できなかったフレーム。破棄／切断の判断（hello 前は切断）は
+ * 従来どおり main thread が FIFO 順に行うので、キューにはこの印を理由付きで積む。
+ *
+ * @param reason ログに出す不正理由
+ * @param id     batch 要素で id だけは読めたときの id（エラー応答の相関キー）。それ以外は null
+ */
+record MalformedFrame(String reason, Integer id) implements ParsedFrame {
+    MalformedFrame(String reason) {
+        this(reason, null);
+    }
+}
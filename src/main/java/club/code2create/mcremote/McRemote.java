@@ -22,9 +22,11 @@ import org.jspecify.annotations.NullMarked;
 
 import java.io.*;
 import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 public class McRemote extends JavaPlugin implements Listener {
@@ -48,8 +50,20 @@ public class McRemote extends JavaPlugin implements Listener {
     private int maxSessionsPerUuid;
     // b3 resource catalog は registry が確立した plugin enable 時に一度だけ生成し、全 session で共有する。
     private CatalogService catalogService;
+    // method 名→opcode の共有表。enable 時に1度だけ組み、全 session が参照する。
+    private CommandRegistry<SessionCommands> commandRegistry;
     private B5RuntimePolicy b5RuntimePolicy;
     private WorkAdmission workAdmission;
+    // BlockSpec decode の正準 state 文字列→BlockData。全 session の reader で共有する LRU。
+    private BlockDataCache blockDataCache;
+    // 逆方向（BlockData→BlockValue JSON）。main thread の読み取りとイベント捕捉で共有する。
+    private BlockValueCache blockValueCache;
+    // 全 session で共有する1 tick あたりの主スレッド時間。開始 session を回し、使い過ぎは次 tick の負債にする。
+    private TickScheduler tickScheduler;
+    private TransportPolicy transportPolicy;
+    // api_transport: selector のときだけ生成。threads モードでは null。
+    private SelectorTransport selectorTransport;
+    private final TransportStats transportStats = new TransportStats();
 
     @Override
     public void onEnable(){
@@ -79,9 +93,18 @@ public class McRemote extends JavaPlugin implements Listener {
                 + " (" + credentialService.healthDetail() + ")");
         this.tokenStore = new TokenStore(credentialService);
         this.pairingManager = new PairingManager(tokenStore, pairCodeTtl, sessionTokenTtl);
-        this.catalogService = new CatalogService();
+        this.transportPolicy = TransportPolicy.from(config);
+        this.catalogService = new CatalogService(transportPolicy.compression());
+        this.commandRegistry = new RemoteCommandRegistrar().createRegistry();
         this.b5RuntimePolicy = B5RuntimePolicy.from(config);
-        this.workAdmission = new WorkAdmission(b5RuntimePolicy);
+        AdaptiveWorkPolicy adaptiveWork = AdaptiveWorkPolicy.from(config);
+        this.workAdmission = new WorkAdmission(b5RuntimePolicy, adaptiveWork);
+        this.blockDataCache = new BlockDataCache(b5RuntimePolicy.blockDataCacheSize());
+        this.blockValueCache = new BlockValueCache(b5RuntimePolicy.blockValueCacheSize());
+        logger.info("Adaptive work budget: " + adaptiveWork.enabled());
+        this.tickScheduler = new TickScheduler(
+                TimeUnit.MICROSECONDS.toNanos(b5RuntimePolicy.tickBudgetMicros()), System::nanoTime);
+        logger.info("Tick budget: " + b5RuntimePolicy.tickBudgetMicros() + " us");
         logger.info("b5 connection command queue capacity: "
                 + b5RuntimePolicy.connectionQueueCapacity());
         logger.info("Resource catalog ready: blocks=" + catalogService.getBlockCount()
@@ -119,14 +142,28 @@ public class McRemote extends JavaPlugin implements Listener {
         // 認証・認可の依存を全て初期化してから socket を公開する。
         int port = config.getInt("api_port");
         try {
-            serverThread = new ServerListenerThread(this, new InetSocketAddress(port));
-            new Thread(serverThread).start();
-            logger.info("Server started at port " + port);
+            boolean selectorMode = transportPolicy.mode() == TransportPolicy.Mode.SELECTOR;
+            if (selectorMode) {
+                selectorTransport = new SelectorTransport(transportPolicy, transportStats);
+            }
+            if (transportPolicy.mode() == TransportPolicy.Mode.VIRTUAL) {
+                transportStats.watchVirtualThreadPinning();
+            }
+            serverThread = new ServerListenerThread(this, new InetSocketAddress(port), selectorMode);
+            transportPolicy.ioThreads().newThread(serverThread).start();
+            logger.info("Server started at port " + port + " (transport "
+                    + transportPolicy.mode().name().toLowerCase(Locale.ROOT)
+                    + (selectorMode ? ", loops=" + selectorTransport.loopCount() : "") + ")");
         } catch (Exception e) {
             StringWriter sw = new StringWriter();
             e.printStackTrace(new PrintWriter(sw));
             logger.warning(sw.toString());
             logger.warning("Failed to start Server");
+            if (selectorTransport != null) {
+                selectorTransport.close();
+                selectorTransport = null;
+            }
+            transportStats.close();
             return;
         }
 
@@ -206,6 +243,11 @@ public class McRemote extends JavaPlugin implements Listener {
             }
             serverThread = null;
         }
+        if (selectorTransport != null) {
+            selectorTransport.close();
+            selectorTransport = null;
+        }
+        transportStats.close();
     }
 
     public int getDefaultBuildRange() {
@@ -230,6 +272,11 @@ public class McRemote extends JavaPlugin implements Listener {
         return credentialService;
     }
 
+    /** method 名→opcode の共有表（plugin enable 時に1度だけ組む）。 */
+    CommandRegistry<SessionCommands> getCommandRegistry() {
+        return commandRegistry;
+    }
+
     /** b3 resource catalog snapshot（plugin enable 時に生成、全 session 共通）。 */
     public CatalogService getCatalogService() {
         return this.catalogService;
@@ -239,10 +286,57 @@ public class McRemote extends JavaPlugin implements Listener {
         return b5RuntimePolicy;
     }
 
+    BlockDataCache getBlockDataCache() {
+        return blockDataCache;
+    }
+
+    BlockValueCache getBlockValueCache() {
+        return blockValueCache;
+    }
+
     WorkAdmission getWorkAdmission() {
         return workAdmission;
     }
 
+    TransportPolicy getTransportPolicy() {
+        return transportPolicy;
+    }
+
+    /** 接続ごとの I/O 実装を api_transport に従って選ぶ（既定は threads）。 */
+    <R> ConnectionTransport openTransport(ConnectionTransportContext<R> context, Socket socket) throws IOException {
+        if (selectorTransport != null) {
+            return selectorTransport.open(context, socket.getChannel());
+        }
+        return new ThreadedConnectionTransport<>(context, socket, transportPolicy, transportStats);
+    }
+
+    /** {@code /mcremote stats} 用の 1 行サマリ。 */
+    String transportStatus() {
+        if (transportPolicy == null) {
+            return "transport not started";
+        }
+        TransportPolicy.Mode mode = transportPolicy.mode();
+        StringBuilder sb = new StringBuilder("transport ").append(mode.name().toLowerCase(Locale.ROOT))
+                .append(": sessions=").append(sessions.size());
+        if (selectorTransport != null) {
+            sb.append(", loops=").append(selectorTransport.loopCount());
+        }
+        sb.append(", ").append(transportStats.describe(mode));
+        if (workAdmission != null) {
+            sb.append("; ").append(workAdmission.describe());
+        }
+        if (tickScheduler != null) {
+            sb.append("; ").append(tickScheduler.describe(Bukkit.getAverageTickTime()));
+        }
+        if (blockDataCache != null) {
+            sb.append("; ").append(blockDataCache.describe());
+        }
+        if (blockValueCache != null) {
+            sb.append("; ").append(blockValueCache.describe());
+        }
+        return sb.toString();
+    }
+
     /** enforcement トグル（§10.11.1 item5）。ON で hello が token 必須になる（次ステップで参照）。 */
     public boolean isAuthEnforcement() {
         return this.authEnforcement;
@@ -286,17 +380,18 @@ public class McRemote extends JavaPlugin implements Listener {
     private class TickHandler implements Runnable {
         @Override
         public void run() {
-            workAdmission.beginTick();
+            workAdmission.beginTick(Bukkit.getAverageTickTime());
             // CopyOnWriteArrayList の反復は snapshot。要素除去はリスト側 remove(Object) で行う
             // （snapshot iterator は remove() 非対応）。RemoteSession は equals 未override＝同一性判定。
             for (RemoteSession s : sessions) {
                 if (s.pendingRemoval) {
                     s.close();
                     sessions.remove(s);
-                } else {
-                    s.tick();
+                    tickScheduler.forget(s);
                 }
             }
+            // リスト順に処理すると先頭の session が後ろを飢えさせるため、共有予算の中で公平に回す。
+            tickScheduler.runTick(sessions);
         }
     }
 
@@ -324,7 +419,7 @@ public class McRemote extends JavaPlugin implements Listener {
                             clicked.getY() - origin.getBlockY(),
                             clicked.getZ() - origin.getBlockZ()),
                     event.getBlockFace().name().toLowerCase(Locale.ROOT),
-                    BlockCodec.encode(clicked.getBlockData()),
+                    blockValueCache.encode(clicked.getBlockData()),
                     hand == EquipmentSlot.OFF_HAND ? "off" : "main"));
         }
     }
@@ -358,7 +453,7 @@ public class McRemote extends JavaPlugin implements Listener {
         if (event.getHitBlock() != null) {
             Block block = event.getHitBlock();
             target.put("kind", "block");
-            target.put("block", BlockCodec.encode(block.getBlockData()));
+            target.put("block", blockValueCache.encode(block.getBlockData()));
             target.put("pos", List.of(
                     block.getX() - origin.getBlockX(),
                     block.getY() - origin.getBlockY(),
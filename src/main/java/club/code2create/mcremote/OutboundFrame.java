@@ -0,0 +1,47 @@
+package club.code2create.mcremote;
+
+/**
+ * One queued response frame: wire-ready bytes, or a payload the connection's writer still has to
+ * compress.
+ *
+ * <p>After hello negotiates {@code compression: "deflate"} the main thread only serializes; the
+ * writer calls {@link #encode} while draining. A connection's frames are drained one at a time in
+ * queue order by its single writer, so the per-connection DEFLATE stream still sees them in wire
+ * order.</p>
+ */
+final class OutboundFrame {
+    private final byte[] bytes;
+    private final FrameDeflater deflater;
+    private final RawJson fragment;
+    private final byte[] tail;
+
+    private OutboundFrame(byte[] bytes, FrameDeflater deflater, RawJson fragment, byte[] tail) {
+        this.bytes = bytes;
+        this.deflater = deflater;
+        this.fragment = fragment;
+        this.tail = tail;
+    }
+
+    /** A frame that goes out as is (line-framed JSON, a CBOR frame, or an uncompressed connection). */
+    static OutboundFrame ready(byte[] frame) {
+        return new OutboundFrame(frame, null, null, null);
+    }
+
+    /** {@code payload} through the connection's {@link FrameDeflater#frame}. */
+    static OutboundFrame deflated(FrameDeflater deflater, byte[] payload) {
+        return new OutboundFrame(payload, deflater, null, null);
+    }
+
+    /** {@code head + fragment + tail} through {@link FrameDeflater#spliced}. */
+    static OutboundFrame spliced(FrameDeflater deflater, byte[] head, RawJson fragment, byte[] tail) {
+        return new OutboundFrame(head, deflater, fragment, tail);
+    }
+
+    /** Wire bytes of this frame. Writer only: compressing advances the connection's stream. */
+    byte[] encode() {
+        if (deflater == null) {
+            return bytes;
+        }
+        return fragment == null ? deflater.frame(bytes) : deflater.spliced(bytes, fragment, tail);
+    }
+}
@@ -4,6 +4,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabExecutor;
@@ -28,7 +31,7 @@ import net.kyori.adventure.text.Component;
 @NullMarked
 public class PairCommand implements TabExecutor {
     private static final String USAGE =
-            "Usage: /mcremote pair <code> | credential status|bootstrap|reset CONFIRM-RESET-ALL-CREDENTIALS";
+            "Usage: /mcremote pair <code> | credential status|bootstrap|reset CONFIRM-RESET-ALL-CREDENTIALS | stats | bench fill|encode [rounds]";
 
     private final McRemote plugin;
     private final PairingManager pairingManager;
@@ -46,6 +49,12 @@ public class PairCommand implements TabExecutor {
         if (args.length >= 1 && "credential".equalsIgnoreCase(args[0])) {
             return handleCredentialAdmin(sender, args);
         }
+        if (args.length >= 1 && "stats".equalsIgnoreCase(args[0])) {
+            return handleStats(sender);
+        }
+        if (args.length >= 1 && "bench".equalsIgnoreCase(args[0])) {
+            return handleBench(sender, args);
+        }
         if (args.length < 1 || !"pair".equalsIgnoreCase(args[0])) {
             sender.sendMessage(Component.text(USAGE));
             return true;
@@ -84,7 +93,7 @@ public class PairCommand implements TabExecutor {
     public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
         if (args.length == 1) {
             List<String> roots = sender.hasPermission("mcremote.admin")
-                    ? List.of("pair", "credential") : List.of("pair");
+                    ? List.of("pair", "credential", "stats", "bench") : List.of("pair");
             return StringUtil.copyPartialMatches(args[0], roots, new ArrayList<>());
         }
         if (args.length == 2 && "credential".equalsIgnoreCase(args[0])
@@ -92,10 +101,82 @@ public class PairCommand implements TabExecutor {
             return StringUtil.copyPartialMatches(
                     args[1], List.of("status", "bootstrap", "reset"), new ArrayList<>());
         }
+        if (args.length == 2 && "bench".equalsIgnoreCase(args[0])
+                && sender.hasPermission("mcremote.admin")) {
+            return StringUtil.copyPartialMatches(args[1], List.of("fill", "encode"), new ArrayList<>());
+        }
         // コード欄（args[1]）：秘密ゆえ提案しない＋既定のプレイヤー名補完を抑止するため空を返す。
         return Collections.emptyList();
     }
 
+    /** 運用向け実行時統計（transport のスレッド数・carrier pinning など）。 */
+    private boolean handleStats(CommandSender sender) {
+        if (!sender.hasPermission("mcremote.admin")) {
+            sender.sendMessage(Component.text("Permission denied: mcremote.admin"));
+            return true;
+        }
+        sender.sendMessage(Component.text(plugin.transportStatus()));
+        return true;
+    }
+
+    /**
+     * 実サーバ上の計測（{@link ServerBench}）。main thread で同期実行し、その間 tick は止まる。
+     * player が打てばその位置の周り、console なら最初の world の原点付近（encode は海面の高さ）で測る。
+     */
+    private boolean handleBench(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("mcremote.admin")) {
+            sender.sendMessage(Component.text("Permission denied: mcremote.admin"));
+            return true;
+        }
+        boolean fill = args.length >= 2 && "fill".equalsIgnoreCase(args[1]);
+        boolean encode = args.length >= 2 && "encode".equalsIgnoreCase(args[1]);
+        if (args.length > 3 || !(fill || encode)) {
+            sender.sendMessage(Component.text(USAGE));
+            return true;
+        }
+        int rounds = ServerBench.DEFAULT_ROUNDS;
+        if (args.length == 3) {
+            try {
+                rounds = Integer.parseInt(args[2]);
+            } catch (NumberFormatException e) {
+                rounds = 0;
+            }
+            if (rounds < 1 || rounds > ServerBench.MAX_ROUNDS) {
+                sender.sendMessage(Component.text("rounds must be 1.." + ServerBench.MAX_ROUNDS));
+                return true;
+            }
+        }
+        World world;
+        int originX = 0;
+        int originY;
+        int originZ = 0;
+        if (sender instanceof Player player) {
+            world = player.getWorld();
+            originX = player.getLocation().getBlockX();
+            originY = player.getLocation().getBlockY();
+            originZ = player.getLocation().getBlockZ();
+        } else {
+            world = Bukkit.getWorlds().get(0);
+            originY = world.getSeaLevel();
+        }
+        if (encode) {
+            BlockData[] blocks = ServerBench.sample(world, originX, originY, originZ, ServerBench.ENCODE_SAMPLE_SIZE);
+            sender.sendMessage(Component.text("bench encode: " + rounds + " rounds over the blocks around "
+                    + originX + "," + originY + "," + originZ + " (the tick stalls until it finishes)"));
+            int capacity = plugin.getB5RuntimePolicy().blockValueCacheSize();
+            sender.sendMessage(Component.text(ServerBench.encode(blocks, capacity, rounds).describe()));
+            return true;
+        }
+        sender.sendMessage(Component.text("bench fill: " + rounds + " rounds in " + world.getName()
+                + " below y=" + world.getMaxHeight() + " (the tick stalls until it finishes)"));
+        BlockData glass = Bukkit.createBlockData("minecraft:glass");
+        for (ServerBench.FillResult result
+                : ServerBench.fill(world, originX, originZ, glass, ServerBench.FILL_SHAPES, rounds)) {
+            sender.sendMessage(Component.text(result.describe()));
+        }
+        return true;
+    }
+
     private boolean handleCredentialAdmin(CommandSender sender, String[] args) {
         if (!sender.hasPermission("mcremote.admin")) {
             sender.sendMessage(Component.text("Permission denied: mcremote.admin"));
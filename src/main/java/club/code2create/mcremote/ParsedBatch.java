@@ -0,0 +1,39 @@
+package club.code2create.mcremote;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JSON-RPC 2.0 batch（1フレームの要求配列）。要素は配列順に同一 tick 内で実行し、
+ * 応答は notification を除いて1つの配列フレームにまとめて返す。
+ *
+ * @param elements 配列順の要素。有効なら {@link ParsedCommand}、不正なら {@link MalformedFrame}
+ *                 （id が読めた不正要素にはその位置で invalid_request を返し、読めなければ応答せず破棄する）
+ */
+public record ParsedBatch(List<ParsedFrame> elements) implements ParsedFrame {
+    public ParsedBatch {
+        elements = List.copyOf(elements);
+    }
+
+    /** 有効な要素（配列順）。 */
+    public List<ParsedCommand> commands() {
+        List<ParsedCommand> commands = new ArrayList<>(elements.size());
+        for (ParsedFrame element : elements) {
+            if (element instanceof ParsedCommand command) {
+                commands.add(command);
+            }
+        }
+        return commands;
+    }
+
+    /** 不正な要素（配列順）。 */
+    List<MalformedFrame> rejected() {
+        List<MalformedFrame> rejected = new ArrayList<>();
+        for (ParsedFrame element : elements) {
+            if (element instanceof MalformedFrame malformed) {
+                rejected.add(malformed);
+            }
+        }
+        return rejected;
+    }
+}
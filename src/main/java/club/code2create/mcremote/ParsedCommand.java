@@ -9,11 +9,14 @@ import com.google.gson.JsonElement;
  *  - id     ＝ クライアント採番の連番。null は notification（§3.2 応答不要）
  *  - params ＝ 生の params（配列／object）。hello のみ object（§6）なのでここから読む
  */
-public class ParsedCommand {
+public class ParsedCommand implements ParsedFrame {
     private final String name;
     private final String[] args;
     private final Integer id;
     private final JsonElement params;
+    // reader 側で解決した opcode と params 検証の結果（PreparedParams）。FIFO 経由で main thread に渡る。
+    private int opcode = CommandRegistry.UNKNOWN;
+    private Object prepared;
 
     public ParsedCommand(String name, String[] args) {
         this(name, args, null, null);
@@ -47,4 +50,22 @@ public class ParsedCommand {
     public JsonElement getParams() {
         return params;
     }
-}
\ No newline at end of file
+
+    void resolveOpcode(int opcode) {
+        this.opcode = opcode;
+    }
+
+    /** 共有 {@link CommandRegistry} の opcode。reader 側で未解決なら {@link CommandRegistry#UNKNOWN}。 */
+    int getOpcode() {
+        return opcode;
+    }
+
+    void attachPrepared(Object prepared) {
+        this.prepared = prepared;
+    }
+
+    /** reader 側で検証済みなら {@link PreparedParams}、未検証なら null。 */
+    Object getPrepared() {
+        return prepared;
+    }
+}
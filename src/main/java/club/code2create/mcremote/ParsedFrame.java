@@ -0,0 +1,8 @@
+package club.code2create.mcremote;
+
+/**
+ * 1フレーム分のパース結果：単発の {@link ParsedCommand} か JSON-RPC batch の {@link ParsedBatch}。
+ * 接続の reader 側でパースしてからコマンド FIFO に積むため、不正フレームは {@link MalformedFrame} になる。
+ */
+public interface ParsedFrame {
+}
@@ -0,0 +1,53 @@
+package club.code2create.mcremote;
+
+import com.google.gson.JsonElement;
+
+/**
+ * Params of one request after the pure validation step that runs on the connection reader.
+ *
+ * <p>A failure is captured instead of thrown, and {@link #get()} rethrows it inside the handler on
+ * the main thread. The handler's own catch blocks therefore still produce the error response, in
+ * FIFO order and only after hello and the build-origin check have passed.</p>
+ *
+ * @param <T> the validated request
+ * @param <E> the checked validation failure the handler already reports
+ */
+final class PreparedParams<T, E extends Exception> {
+    /** Pure params validation: no world, player or session state beyond immutable helpers. */
+    @FunctionalInterface
+    interface Preparer<S, T, E extends Exception> {
+        T prepare(S handlers, JsonElement params) throws E;
+    }
+
+    private final T value;
+    private final Exception failure;
+
+    private PreparedParams(T value, Exception failure) {
+        this.value = value;
+        this.failure = failure;
+    }
+
+    static <S, T, E extends Exception> PreparedParams<T, E> of(
+            Preparer<S, T, E> preparer,
+            S handlers,
+            JsonElement params
+    ) {
+        try {
+            return new PreparedParams<>(preparer.prepare(handlers, params), null);
+        } catch (Exception e) {
+            return new PreparedParams<>(null, e);
+        }
+    }
+
+    /** The validated request, or the exception validation raised. */
+    @SuppressWarnings("unchecked")
+    T get() throws E {
+        if (failure == null) {
+            return value;
+        }
+        if (failure instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        throw (E) failure;
+    }
+}
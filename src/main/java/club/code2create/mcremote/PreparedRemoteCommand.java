@@ -0,0 +1,7 @@
+package club.code2create.mcremote;
+
+/** A structured command whose params were validated before it reached the main thread. */
+@FunctionalInterface
+interface PreparedRemoteCommand<S, T, E extends Exception> {
+    void execute(S handlers, PreparedParams<T, E> params);
+}
@@ -0,0 +1,52 @@
+package club.code2create.mcremote;
+
+/**
+ * A JSON value encoded once and spliced into responses verbatim, such as the resource catalog.
+ *
+ * <p>{@link ResponseWriter} copies {@link #utf8()} in place of serializing {@link #value()}; the value
+ * is kept for encodings that need a tree (CBOR). A precompressed instance also carries a standalone
+ * DEFLATE encoding of the bytes, which {@link FrameDeflater#spliced} drops into a connection's stream
+ * without compressing the value again. The arrays are shared and must not be modified.</p>
+ */
+final class RawJson {
+    private final Object value;
+    private final byte[] utf8;
+    private final byte[] deflated;
+
+    private RawJson(Object value, byte[] utf8, byte[] deflated) {
+        this.value = value;
+        this.utf8 = utf8;
+        this.deflated = deflated;
+    }
+
+    static RawJson of(Object value) {
+        return new RawJson(value, ResponseWriter.encode(value), null);
+    }
+
+    /** Encodes {@code value} and compresses the bytes once for {@code compression: "deflate"} peers. */
+    static RawJson precompressed(Object value) {
+        byte[] utf8 = ResponseWriter.encode(value);
+        return new RawJson(value, utf8, FrameDeflater.precompress(utf8));
+    }
+
+    Object value() {
+        return value;
+    }
+
+    byte[] utf8() {
+        return utf8;
+    }
+
+    int length() {
+        return utf8.length;
+    }
+
+    boolean isPrecompressed() {
+        return deflated != null;
+    }
+
+    /** Sync-flushed raw DEFLATE blocks that only reference their own bytes. */
+    byte[] deflated() {
+        return deflated;
+    }
+}
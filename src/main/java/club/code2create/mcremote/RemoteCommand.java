@@ -1,6 +1,7 @@
 package club.code2create.mcremote;
 
+/** A command bound against one session's handlers {@code S}; receives String-coerced params. */
 @FunctionalInterface
-public interface RemoteCommand {
-    void execute(String[] args);
+public interface RemoteCommand<S> {
+    void execute(S handlers, String[] args);
 }
@@ -1,54 +1,46 @@
 package club.code2create.mcremote;
 
+/** Builds the shared method table once at plugin enable; sessions bind it to their {@link SessionCommands}. */
 public class RemoteCommandRegistrar {
-    public CommandRegistry createRegistry(
-            RemoteSession session,
-            BlockCommands blockCommands,
-            MiscCommands miscCommands,
-            EntityCommands entityCommands,
-            BuildStateCommands buildStateCommands,
-            CatalogCommands catalogCommands,
-            EventCommands eventCommands,
-            WorldB5Commands worldB5Commands
-    ) {
-        CommandRegistry registry = new CommandRegistry();
-        PlayerCommands playerCommands = session.getPlayerCommands();
-        ConnectionCommands connectionCommands = new ConnectionCommands(session);
+    public CommandRegistry<SessionCommands> createRegistry() {
+        CommandRegistry.Builder<SessionCommands> registry = CommandRegistry.builder();
 
-        blockCommands.register(registry);
-        registry.registerStructured("connection.flush", connectionCommands::handleFlush, false);
-        registry.registerStructured("world.spawnParticle", worldB5Commands::handleSpawnParticle);
-        registry.registerStructured("world.getHeight", worldB5Commands::handleGetHeight);
-        registry.register("chat.post", miscCommands::handleChatPost, false); // origin 不要・既定 send-only
-        registry.registerStructured("world.spawnEntity", worldB5Commands::handleSpawnEntity);
-        registerB5EventCommands(registry, eventCommands);
+        BlockCommands.register(registry);
+        registry.registerStructured("connection.flush", (c, params) -> c.connection().handleFlush(params), false);
+        registry.registerStructured("job.status", (c, params) -> c.jobs().handleStatus(params), false);
+        registry.registerStructured("job.cancel", (c, params) -> c.jobs().handleCancel(params), false);
+        registry.registerStructured("world.spawnParticle", (c, params) -> c.world().handleSpawnParticle(params));
+        registry.registerStructured("world.getHeight", (c, params) -> c.world().handleGetHeight(params));
+        registry.register("chat.post", (c, args) -> c.misc().handleChatPost(args), false); // origin 不要・既定 send-only
+        registry.registerStructured("world.spawnEntity", (c, params) -> c.world().handleSpawnEntity(params));
+        registerB5EventCommands(registry);
         registry.register("world.getNearbyEntities",
-                args -> entityCommands.handleGetNearbyEntities(session.getOrigin().getWorld(), args));
-        registry.register("entity.getPos", args -> entityCommands.handleEntityCommands("entity.getPos", args));
-        registry.register("entity.setPos", args -> entityCommands.handleEntityCommands("entity.setPos", args));
-        registry.register("entity.getRotation", args -> entityCommands.handleEntityCommands("entity.getRotation", args));
-        registry.register("entity.setRotation", args -> entityCommands.handleEntityCommands("entity.setRotation", args));
-        registry.register("entity.getPitch", args -> entityCommands.handleEntityCommands("entity.getPitch", args));
-        registry.register("entity.setPitch", args -> entityCommands.handleEntityCommands("entity.setPitch", args));
-        registry.register("entity.getYaw", args -> entityCommands.handleEntityCommands("entity.getYaw", args));
-        registry.register("entity.setYaw", args -> entityCommands.handleEntityCommands("entity.setYaw", args));
-        registry.register("entity.remove", args -> entityCommands.handleEntityCommands("entity.remove", args));
-        registry.registerStructured("player.getPos", playerCommands::handleGetPosStructured);
-        registry.registerStructured("player.setPos", playerCommands::handleSetPosStructured);
-        registry.registerStructured("player.getPose", playerCommands::handleGetPoseStructured);
-        registry.registerStructured("player.setPose", playerCommands::handleSetPoseStructured);
-        registry.register("catalog.get", catalogCommands::handleGet, false);
+                (c, args) -> c.entity().handleGetNearbyEntities(c.session().getOrigin().getWorld(), args));
+        registry.register("entity.getPos", (c, args) -> c.entity().handleGetPos(args));
+        registry.register("entity.setPos", (c, args) -> c.entity().handleSetPos(args));
+        registry.register("entity.getRotation", (c, args) -> c.entity().handleGetRotation(args));
+        registry.register("entity.setRotation", (c, args) -> c.entity().handleSetRotation(args));
+        registry.register("entity.getPitch", (c, args) -> c.entity().handleGetPitch(args));
+        registry.register("entity.setPitch", (c, args) -> c.entity().handleSetPitch(args));
+        registry.register("entity.getYaw", (c, args) -> c.entity().handleGetYaw(args));
+        registry.register("entity.setYaw", (c, args) -> c.entity().handleSetYaw(args));
+        registry.register("entity.remove", (c, args) -> c.entity().handleRemove(args));
+        registry.registerStructured("player.getPos", (c, params) -> c.player().handleGetPosStructured(params));
+        registry.registerStructured("player.setPos", (c, params) -> c.player().handleSetPosStructured(params));
+        registry.registerStructured("player.getPose", (c, params) -> c.player().handleGetPoseStructured(params));
+        registry.registerStructured("player.setPose", (c, params) -> c.player().handleSetPoseStructured(params));
+        registry.registerStructured("catalog.get", (c, params) -> c.catalog().handleGet(params), false);
 
         // Build state (identity から分離) — origin/world をプレイヤー非依存で設定。
         // ワイヤ method は build.* 名前空間（wire-format-design §5.1, DECISIONS 2026-06-26-04）。
-        registry.register("build.setWorld", buildStateCommands::handleSetWorld, false);
-        registry.register("build.setOrigin", buildStateCommands::handleSetBuildOrigin, false);
+        registry.register("build.setWorld", (c, args) -> c.buildState().handleSetWorld(args), false);
+        registry.register("build.setOrigin", (c, args) -> c.buildState().handleSetBuildOrigin(args), false);
 
-        return registry;
+        return registry.build();
     }
 
-    static void registerB5EventCommands(CommandRegistry registry, EventCommands eventCommands) {
-        registry.registerStructured("events.poll", eventCommands::handlePoll, false);
+    static void registerB5EventCommands(CommandRegistry.Builder<SessionCommands> registry) {
+        registry.registerStructured("events.poll", (c, params) -> c.events().handlePoll(params), false);
         // events.clear and filtered polling remain b6-only and intentionally unregistered in b5.
     }
 }
@@ -2,17 +2,20 @@ package club.code2create.mcremote;
 
 import java.io.*;
 import java.net.Socket;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
 import java.util.logging.Logger;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializer;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.OfflinePlayer;
@@ -20,11 +23,16 @@ import org.bukkit.entity.Player;
 import org.bukkit.entity.Entity;
 import net.kyori.adventure.text.Component;
 
-public class RemoteSession implements CommandDispatchContext {
-    private static final int MAX_COMMANDS_PER_TICK = 1000;
+public class RemoteSession
+        implements CommandDispatchContext, ConnectionTransportContext<ParsedFrame>, TickScheduler.Participant {
+    static final int MAX_COMMANDS_PER_TICK = 1000;
     private static final Logger logger = Logger.getLogger("McR_RemoteSession");
     // world_constants の nullable 値等を出すため serializeNulls（§6.2 フィールド常在）。
-    private static final Gson GSON = new GsonBuilder().serializeNulls().create();
+    // JSON 応答は ResponseWriter が同じ規則で直書きする。ここは CBOR 用の木構築に使う。
+    private static final Gson GSON = new GsonBuilder().serializeNulls()
+            .registerTypeAdapter(RawJson.class,
+                    (JsonSerializer<RawJson>) (raw, type, context) -> context.serialize(raw.value()))
+            .create();
 
     public boolean pendingRemoval = false;
     private Location origin = null;
@@ -32,29 +40,37 @@ public class RemoteSession implements CommandDispatchContext {
     private boolean helloComplete = false;
     // 処理中の要求の JSON-RPC id（応答／エラー封筒の相関キー）。null＝notification。
     private Integer activeId = null;
+    // 実行中の JSON-RPC batch（FIFO 先頭に残したまま deferred から再開する）。無ければ null。
+    private BatchRun batch;
+    // この server tick に処理したコマンド数（batch は要素数）。TickScheduler の全 slice をまたいで数える。
+    private int commandsThisTick;
+    private final BatchRun.Executor batchElements = new BatchElements();
     private Player attachedPlayer = null;
     // hello の auth 検証で束縛した UUID（§6.1/§6.2）。enforcement ON では必須、OFF でも token 提示・解決時に束縛。
     private UUID boundUuid = null;
     private TokenStore.TokenType boundTokenType = null;
     private UUID boundCredentialId = null;
     private final Socket socket;
-    private BufferedReader in;
-    private BufferedWriter out;
-    private Thread inThread;
-    private Thread outThread;
-    private final ConnectionCommandQueue inQueue;
-    private final ConnectionFrameQueue outQueue;
+    private ConnectionTransport transport;
+    private final ConnectionCommandQueue<ParsedFrame> inQueue;
+    private final ConnectionFrameQueue<OutboundFrame> outQueue;
+    // hello で合意した応答の封筒エンコーディング（main thread 専用）。hello 応答自体は常に JSON。
+    private WireEncoding outputEncoding = WireEncoding.JSON;
+    // hello で deflate を合意したときだけ非 null。以降の応答は length-prefixed になる。
+    private FrameDeflater outputDeflater;
+    // JSON 応答の直書きエンコーダ（main thread 専用）。バッファは接続内で使い回す。
+    private final ResponseWriter responseWriter = new ResponseWriter(ResponseWriter.DEFAULT_CAPACITY);
     private volatile boolean running = true;
     private volatile boolean closingAfterFlush = false;
     private final AtomicBoolean closeStarted = new AtomicBoolean(false);
     private final McRemote plugin;
     private final UUID connectionEpoch = UUID.randomUUID();
 
-    // 通知メカニズム用のロックオブジェクト
-    private final Object queueLock = new Object();
-
     private final EventRing eventRing;
     private final EntityHandleRegistry entityHandles;
+    private final BlockPalette blockPalette;
+    // world.setBlocks の job モード。main thread 専用、接続 epoch と共に破棄する。
+    private final BlockJobs blockJobs;
 
     static final int MAX_EVENT_POLL_RESPONSE_BYTES = 61_440;
 
@@ -65,8 +81,9 @@ public class RemoteSession implements CommandDispatchContext {
     private final EntityCommands entityCommands;
     private final BuildStateCommands buildStateCommands;
     private final CatalogCommands catalogCommands;
+    // reader 側（input thread / selector loop）専用。main thread からは触らない。
     private final CommandParser commandParser;
-    private final CommandDispatcher commandDispatcher;
+    private final CommandDispatcher<SessionCommands> commandDispatcher;
     // pre-hello の auth.* 経路（§6.5）。ペアリングは hello の前段ゆえ門番より前に通す。
     private final AuthCommands authCommands;
 
@@ -80,26 +97,30 @@ public class RemoteSession implements CommandDispatchContext {
         this.buildStateCommands = new BuildStateCommands(this);
         this.catalogCommands = new CatalogCommands(this, plugin.getCatalogService());
         B5RuntimePolicy b5Policy = plugin.getB5RuntimePolicy();
-        this.inQueue = new ConnectionCommandQueue(b5Policy.connectionQueueCapacity());
-        this.outQueue = new ConnectionFrameQueue(b5Policy.connectionResponseQueueCapacity());
+        this.inQueue = new ConnectionCommandQueue<>(b5Policy.connectionQueueCapacity());
+        this.outQueue = new ConnectionFrameQueue<>(b5Policy.connectionResponseQueueCapacity());
         this.eventRing = new EventRing(
                 b5Policy.eventRingCapacity(),
                 b5Policy.eventRingBytes(),
                 resultPayloadBudget(Integer.MAX_VALUE, MAX_EVENT_POLL_RESPONSE_BYTES));
         this.entityHandles = new EntityHandleRegistry(b5Policy.entityHandleCapacity());
+        this.blockPalette = new BlockPalette(b5Policy.paletteCapacity());
         EventCommands eventCommands = new EventCommands(
                 this,
                 eventRing,
                 b5Policy.eventPollDefault(),
                 b5Policy.eventPollLimit());
         WorldB5Commands worldB5Commands = new WorldB5Commands(this, entityHandles, b5Policy);
+        this.blockJobs = new BlockJobs(b5Policy.maxJobsPerSession(), b5Policy.maxWorkPerRequest());
         // build state は identity から分離（setPlayer 撤去）。接続時点で既定原点を持たせる
         // （overworld / (200,0,200)）ので、クライアントは setBuildOrigin 無しでも建築できる。
         this.origin = buildStateCommands.defaultOrigin();
         this.commandParser = new CommandParser();
-        this.commandDispatcher = new CommandDispatcher(this, new RemoteCommandRegistrar().createRegistry(
-                this, blockCommands, miscCommands, entityCommands, buildStateCommands, catalogCommands,
-                eventCommands, worldB5Commands));
+        // method 表は enable 時に1度だけ作った共有物。接続ごとには handler 群を束ねるだけ。
+        this.commandDispatcher = new CommandDispatcher<>(this, plugin.getCommandRegistry(), new SessionCommands(
+                this, blockCommands.queries(), blockCommands.edits(), miscCommands, entityCommands, playerCommands,
+                buildStateCommands, catalogCommands, eventCommands, worldB5Commands, new ConnectionCommands(this),
+                new JobCommands(this, blockJobs)));
         this.authCommands = new AuthCommands(
                 this, plugin.getPairingManager(), plugin.getCredentialService());
         init();
@@ -109,17 +130,8 @@ public class RemoteSession implements CommandDispatchContext {
         socket.setTcpNoDelay(true);
         socket.setKeepAlive(true);
         socket.setTrafficClass(0x10);
-        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
-        this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
-        startThreads();
-    }
-
-    private void startThreads() {
-        inThread = new Thread(new InputThread());
-        inThread.start();
-        outThread = new Thread(new OutputThread());
-        outThread.start();
-        logger.info("Started input and output threads.");
+        this.transport = plugin.openTransport(this, socket);
+        transport.start();
     }
 
     public Socket getSocket() {
@@ -144,6 +156,10 @@ public class RemoteSession implements CommandDispatchContext {
 
     public BlockCommands getBlockCommands() { return blockCommands; }
 
+    BlockPalette getBlockPalette() {
+        return blockPalette;
+    }
+
     public boolean isHelloComplete() {
         return helloComplete;
     }
@@ -160,10 +176,56 @@ public class RemoteSession implements CommandDispatchContext {
         return boundCredentialId;
     }
 
-    private CommandOutcome handleLine(String line) {
-        activeId = null;
+    /**
+     * reader 側でのパースと params 検証。結果は FIFO 経由で main thread の {@link #handleFrame} に渡り、
+     * 不正フレームの破棄／切断もそこで FIFO 順に判断する（hello 前の門番は従来どおり）。
+     */
+    @Override
+    public ParsedFrame decode(InboundLine line) {
+        ParsedFrame frame;
+        try {
+            if (line.isOversized()) {
+                throw new IllegalArgumentException("Line exceeds " + plugin.getTransportPolicy().maxLineBytes()
+                        + " bytes (" + line.oversizedLength() + " bytes discarded)");
+            }
+            // line は framer の buffer の view。パース結果は byte 列を保持しないので次の read まででよい。
+            frame = commandParser.parseFrame(line.bytes(), line.offset(), line.length(), line.encoding());
+        } catch (IllegalArgumentException e) {
+            return new MalformedFrame(e.getMessage());
+        }
+        if (frame instanceof ParsedBatch parsedBatch) {
+            for (ParsedCommand command : parsedBatch.commands()) {
+                commandDispatcher.prepare(command);
+            }
+        } else {
+            commandDispatcher.prepare((ParsedCommand) frame);
+        }
+        return frame;
+    }
+
+    private CommandOutcome handleFrame(ParsedFrame frame) {
+        if (batch != null && frame == batch.frame()) {
+            // 前 tick で deferred になった batch の続き。実行済み要素は再実行しない。
+            return runBatch();
+        }
+        if (frame instanceof MalformedFrame malformed) {
+            discardMalformed(malformed.reason());
+            return CommandOutcome.COMPLETED;
+        }
+        if (frame instanceof ParsedBatch parsedBatch) {
+            // hello は単発でのみ受け付ける（batch は門番を通らない）。
+            if (!helloComplete) {
+                discardMalformed("Batch before hello");
+                return CommandOutcome.COMPLETED;
+            }
+            batch = new BatchRun(parsedBatch);
+            return runBatch();
+        }
+        return executeCommand((ParsedCommand) frame);
+    }
+
+    private CommandOutcome executeCommand(ParsedCommand parsed) {
         try {
-            ParsedCommand parsed = commandParser.parse(line);
             // 要求 id を相関キーに据える（応答／エラー封筒で使う。null＝notification）。
             activeId = parsed.getId();
             if (!helloComplete) {
@@ -183,18 +245,67 @@ public class RemoteSession implements CommandDispatchContext {
         } catch (CommandDeferredException e) {
             return CommandOutcome.DEFERRED;
         } catch (IllegalArgumentException e) {
-            // 非 JSON／不正 JSON-RPC 行は破棄（wire-format-design §2）。
-            // hello 前なら門番として切断、確立後は1行捨てて継続（堅牢性）。
-            logger.warning("Discarded malformed line: " + e.getMessage());
-            if (!helloComplete) {
-                close();
-            }
+            discardMalformed(e.getMessage());
             return CommandOutcome.COMPLETED;
         } finally {
             activeId = null;
         }
     }
 
+    private void discardMalformed(String message) {
+        // 非 JSON／不正 JSON-RPC 行は破棄（wire-format-design §2）。
+        // hello 前なら門番として切断、確立後は1行捨てて継続（堅牢性）。
+        logger.warning("Discarded malformed line: " + message);
+        if (!helloComplete) {
+            close();
+        }
+    }
+
+    /**
+     * batch の残り要素を配列順に実行する。work admission で deferred になった要素は FIFO 先頭ごと
+     * 次 tick へ持ち越し、そこから再開する（応答はそれでも1フレーム）。
+     */
+    private CommandOutcome runBatch() {
+        if (!batch.resume(batchElements)) {
+            return CommandOutcome.DEFERRED;
+        }
+        List<Object> responses = batch.takeResponses();
+        batch = null;
+        // 全要素が notification なら何も返さない（JSON-RPC 2.0 §6）。
+        if (!responses.isEmpty()) {
+            enqueueEnvelope(responses);
+        }
+        return CommandOutcome.COMPLETED;
+    }
+
+    /** batch の要素を単発要求と同じ経路で実行する。 */
+    private final class BatchElements implements BatchRun.Executor {
+        @Override
+        public boolean execute(ParsedCommand command) {
+            return executeCommand(command) != CommandOutcome.DEFERRED;
+        }
+
+        @Override
+        public void reject(MalformedFrame element) {
+            logger.warning("Discarded malformed batch element: " + element.reason());
+            if (element.id() == null) {
+                return;
+            }
+            // 配列で相関を取る client がその id を待ち続けないよう、要素の位置にエラーを返す。
+            activeId = element.id();
+            try {
+                respondError(-32600, "invalid_request", null);
+            } finally {
+                activeId = null;
+            }
+        }
+
+        @Override
+        public boolean stopped() {
+            return pendingRemoval || closingAfterFlush;
+        }
+    }
+
     private enum CommandOutcome { COMPLETED, DEFERRED }
 
     /**
@@ -298,10 +409,34 @@ public class RemoteSession implements CommandDispatchContext {
                 playerCommands.bind(uuid);
             }
         }
-        respondResult(buildHelloResult());
+        // encoding / compression 要求が無いクライアントには hello 応答の形を変えない。
+        JsonObject helloParams = parsed.getParams() != null && parsed.getParams().isJsonObject()
+                ? parsed.getParams().getAsJsonObject() : new JsonObject();
+        JsonElement requestedEncoding = helloParams.get("encoding");
+        JsonElement requestedCompression = helloParams.get("compression");
+        WireEncoding encoding = WireEncoding.negotiate(requestedEncoding);
+        TransportPolicy transportPolicy = plugin.getTransportPolicy();
+        boolean deflate = transportPolicy.compression() && FrameDeflater.requested(requestedCompression);
+        Map<String, Object> helloResult = buildHelloResult();
+        if (requestedEncoding != null) {
+            helloResult.put("encoding", encoding.wireName());
+        }
+        if (requestedCompression != null) {
+            helloResult.put("compression", deflate ? "deflate" : "none");
+        }
+        // 入力側は応答を積む前に切り替える（クライアントは応答を読むまで次を送らない）。
+        if (encoding != WireEncoding.JSON || deflate) {
+            transport.switchInputFormat(encoding, deflate);
+        }
+        respondResult(helloResult);
+        outputEncoding = encoding;
+        if (deflate) {
+            outputDeflater = new FrameDeflater(transportPolicy.compressionMinBytes());
+        }
         helloComplete = true;
         logger.info("hello OK (client protocol " + clientProtocol + ", advertising " + ProtocolInfo.PROTOCOL
-                + (boundUuid != null ? ", player " + boundUuid : ", no auth") + ")");
+                + (boundUuid != null ? ", player " + boundUuid : ", no auth")
+                + ", encoding " + encoding.wireName() + (deflate ? "+deflate" : "") + ")");
     }
 
     /** hello params（object 形, §6.1）から {@code auth.token} を取り出す。無ければ null。 */
@@ -391,26 +526,14 @@ public class RemoteSession implements CommandDispatchContext {
         running = false;
         eventRing.clear();
         entityHandles.clear();
-
-        // 出力スレッドを待機中の場合は通知して解除
-        synchronized (queueLock) {
-            queueLock.notifyAll();
-        }
-        if (inThread != null && Thread.currentThread() != inThread) {
-            inThread.interrupt();
+        blockPalette.clear();
+        blockJobs.clear();
+        if (outputDeflater != null) {
+            outputDeflater.close();
         }
-        try {
-            if (Thread.currentThread() != inThread) {
-                inThread.join(2000);
-            }
-            if (Thread.currentThread() != outThread) {
-                outThread.join(2000);
-            }
-        } catch (InterruptedException e) {
-            logger.warning("Failed to stop in/out thread");
-            StringWriter sw = new StringWriter();
-            e.printStackTrace(new PrintWriter(sw));
-            logger.warning(sw.toString());
+
+        if (transport != null) {
+            transport.stop();
         }
         try {
             socket.close();
@@ -424,9 +547,16 @@ public class RemoteSession implements CommandDispatchContext {
 
     /** 既に queue 済みの成功応答を flush してから transport を閉じる。 */
     public void requestCloseAfterFlush() {
+        if (batch != null) {
+            // close 前に batch のここまでの応答を確定させる（flush 対象に含める）。
+            List<Object> responses = batch.takeResponses();
+            if (!responses.isEmpty()) {
+                enqueueEnvelope(responses);
+            }
+        }
         closingAfterFlush = true;
-        synchronized (queueLock) {
-            queueLock.notifyAll();
+        if (transport != null) {
+            transport.outputReady();
         }
     }
 
@@ -453,6 +583,18 @@ public class RemoteSession implements CommandDispatchContext {
         eventRing.dropForCapacity();
     }
 
+    /** 現在の build origin を基準に background fill を積む。完了は job_finished event で知らせる。 */
+    BlockJobs.Job submitJob(ChunkOrderedFill.Cursor<?> cursor, LongSupplier changed) {
+        return blockJobs.submit(cursor, origin.getWorld().getName(),
+                List.of(origin.getBlockX(), origin.getBlockY(), origin.getBlockZ()), changed);
+    }
+
+    void publishJobFinished(BlockJobs.Job job) {
+        queueCapturedEvent(B5EventDto.jobFinished(
+                job.world(), job.origin(), job.id(), job.state().wireName(), job.written(), job.volume(),
+                job.changed()));
+    }
+
     String issueEntityHandle(Entity entity) {
         return entityHandles.issue(entity);
     }
@@ -475,15 +617,18 @@ public class RemoteSession implements CommandDispatchContext {
         if (result == WorkAdmission.Result.BACKPRESSURE && activeId == null) {
             throw CommandDeferredException.INSTANCE;
         }
-        sessionWorkError(result);
+        respondWorkError(result, units > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) units);
         return false;
     }
 
-    private void sessionWorkError(WorkAdmission.Result result) {
-        respondError(-32000,
-                result == WorkAdmission.Result.BACKPRESSURE
-                        ? "backpressure" : "work_limit_exceeded",
-                null);
+    /** 不採択の admission 結果を返す。backpressure には再試行の目安と現在の budget を添え、即時の再送を避けさせる。 */
+    void respondWorkError(WorkAdmission.Result result, int units) {
+        if (result == WorkAdmission.Result.BACKPRESSURE) {
+            respondError(-32000, "backpressure",
+                    plugin.getWorkAdmission().backpressureData(connectionEpoch, boundUuid, units));
+        } else {
+            respondError(-32000, "work_limit_exceeded", null);
+        }
     }
 
     boolean hasConstructionPermission() {
@@ -508,133 +653,112 @@ public class RemoteSession implements CommandDispatchContext {
                 && Math.abs(target.getZ() - origin.getZ()) <= range;
     }
 
-    void tick() {
+    /** 入力が尽きて FIFO も空になった停止済み session は、ここで次 tick の除去対象にする。 */
+    @Override
+    public boolean hasPendingWork() {
+        if (closingAfterFlush) {
+            return false;
+        }
+        if (!inQueue.isEmpty()) {
+            return true;
+        }
+        if (!running) {
+            pendingRemoval = true;
+            return false;
+        }
+        return blockJobs.hasActive();
+    }
+
+    /**
+     * {@link TickScheduler} の割り当て内で FIFO を処理し、残り時間で background job を進める。
+     * 開始した frame は期限を過ぎても最後まで実行する。同じ server tick の 2 巡目の slice でも、
+     * コマンド数の上限は {@link #beginTick} からの通算で効く。
+     */
+    @Override
+    public void beginTick() {
+        commandsThisTick = 0;
+    }
+
+    @Override
+    public void tick(long deadlineNanos) {
         if (closingAfterFlush) {
             return;
         }
         int maxCommandsPerTick = MAX_COMMANDS_PER_TICK;
         int processedCount = 0;
-        String message;
+        ParsedFrame message;
         while ((message = inQueue.peek()) != null) {
-            CommandOutcome outcome = handleLine(message);
+            // batch は要素数ぶん数える。途中で割らず、この tick に収まらなければ次 tick の先頭で丸ごと実行する。
+            int commands = message instanceof ParsedBatch parsedBatch ? parsedBatch.elements().size() : 1;
+            if (commandsThisTick > 0 && commandsThisTick + commands > maxCommandsPerTick) {
+                // 上限に達したのがこの slice なら警告する（前の slice で達していれば既に出している）。
+                if (processedCount > 0) {
+                    logger.warning("Over " + maxCommandsPerTick +
+                            " commands were queued - deferring " + inQueue.size() + " frames to next tick");
+                }
+                break;
+            }
+            CommandOutcome outcome = handleFrame(message);
             if (outcome == CommandOutcome.DEFERRED) {
                 break;
             }
-            String removed = inQueue.removeHead();
+            ParsedFrame removed = inQueue.removeHead();
             if (removed == null) {
                 throw new IllegalStateException("connection FIFO head disappeared");
             }
             processedCount++;
+            commandsThisTick += commands;
             if (pendingRemoval || closingAfterFlush) {
                 break;
             }
-            if (processedCount >= maxCommandsPerTick) {
+            if (commandsThisTick >= maxCommandsPerTick) {
                 logger.warning("Over " + maxCommandsPerTick +
                         " commands were queued - deferring " + inQueue.size() + " to next tick");
                 break;
             }
+            if (System.nanoTime() - deadlineNanos >= 0) {
+                break;
+            }
+        }
+        if (processedCount > 0 && transport != null) {
+            transport.inputDrained();
         }
         if (!running && inQueue.isEmpty()) {
             pendingRemoval = true;
+        } else if (running && !closingAfterFlush && !pendingRemoval) {
+            blockJobs.step(this::admitWork, () -> plugin.getWorkAdmission().admissibleUnits(boundUuid),
+                    () -> System.nanoTime() - deadlineNanos < 0, this::publishJobFinished);
         }
     }
 
-    private class InputThread implements Runnable {
-        @Override
-        public void run() {
-            logger.info("Starting input thread!");
-            while (running) {
-                try {
-                    String newLine = in.readLine();
-                    if (newLine == null) {
-                        running = false;
-                    } else {
-                        inQueue.put(newLine);
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    running = false;
-                } catch (Exception e) {
-                    if (running) {
-                        StringWriter sw = new StringWriter();
-                        e.printStackTrace(new PrintWriter(sw));
-                        logger.warning(sw.toString());
-                    }
-                    running = false;
-                }
-            }
-            try {
-                in.close();
-            } catch (Exception e) {
-                logger.warning("Failed to close input buffer");
-                StringWriter sw = new StringWriter();
-                e.printStackTrace(new PrintWriter(sw));
-                logger.warning(sw.toString());
-            }
-        }
+    @Override
+    public ConnectionCommandQueue<ParsedFrame> commandQueue() {
+        return inQueue;
     }
 
-    private class OutputThread implements Runnable {
-        @Override
-        public void run() {
-            while (running) {
-                try {
-                    String line = null;
-                    // queueLockを使用してキューへのアクセスを同期
-                    synchronized (queueLock) {
-                        // キューが空の場合は通知を待つ
-                        while (running && outQueue.isEmpty() && !closingAfterFlush) {
-                            queueLock.wait();
-                        }
-                        // 終了フラグが立っていて、キューが空であれば終了
-                        if ((!running || closingAfterFlush) && outQueue.isEmpty()) {
-                            running = false;
-                            break;
-                        }
-                        line = outQueue.poll();
-                    }
-                    // 取り出したデータが存在する場合は書き込む
-                    if (line != null) {
-                        out.write(line);
-                        out.write('\n');
-                        out.flush();
-                        synchronized (queueLock) {
-                            if (closingAfterFlush && outQueue.isEmpty()) {
-                                running = false;
-                            }
-                        }
-                    }
-                } catch (InterruptedException e) {
-                    // スレッドが割り込まれた場合
-                    if (running) {
-                        logger.warning("Output thread interrupted: " + e.getMessage());
-                    }
-                } catch (Exception e) {
-                    if (running) {
-                        StringWriter sw = new StringWriter();
-                        e.printStackTrace(new PrintWriter(sw));
-                        logger.warning(sw.toString());
-                        running = false;
-                    }
-                }
-            }
-            if (closingAfterFlush) {
-                pendingRemoval = true;
-                try {
-                    socket.close();
-                } catch (IOException e) {
-                    logger.warning("Failed to close credential-revoked socket: " + e.getMessage());
-                }
-            }
-            try {
-                out.close();
-            } catch (Exception e) {
-                logger.warning("Failed to close output buffer");
-                StringWriter sw = new StringWriter();
-                e.printStackTrace(new PrintWriter(sw));
-                logger.warning(sw.toString());
-            }
-        }
+    @Override
+    public ConnectionFrameQueue<OutboundFrame> frameQueue() {
+        return outQueue;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void stopRunning() {
+        running = false;
+    }
+
+    @Override
+    public boolean isClosingAfterFlush() {
+        return closingAfterFlush;
+    }
+
+    @Override
+    public void closedAfterFlush() {
+        pendingRemoval = true;
     }
 
     /**
@@ -653,21 +777,30 @@ public class RemoteSession implements CommandDispatchContext {
         if (activeId == null) {
             return;
         }
-        enqueue(encodeResultResponse(activeId, value));
-    }
-
-    static String encodeResultResponse(int id, Object value) {
+        if (batch == null && outputEncoding == WireEncoding.JSON) {
+            // 封筒を Map に組まず、共通 prefix から result まで1バッファへ直接書く。
+            // 圧縮は接続の writer が取り出すときに行う（main thread は直列化まで）。
+            if (outputDeflater == null) {
+                enqueue(OutboundFrame.ready(responseWriter.resultFrame(activeId, value, true)));
+            } else if (value instanceof RawJson raw && raw.isPrecompressed()) {
+                // catalog 等の圧縮済み断片は再圧縮せず、封筒の前後だけをこの接続の stream で圧縮する。
+                enqueue(OutboundFrame.spliced(outputDeflater, responseWriter.resultHead(activeId), raw,
+                        ResponseWriter.RESULT_TAIL));
+            } else {
+                enqueue(OutboundFrame.deflated(outputDeflater, responseWriter.resultFrame(activeId, value, false)));
+            }
+            return;
+        }
         Map<String, Object> env = new LinkedHashMap<>();
         env.put("jsonrpc", "2.0");
-        env.put("id", id);
+        env.put("id", activeId);
         env.put("result", value);
-        return GSON.toJson(env);
+        respond(env);
     }
 
+    /** result 値に使える最大バイト数。封筒の長さは応答を書く {@link ResponseWriter} と同じ計算。 */
     static int resultPayloadBudget(int id, int maxResponseBytes) {
-        int nullPayloadBytes = GSON.toJson(null).getBytes(StandardCharsets.UTF_8).length;
-        int envelopeBytes = encodeResultResponse(id, null)
-                .getBytes(StandardCharsets.UTF_8).length - nullPayloadBytes;
+        int envelopeBytes = ResponseWriter.resultEnvelopeBytes(id);
         int budget = maxResponseBytes - envelopeBytes;
         if (budget < 1) {
             throw new IllegalArgumentException("response byte limit cannot hold a JSON-RPC envelope");
@@ -700,22 +833,40 @@ public class RemoteSession implements CommandDispatchContext {
         env.put("jsonrpc", "2.0");
         env.put("id", activeId);
         env.put("error", error);
-        enqueue(GSON.toJson(env));
+        respond(env);
     }
 
-    /** 直列化済み1行を有限出力キューへ。飽和は無言dropせずconnection failureにする。 */
-    private void enqueue(String line) {
-        if (pendingRemoval) {
+    /** batch 実行中は応答を溜め、batch 完了時に1つの配列フレームで返す。 */
+    private void respond(Map<String, Object> env) {
+        if (batch != null) {
+            batch.respond(env);
+        } else {
+            enqueueEnvelope(env);
+        }
+    }
+
+    /** 封筒（batch なら封筒の配列）を合意済みエンコーディングで1フレームにする。 */
+    private void enqueueEnvelope(Object env) {
+        if (outputDeflater != null) {
+            byte[] payload = outputEncoding == WireEncoding.JSON
+                    ? responseWriter.frame(env, false)
+                    : CborCodec.encode(GSON.toJsonTree(env), 0);
+            enqueue(OutboundFrame.deflated(outputDeflater, payload));
             return;
         }
-        boolean accepted;
-        synchronized (queueLock) {
-            accepted = outQueue.offer(line);
-            if (accepted) {
-                queueLock.notify();
-            }
+        enqueue(OutboundFrame.ready(outputEncoding == WireEncoding.JSON
+                ? responseWriter.frame(env, true)
+                : WireEncoding.cborFrame(GSON.toJsonTree(env))));
+    }
+
+    /** 直列化済み1フレームを有限出力キューへ。飽和は無言dropせずconnection failureにする。 */
+    private void enqueue(OutboundFrame frame) {
+        if (pendingRemoval) {
+            return;
         }
-        if (!accepted) {
+        if (outQueue.offer(frame)) {
+            transport.outputReady();
+        } else {
             failOutputTransport();
         }
     }
@@ -725,15 +876,7 @@ public class RemoteSession implements CommandDispatchContext {
                 + socket.getRemoteSocketAddress());
         pendingRemoval = true;
         running = false;
-        synchronized (queueLock) {
-            queueLock.notifyAll();
-        }
-        if (inThread != null) {
-            inThread.interrupt();
-        }
-        if (outThread != null) {
-            outThread.interrupt();
-        }
+        transport.abort();
         try {
             socket.close();
         } catch (IOException e) {
@@ -0,0 +1,294 @@
+package club.code2create.mcremote;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Streaming JSON encoder for response envelopes.
+ *
+ * <p>Writes compact UTF-8 straight into one reused buffer, byte-for-byte identical to the session's
+ * Gson ({@code serializeNulls}, HTML-safe escaping), and copies out the finished frame once. The
+ * constant part of a result envelope is cached as bytes. Maps, collections, strings, booleans, common
+ * numbers and Gson trees are written directly, a {@link RawJson} is copied verbatim, and any other
+ * value falls back to Gson for that subtree. One instance per session, main thread only; the static
+ * helpers are thread-safe.</p>
+ */
+final class ResponseWriter {
+    private static final Gson GSON = new GsonBuilder().serializeNulls().create();
+    private static final byte[] RESULT_PREFIX = bytes("{\"jsonrpc\":\"2.0\",\"id\":");
+    private static final byte[] RESULT_KEY = bytes(",\"result\":");
+    static final byte[] RESULT_TAIL = bytes("}");
+    private static final byte[] NULL = bytes("null");
+    private static final byte[] TRUE = bytes("true");
+    private static final byte[] FALSE = bytes("false");
+    private static final byte[] HEX = bytes("0123456789abcdef");
+    // Gson の HTML-safe 既定と同じ：制御文字と " \ < > & = ' を escape する。
+    private static final byte[][] ASCII_ESCAPES = new byte[128][];
+    static final int DEFAULT_CAPACITY = 4_096;
+    // 大きな応答（catalog 等）の後は既定サイズに戻し、接続ごとに巨大バッファを抱え込まない。
+    private static final int MAX_RETAINED_CAPACITY = 256 * 1_024;
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ASCII_ESCAPES[c] = unicodeEscape((char) c);
+        }
+        ASCII_ESCAPES['"'] = bytes("\\\"");
+        ASCII_ESCAPES['\\'] = bytes("\\\\");
+        ASCII_ESCAPES['\t'] = bytes("\\t");
+        ASCII_ESCAPES['\b'] = bytes("\\b");
+        ASCII_ESCAPES['\n'] = bytes("\\n");
+        ASCII_ESCAPES['\r'] = bytes("\\r");
+        ASCII_ESCAPES['\f'] = bytes("\\f");
+        for (char c : new char[] {'<', '>', '&', '=', '\''}) {
+            ASCII_ESCAPES[c] = unicodeEscape(c);
+        }
+    }
+
+    private final int initialCapacity;
+    private byte[] buffer;
+    private int length;
+
+    ResponseWriter(int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+        this.buffer = new byte[initialCapacity];
+    }
+
+    /** {@code {"jsonrpc":"2.0","id":N,"result":…}}, with a trailing {@code \n} when {@code line}. */
+    byte[] resultFrame(int id, Object result, boolean line) {
+        length = 0;
+        write(RESULT_PREFIX);
+        writeLong(id);
+        write(RESULT_KEY);
+        value(result);
+        write('}');
+        return finish(line);
+    }
+
+    /** Everything of a result envelope before its value; {@link #RESULT_TAIL} closes it. */
+    byte[] resultHead(int id) {
+        length = 0;
+        write(RESULT_PREFIX);
+        writeLong(id);
+        write(RESULT_KEY);
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /** Any envelope (or batch array of envelopes) as one frame. */
+    byte[] frame(Object envelope, boolean line) {
+        length = 0;
+        value(envelope);
+        return finish(line);
+    }
+
+    /** Bytes a result envelope for {@code id} adds around its result value. */
+    static int resultEnvelopeBytes(int id) {
+        return RESULT_PREFIX.length + Long.toString(id).length() + RESULT_KEY.length + 1;
+    }
+
+    /** {@code value} exactly as a response would carry it, for {@link RawJson}. */
+    static byte[] encode(Object value) {
+        ResponseWriter writer = new ResponseWriter(DEFAULT_CAPACITY);
+        writer.value(value);
+        return Arrays.copyOf(writer.buffer, writer.length);
+    }
+
+    /** UTF-8 length of {@code value} exactly as a response would carry it. */
+    static int encodedLength(Object value) {
+        ResponseWriter writer = new ResponseWriter(256);
+        writer.value(value);
+        return writer.length;
+    }
+
+    private byte[] finish(boolean line) {
+        if (line) {
+            write('\n');
+        }
+        byte[] frame = Arrays.copyOf(buffer, length);
+        if (buffer.length > MAX_RETAINED_CAPACITY) {
+            buffer = new byte[initialCapacity];
+        }
+        return frame;
+    }
+
+    private void value(Object value) {
+        if (value == null) {
+            write(NULL);
+        } else if (value instanceof String string) {
+            string(string);
+        } else if (value instanceof Boolean bool) {
+            write(bool ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Long) {
+            writeLong(((Number) value).longValue());
+        } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+            ascii(value.toString());
+        } else if (value instanceof Double number && Double.isFinite(number)) {
+            ascii(Double.toString(number));
+        } else if (value instanceof Map<?, ?> map) {
+            object(map);
+        } else if (value instanceof Collection<?> collection) {
+            array(collection);
+        } else if (value instanceof JsonElement element) {
+            tree(element);
+        } else if (value instanceof RawJson raw) {
+            write(raw.utf8());
+        } else {
+            // record・enum・配列など Gson の reflective/専用 adapter に任せる値。
+            write(GSON.toJson(value).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void object(Map<?, ?> map) {
+        write('{');
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!first) {
+                write(',');
+            }
+            first = false;
+            // Gson の Map adapter と同じく String.valueOf(key) を名前にする。
+            string(String.valueOf(entry.getKey()));
+            write(':');
+            value(entry.getValue());
+        }
+        write('}');
+    }
+
+    private void array(Collection<?> collection) {
+        write('[');
+        boolean first = true;
+        for (Object element : collection) {
+            if (!first) {
+                write(',');
+            }
+            first = false;
+            value(element);
+        }
+        write(']');
+    }
+
+    private void tree(JsonElement element) {
+        if (element.isJsonNull()) {
+            write(NULL);
+        } else if (element.isJsonPrimitive()) {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isString()) {
+                string(primitive.getAsString());
+            } else if (primitive.isBoolean()) {
+                write(primitive.getAsBoolean() ? TRUE : FALSE);
+            } else {
+                value(primitive.getAsNumber());
+            }
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            write('[');
+            for (int i = 0; i < array.size(); i++) {
+                if (i > 0) {
+                    write(',');
+                }
+                tree(array.get(i));
+            }
+            write(']');
+        } else {
+            JsonObject object = element.getAsJsonObject();
+            write('{');
+            boolean first = true;
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                if (!first) {
+                    write(',');
+                }
+                first = false;
+                string(entry.getKey());
+                write(':');
+                tree(entry.getValue());
+            }
+            write('}');
+        }
+    }
+
+    private void string(String value) {
+        write('"');
+        int count = value.length();
+        for (int i = 0; i < count; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                byte[] escape = ASCII_ESCAPES[c];
+                if (escape == null) {
+                    write(c);
+                } else {
+                    write(escape);
+                }
+            } else if (c < 0x800) {
+                ensure(2);
+                buffer[length++] = (byte) (0xC0 | (c >> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (c == '\u2028' || c == '\u2029') {
+                write(unicodeEscape(c));
+            } else if (Character.isHighSurrogate(c) && i + 1 < count
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                ensure(4);
+                buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // 対になっていない surrogate は String#getBytes(UTF_8) と同じく '?' に置き換わる。
+                write('?');
+            } else {
+                ensure(3);
+                buffer[length++] = (byte) (0xE0 | (c >> 12));
+                buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        write('"');
+    }
+
+    private void writeLong(long value) {
+        ascii(Long.toString(value));
+    }
+
+    private void ascii(String value) {
+        int count = value.length();
+        ensure(count);
+        for (int i = 0; i < count; i++) {
+            buffer[length++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void write(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void write(char c) {
+        ensure(1);
+        buffer[length++] = (byte) c;
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    private static byte[] unicodeEscape(char c) {
+        return new byte[] {'\\', 'u', HEX[(c >> 12) & 0xF], HEX[(c >> 8) & 0xF], HEX[(c >> 4) & 0xF], HEX[c & 0xF]};
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,339 @@
+package club.code2create.mcremote;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Shared NIO event loops for {@code api_transport: selector}.
+ *
+ * <p>Each loop owns one {@link Selector} and any number of non-blocking connections, so an idle
+ * client costs a registration instead of two blocked platform threads. A full command FIFO removes
+ * read interest until the main thread drains it, which leaves the peer blocked on TCP flow control
+ * exactly like {@link ThreadedConnectionTransport}'s blocking {@code put}.</p>
+ */
+final class SelectorTransport implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger("McR_Selector");
+
+    private final Loop[] loops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final TransportPolicy policy;
+    private final TransportStats stats;
+
+    SelectorTransport(TransportPolicy policy, TransportStats stats) throws IOException {
+        int loopCount = policy.selectorThreads();
+        if (loopCount < 1) {
+            throw new IllegalArgumentException("selector loop count must be positive");
+        }
+        this.policy = policy;
+        this.stats = stats;
+        loops = new Loop[loopCount];
+        try {
+            for (int i = 0; i < loopCount; i++) {
+                loops[i] = new Loop(Selector.open(), "McR-Selector-" + i);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        for (Loop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    /** Registers an accepted channel with the next loop; I/O begins at {@link ConnectionTransport#start()}. */
+    <R> ConnectionTransport open(ConnectionTransportContext<R> context, SocketChannel channel) throws IOException {
+        channel.configureBlocking(false);
+        Loop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+        return new Connection<>(loop, context, channel, new LineFramer(policy.maxLineBytes()),
+                new FrameBatch(policy.writeBatchBytes()), stats);
+    }
+
+    int loopCount() {
+        return loops.length;
+    }
+
+    @Override
+    public void close() {
+        for (Loop loop : loops) {
+            if (loop != null) {
+                loop.shutdown();
+            }
+        }
+    }
+
+    private static final class Loop implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private volatile boolean running = true;
+
+        private Loop(Selector selector, String name) {
+            this.selector = selector;
+            this.thread = new Thread(this, name);
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+            if (Thread.currentThread() != thread && thread.isAlive()) {
+                try {
+                    thread.join(2000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                    while (selected.hasNext()) {
+                        SelectionKey key = selected.next();
+                        selected.remove();
+                        ((Connection<?>) key.attachment()).handle(key);
+                    }
+                } catch (Exception e) {
+                    if (running) {
+                        StringWriter sw = new StringWriter();
+                        e.printStackTrace(new PrintWriter(sw));
+                        logger.warning(sw.toString());
+                    }
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection<?> connection) {
+                    connection.fail(null);
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                logger.warning("Failed to close selector: " + e.getMessage());
+            }
+        }
+    }
+
+    private static final class Connection<R> implements ConnectionTransport {
+        private final Loop loop;
+        private final ConnectionTransportContext<R> context;
+        private final SocketChannel channel;
+        private final LineFramer framer;
+        // FIFO 満杯で受理されなかった decode 済みの行は pendingLines に順序どおり残す。
+        private final ArrayDeque<R> pendingLines = new ArrayDeque<>();
+        private final FrameBatch batch;
+        private final TransportStats stats;
+        private final AtomicBoolean outputScheduled = new AtomicBoolean();
+        private volatile boolean readPaused;
+        private SelectionKey key;
+        private ByteBuffer writing;
+        private boolean inputEnded;
+
+        private Connection(
+                Loop loop,
+                ConnectionTransportContext<R> context,
+                SocketChannel channel,
+                LineFramer framer,
+                FrameBatch batch,
+                TransportStats stats
+        ) {
+            this.loop = loop;
+            this.context = context;
+            this.channel = channel;
+            this.framer = framer;
+            this.batch = batch;
+            this.stats = stats;
+        }
+
+        @Override
+        public void start() {
+            loop.execute(this::register);
+        }
+
+        @Override
+        public void switchInputFormat(WireEncoding encoding, boolean inflate) {
+            framer.switchTo(encoding, inflate);
+        }
+
+        @Override
+        public void outputReady() {
+            if (outputScheduled.compareAndSet(false, true)) {
+                loop.execute(this::writeFrames);
+            }
+        }
+
+        @Override
+        public void inputDrained() {
+            if (readPaused) {
+                loop.execute(this::resumeInput);
+            }
+        }
+
+        @Override
+        public void abort() {
+            closeChannel();
+        }
+
+        @Override
+        public void stop() {
+            closeChannel();
+        }
+
+        private void register() {
+            try {
+                key = channel.register(loop.selector, SelectionKey.OP_READ, this);
+            } catch (IOException | CancelledKeyException e) {
+                fail(e);
+                return;
+            }
+            writeFrames();
+        }
+
+        private void handle(SelectionKey selectedKey) {
+            try {
+                if (selectedKey.isValid() && selectedKey.isReadable()) {
+                    read();
+                }
+                if (selectedKey.isValid() && selectedKey.isWritable()) {
+                    writeFrames();
+                }
+            } catch (IOException | CancelledKeyException e) {
+                fail(e);
+            }
+        }
+
+        private void read() throws IOException {
+            if (framer.read(channel) < 0) {
+                endInput();
+                return;
+            }
+            InboundLine line;
+            while ((line = framer.next()) != null) {
+                deliver(line);
+            }
+        }
+
+        /** BufferedReader.readLine と同じく、EOF 直前の改行無し最終行も1行として渡す。 */
+        private void endInput() {
+            inputEnded = true;
+            InboundLine last = framer.finish();
+            if (last != null) {
+                deliver(last);
+            }
+            if (key.isValid()) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            }
+            if (pendingLines.isEmpty()) {
+                context.stopRunning();
+            }
+        }
+
+        /** パースと params 検証は loop 上で 1 回だけ行い、FIFO 満杯時も decode 済みの形で待たせる。 */
+        private void deliver(InboundLine line) {
+            R decoded = context.decode(line);
+            if (pendingLines.isEmpty() && context.commandQueue().offer(decoded)) {
+                return;
+            }
+            pendingLines.addLast(decoded);
+            if (!readPaused) {
+                readPaused = true;
+                if (key.isValid()) {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                }
+                // The main thread may have drained the FIFO before it could observe readPaused.
+                loop.execute(this::resumeInput);
+            }
+        }
+
+        private void resumeInput() {
+            ConnectionCommandQueue<R> commands = context.commandQueue();
+            while (!pendingLines.isEmpty() && commands.offer(pendingLines.peekFirst())) {
+                pendingLines.removeFirst();
+            }
+            if (!pendingLines.isEmpty() || !readPaused) {
+                return;
+            }
+            readPaused = false;
+            if (inputEnded) {
+                context.stopRunning();
+            } else if (key != null && key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+            }
+        }
+
+        private void writeFrames() {
+            outputScheduled.set(false);
+            if (key == null || !key.isValid()) {
+                return;
+            }
+            try {
+                ConnectionFrameQueue<OutboundFrame> frames = context.frameQueue();
+                while (true) {
+                    if (writing == null) {
+                        // 溜まっているフレームを 1 バッファへまとめ、1 回の write で送る
+                        if (batch.drain(frames) == 0) {
+                            break;
+                        }
+                        writing = ByteBuffer.wrap(batch.array(), 0, batch.length());
+                    }
+                    channel.write(writing);
+                    if (writing.hasRemaining()) {
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    stats.recordFlush(batch.frames(), batch.length());
+                    batch.clear();
+                    writing = null;
+                }
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                if (context.isClosingAfterFlush()) {
+                    context.stopRunning();
+                    closeChannel();
+                    context.closedAfterFlush();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // IllegalStateException: key の cancel、または close と競合して圧縮 stream が解放済み。
+                fail(e);
+            }
+        }
+
+        private void fail(Exception e) {
+            if (e != null && context.isRunning()) {
+                logger.warning("Connection I/O failed: " + e.getMessage());
+            }
+            context.stopRunning();
+            closeChannel();
+        }
+
+        private void closeChannel() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warning("Failed to close channel: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package club.code2create.mcremote;
+
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Timing runs behind {@code /mcremote bench}, measured on the live server's own World and BlockData.
+ *
+ * <p>The unit tests drive these paths through doubles, which says nothing about their cost in Paper.
+ * {@code bench fill} writes each shape once with the x/y/z loop setCuboid used before
+ * {@link ChunkOrderedFill} and once chunk by chunk, and reports blocks/ms for both. The cuboids sit
+ * under the world's build limit, start eight blocks into a chunk so every shape crosses chunk borders,
+ * and are put back to their previous states after every write; restoring is not timed. Runs alternate
+ * which variant goes first and keep each variant's fastest round.</p>
+ *
+ * <p>{@code bench encode} reads the blocks around the sender, as world.getBlocks would, and encodes
+ * every one of them per round: once through {@link BlockCodec#encode} plus JSON serialization, the
+ * path before {@link BlockValueCache}, and once through a fresh cache of the configured size, so the
+ * plugin's shared cache and its counters are left alone.</p>
+ *
+ * <p>Everything runs synchronously on the main thread and stalls the tick for its duration. Use it on
+ * a test server.</p>
+ */
+final class ServerBench {
+    static final int DEFAULT_ROUNDS = 3;
+    static final int MAX_ROUNDS = 10;
+    /** {sizeX, sizeY, sizeZ}: 16³, 32³ and 64×1×64. */
+    static final int[][] FILL_SHAPES = {{16, 16, 16}, {32, 32, 32}, {64, 1, 64}};
+    /** Edge of the cube {@code bench encode} samples around the sender. */
+    static final int ENCODE_SAMPLE_SIZE = 32;
+
+    private ServerBench() {
+    }
+
+    record FillResult(int sizeX, int sizeY, int sizeZ, long legacyNanos, long chunkedNanos) {
+        long blocks() {
+            return (long) sizeX * sizeY * sizeZ;
+        }
+
+        String describe() {
+            return String.format(Locale.ROOT, "fill %dx%dx%d: loop %.0f blocks/ms, chunked %.0f blocks/ms (x%.2f)",
+                    sizeX, sizeY, sizeZ, perMilli(blocks(), legacyNanos), perMilli(blocks(), chunkedNanos),
+                    (double) legacyNanos / Math.max(1, chunkedNanos));
+        }
+    }
+
+    record EncodeResult(int blocks, int distinct, long bytes, long encodeNanos, long cachedNanos) {
+        String describe() {
+            return String.format(Locale.ROOT,
+                    "encode %d blocks (%d states, %d bytes): codec %.0f blocks/ms, cached %.0f blocks/ms (x%.2f)",
+                    blocks, distinct, bytes, perMilli(blocks, encodeNanos), perMilli(blocks, cachedNanos),
+                    (double) encodeNanos / Math.max(1, cachedNanos));
+        }
+    }
+
+    /** Times every shape in {@code shapes}; {@code originX}/{@code originZ} pick the chunk to start in. */
+    static List<FillResult> fill(World world, int originX, int originZ, BlockData data, int[][] shapes, int rounds) {
+        int minX = (originX >> 4 << 4) + 8;
+        int minZ = (originZ >> 4 << 4) + 8;
+        List<FillResult> results = new ArrayList<>(shapes.length);
+        for (int[] shape : shapes) {
+            int maxX = minX + shape[0] - 1;
+            int maxY = world.getMaxHeight() - 1;
+            int minY = maxY - shape[1] + 1;
+            int maxZ = minZ + shape[2] - 1;
+            // snapshot で chunk も読み込まれるので、load の時間は計測に入らない。
+            BlockData[] previous = snapshot(world, minX, minY, minZ, maxX, maxY, maxZ);
+            long legacy = Long.MAX_VALUE;
+            long chunked = Long.MAX_VALUE;
+            for (int round = 0; round < rounds; round++) {
+                for (int pass = 0; pass < 2; pass++) {
+                    boolean legacyPass = (round + pass) % 2 == 0;
+                    long start = System.nanoTime();
+                    if (legacyPass) {
+                        axisLoopFill(world, minX, minY, minZ, maxX, maxY, maxZ, data);
+                    } else {
+                        ChunkOrderedFill.fill(minX, minY, minZ, maxX, maxY, maxZ, ChunkOrderedFill.writer(world, data));
+                    }
+                    long elapsed = System.nanoTime() - start;
+                    if (legacyPass) {
+                        legacy = Math.min(legacy, elapsed);
+                    } else {
+                        chunked = Math.min(chunked, elapsed);
+                    }
+                    restore(world, minX, minY, minZ, maxX, maxY, maxZ, previous);
+                }
+            }
+            results.add(new FillResult(shape[0], shape[1], shape[2], legacy, chunked));
+        }
+        return results;
+    }
+
+    /** The block states of the {@code size}³ cube centred on the position, shifted inside the world's height. */
+    static BlockData[] sample(World world, int centerX, int centerY, int centerZ, int size) {
+        int minY = Math.max(world.getMinHeight(), Math.min(world.getMaxHeight() - size, centerY - size / 2));
+        int maxY = Math.min(world.getMaxHeight() - 1, minY + size - 1);
+        int minX = centerX - size / 2;
+        int minZ = centerZ - size / 2;
+        return snapshot(world, minX, minY, minZ, minX + size - 1, maxY, minZ + size - 1);
+    }
+
+    /** Encodes all of {@code blocks} per round without and with a {@link BlockValueCache}. */
+    static EncodeResult encode(BlockData[] blocks, int cacheCapacity, int rounds) {
+        BlockValueCache cache = new BlockValueCache(cacheCapacity);
+        long encode = Long.MAX_VALUE;
+        long cached = Long.MAX_VALUE;
+        long bytes = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (int pass = 0; pass < 2; pass++) {
+                boolean codecPass = (round + pass) % 2 == 0;
+                // 出力長を合計して返し、encode 結果が JIT に捨てられないようにする。
+                long length = 0;
+                long start = System.nanoTime();
+                if (codecPass) {
+                    for (BlockData data : blocks) {
+                        length += RawJson.of(BlockCodec.encode(data)).length();
+                    }
+                } else {
+                    for (BlockData data : blocks) {
+                        length += cache.encode(data).length();
+                    }
+                }
+                long elapsed = System.nanoTime() - start;
+                if (codecPass) {
+                    encode = Math.min(encode, elapsed);
+                } else {
+                    cached = Math.min(cached, elapsed);
+                }
+                bytes = length;
+            }
+        }
+        return new EncodeResult(blocks.length, cache.size(), bytes, encode, cached);
+    }
+
+    /** The x, y descending, z loop of the former setCuboid: one getBlockAt per position. */
+    static void axisLoopFill(World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, BlockData data) {
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = maxY; y >= minY; y--) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    world.getBlockAt(x, y, z).setBlockData(data, false);
+                }
+            }
+        }
+    }
+
+    private static BlockData[] snapshot(World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        BlockData[] states = new BlockData[(maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1)];
+        int i = 0;
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    states[i++] = world.getBlockAt(x, y, z).getBlockData();
+                }
+            }
+        }
+        return states;
+    }
+
+    private static void restore(World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                                BlockData[] states) {
+        int i = 0;
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    world.getBlockAt(x, y, z).setBlockData(states[i++], false);
+                }
+            }
+        }
+    }
+
+    private static double perMilli(long count, long nanos) {
+        return count * 1_000_000.0 / Math.max(1, nanos);
+    }
+}
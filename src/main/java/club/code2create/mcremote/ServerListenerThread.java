@@ -2,6 +2,7 @@ package club.code2create.mcremote;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.ServerSocketChannel;
 import java.util.logging.Logger;
 
 public class ServerListenerThread implements Runnable {
@@ -11,9 +12,13 @@ public class ServerListenerThread implements Runnable {
 	boolean running = true;
 	private static McRemote plugin;
 
-	public ServerListenerThread(McRemote plugin, SocketAddress bindAddress) throws IOException {
+	/**
+	 * @param channelBacked accept through a {@link ServerSocketChannel} so each accepted socket exposes
+	 *                      a channel that the selector transport can switch to non-blocking mode
+	 */
+	public ServerListenerThread(McRemote plugin, SocketAddress bindAddress, boolean channelBacked) throws IOException {
 		ServerListenerThread.plugin = plugin;
-		serverSocket = new ServerSocket();
+		serverSocket = channelBacked ? ServerSocketChannel.open().socket() : new ServerSocket();
 		serverSocket.setReuseAddress(true);
 		serverSocket.bind(bindAddress);
 	}
@@ -0,0 +1,21 @@
+package club.code2create.mcremote;
+
+/**
+ * One connection's command handlers. The shared {@link CommandRegistry} built at enable binds each
+ * opcode to a method on one of these, so opening a session builds no per-method lambdas.
+ */
+record SessionCommands(
+        RemoteSession session,
+        BlockQueryCommands blockQuery,
+        BlockEditCommands blockEdit,
+        MiscCommands misc,
+        EntityCommands entity,
+        PlayerCommands player,
+        BuildStateCommands buildState,
+        CatalogCommands catalog,
+        EventCommands events,
+        WorldB5Commands world,
+        ConnectionCommands connection,
+        JobCommands jobs
+) {
+}
@@ -4,6 +4,6 @@ import com.google.gson.JsonElement;
 
 /** A command that receives the original JSON params without String coercion. */
 @FunctionalInterface
-public interface StructuredRemoteCommand {
-    void execute(JsonElement params);
+public interface StructuredRemoteCommand<S> {
+    void execute(S handlers, JsonElement params);
 }
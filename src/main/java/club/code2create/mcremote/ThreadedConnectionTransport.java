@@ -0,0 +1,238 @@
+package club.code2create.mcremote;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Blocking socket I/O on one input and one output thread per connection.
+ *
+ * <p>{@code api_transport: threads} runs both loops on platform threads; {@code virtual} runs the
+ * same loops on virtual threads. The output handoff therefore uses a {@link ReentrantLock} condition
+ * rather than {@code synchronized}/{@code wait}, which would pin the carrier while idle.</p>
+ *
+ * @param <R> the queued form produced by {@link ConnectionTransportContext#decode}
+ */
+final class ThreadedConnectionTransport<R> implements ConnectionTransport {
+    private static final Logger logger = Logger.getLogger("McR_RemoteSession");
+
+    private final ConnectionTransportContext<R> context;
+    private final Socket socket;
+    private final InputStream in;
+    private final LineFramer framer;
+    private final OutputStream out;
+    private final FrameBatch batch;
+    private final ThreadFactory threads;
+    private final TransportStats stats;
+    private Thread inThread;
+    private Thread outThread;
+
+    // 出力キューの待ち合わせ。virtual thread を carrier に固定しない park 型の通知。
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final Condition outputSignal = queueLock.newCondition();
+
+    ThreadedConnectionTransport(
+            ConnectionTransportContext<R> context,
+            Socket socket,
+            TransportPolicy policy,
+            TransportStats stats
+    ) throws IOException {
+        this.context = context;
+        this.socket = socket;
+        this.threads = policy.ioThreads();
+        this.stats = stats;
+        this.in = socket.getInputStream();
+        this.framer = new LineFramer(policy.maxLineBytes());
+        this.out = socket.getOutputStream();
+        this.batch = new FrameBatch(policy.writeBatchBytes());
+    }
+
+    @Override
+    public void start() {
+        inThread = threads.newThread(new InputThread());
+        inThread.start();
+        outThread = threads.newThread(new OutputThread());
+        outThread.start();
+        logger.info("Started input and output threads.");
+    }
+
+    @Override
+    public void switchInputFormat(WireEncoding encoding, boolean inflate) {
+        framer.switchTo(encoding, inflate);
+    }
+
+    @Override
+    public void outputReady() {
+        queueLock.lock();
+        try {
+            outputSignal.signalAll();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    @Override
+    public void inputDrained() {
+        // InputThread blocks in ConnectionCommandQueue.put, so it resumes on its own.
+    }
+
+    @Override
+    public void abort() {
+        outputReady();
+        if (inThread != null) {
+            inThread.interrupt();
+        }
+        if (outThread != null) {
+            outThread.interrupt();
+        }
+    }
+
+    @Override
+    public void stop() {
+        // 出力スレッドを待機中の場合は通知して解除
+        outputReady();
+        if (inThread != null && Thread.currentThread() != inThread) {
+            inThread.interrupt();
+        }
+        try {
+            if (inThread != null && Thread.currentThread() != inThread) {
+                inThread.join(2000);
+            }
+            if (outThread != null && Thread.currentThread() != outThread) {
+                outThread.join(2000);
+            }
+        } catch (InterruptedException e) {
+            logger.warning("Failed to stop in/out thread");
+            StringWriter sw = new StringWriter();
+            e.printStackTrace(new PrintWriter(sw));
+            logger.warning(sw.toString());
+        }
+    }
+
+    private class InputThread implements Runnable {
+        @Override
+        public void run() {
+            stats.ioThreadStarted();
+            try {
+                readLines();
+            } finally {
+                stats.ioThreadStopped();
+            }
+        }
+
+        private void readLines() {
+            logger.info("Starting input thread!");
+            ConnectionCommandQueue<R> inQueue = context.commandQueue();
+            while (context.isRunning()) {
+                try {
+                    // パースと params 検証はこのスレッドで済ませ、main thread には結果だけを渡す
+                    InboundLine newLine = framer.next();
+                    if (newLine != null) {
+                        inQueue.put(context.decode(newLine));
+                    } else if (framer.read(in) < 0) {
+                        InboundLine last = framer.finish();
+                        if (last != null) {
+                            inQueue.put(context.decode(last));
+                        }
+                        context.stopRunning();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    context.stopRunning();
+                } catch (Exception e) {
+                    if (context.isRunning()) {
+                        StringWriter sw = new StringWriter();
+                        e.printStackTrace(new PrintWriter(sw));
+                        logger.warning(sw.toString());
+                    }
+                    context.stopRunning();
+                }
+            }
+            try {
+                in.close();
+            } catch (Exception e) {
+                logger.warning("Failed to close input buffer");
+                StringWriter sw = new StringWriter();
+                e.printStackTrace(new PrintWriter(sw));
+                logger.warning(sw.toString());
+            }
+        }
+    }
+
+    private class OutputThread implements Runnable {
+        @Override
+        public void run() {
+            stats.ioThreadStarted();
+            try {
+                writeFrames();
+            } finally {
+                stats.ioThreadStopped();
+            }
+        }
+
+        private void writeFrames() {
+            ConnectionFrameQueue<OutboundFrame> outQueue = context.frameQueue();
+            while (context.isRunning()) {
+                try {
+                    // queueLockを使用してキューへのアクセスを同期
+                    queueLock.lock();
+                    try {
+                        // キューが空の場合は通知を待つ
+                        while (context.isRunning() && outQueue.isEmpty() && !context.isClosingAfterFlush()) {
+                            outputSignal.await();
+                        }
+                        // 終了フラグが立っていて、キューが空であれば終了
+                        if ((!context.isRunning() || context.isClosingAfterFlush()) && outQueue.isEmpty()) {
+                            context.stopRunning();
+                            break;
+                        }
+                    } finally {
+                        queueLock.unlock();
+                    }
+                    // 溜まっているフレームをまとめて 1 回の write/flush で送る
+                    batch.drain(outQueue);
+                    if (!batch.isEmpty()) {
+                        out.write(batch.array(), 0, batch.length());
+                        out.flush();
+                        stats.recordFlush(batch.frames(), batch.length());
+                        batch.clear();
+                        if (context.isClosingAfterFlush() && outQueue.isEmpty()) {
+                            context.stopRunning();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    // スレッドが割り込まれた場合
+                    if (context.isRunning()) {
+                        logger.warning("Output thread interrupted: " + e.getMessage());
+                    }
+                } catch (Exception e) {
+                    if (context.isRunning()) {
+                        StringWriter sw = new StringWriter();
+                        e.printStackTrace(new PrintWriter(sw));
+                        logger.warning(sw.toString());
+                        context.stopRunning();
+                    }
+                }
+            }
+            if (context.isClosingAfterFlush()) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    logger.warning("Failed to close credential-revoked socket: " + e.getMessage());
+                }
+                context.closedAfterFlush();
+            }
+            try {
+                out.close();
+            } catch (Exception e) {
+                logger.warning("Failed to close output buffer");
+                StringWriter sw = new StringWriter();
+                e.printStackTrace(new PrintWriter(sw));
+                logger.warning(sw.toString());
+            }
+        }
+    }
+}
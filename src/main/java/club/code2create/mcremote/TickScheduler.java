@@ -0,0 +1,193 @@
+package club.code2create.mcremote;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Shares one main-thread time budget per server tick between all sessions with queued frames.
+ *
+ * <p>Deficit round robin over nanoseconds: every runnable session is credited an equal quantum of
+ * the budget, runs until its credit or the tick's deadline is used up, and carries any overrun into
+ * the next tick as debt, so a client that queues slow or many commands cannot keep the main thread
+ * from the others. The starting session rotates each tick. Time left over because some sessions ran
+ * dry is handed out in a second, equally split pass. A session always finishes the frame it started;
+ * the budget bounds when the next one may begin. Main thread only.</p>
+ */
+final class TickScheduler {
+    /** One source of main-thread work, in practice a {@link RemoteSession}. */
+    interface Participant {
+        /** Whether a queued frame is waiting; checked before and after each slice. */
+        boolean hasPendingWork();
+
+        /** Starts a server tick; per-tick limits count from here across every slice of the tick. */
+        void beginTick();
+
+        /** Processes queued frames until none is left or {@code deadlineNanos} has passed. */
+        void tick(long deadlineNanos);
+    }
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final long budgetNanos;
+    private final LongSupplier clock;
+    private final Map<Participant, Lane> lanes = new IdentityHashMap<>();
+    private final List<Participant> runnable = new ArrayList<>();
+    private int rotation;
+
+    private long ticks;
+    private long busyTicks;
+    private long usedNanos;
+    private long lastUsedNanos;
+    private long exhaustedTicks;
+    private long deferrals;
+
+    TickScheduler(long budgetNanos, LongSupplier clock) {
+        if (budgetNanos < 1) {
+            throw new IllegalArgumentException("tick budget must be positive");
+        }
+        this.budgetNanos = budgetNanos;
+        this.clock = clock;
+    }
+
+    /** Runs one server tick's worth of work for {@code participants}. */
+    void runTick(Iterable<? extends Participant> participants) {
+        ticks++;
+        runnable.clear();
+        for (Participant participant : participants) {
+            if (participant.hasPendingWork()) {
+                runnable.add(participant);
+            } else {
+                // 待ち行列が空になった session は貯金を持ち越さない（負債だけは残す）。
+                Lane lane = lanes.get(participant);
+                if (lane != null) {
+                    lane.deficit = Math.min(lane.deficit, 0);
+                }
+            }
+        }
+        int count = runnable.size();
+        if (count == 0) {
+            lastUsedNanos = 0;
+            return;
+        }
+        busyTicks++;
+        // 2 巡目の slice も同じ server tick の続き。コマンド数の上限は tick 単位で数えさせる。
+        for (Participant participant : runnable) {
+            participant.beginTick();
+        }
+        long start = clock.getAsLong();
+        long deadline = start + budgetNanos;
+        long quantum = Math.max(1, budgetNanos / count);
+        int first = Math.floorMod(rotation++, count);
+
+        for (int i = 0; i < count; i++) {
+            Participant participant = runnable.get((first + i) % count);
+            Lane lane = lanes.computeIfAbsent(participant, ignored -> new Lane());
+            lane.deficit = Math.min(lane.deficit + quantum, budgetNanos);
+            long now = clock.getAsLong();
+            if (lane.deficit > 0 && now < deadline) {
+                slice(participant, lane, Math.min(now + lane.deficit, deadline), now);
+            }
+        }
+        // 早く空になった session の残り時間は、まだ仕事のある session へ均等に配る。
+        for (int i = 0; i < count; i++) {
+            long now = clock.getAsLong();
+            if (now >= deadline) {
+                break;
+            }
+            Participant participant = runnable.get((first + i) % count);
+            if (participant.hasPendingWork()) {
+                slice(participant, lanes.get(participant), now + (deadline - now) / (count - i), now);
+            }
+        }
+
+        long used = clock.getAsLong() - start;
+        lastUsedNanos = used;
+        usedNanos += used;
+        if (used >= budgetNanos) {
+            exhaustedTicks++;
+        }
+        for (Participant participant : runnable) {
+            Lane lane = lanes.get(participant);
+            if (participant.hasPendingWork()) {
+                lane.deferrals++;
+                deferrals++;
+            } else {
+                lane.deficit = Math.min(lane.deficit, 0);
+            }
+        }
+    }
+
+    private void slice(Participant participant, Lane lane, long sliceDeadline, long now) {
+        participant.tick(sliceDeadline);
+        long spent = clock.getAsLong() - now;
+        lane.usedNanos += spent;
+        // 1 frame が予算を大きく超えても、負債は 1 tick 分までに留めて永久に飢えさせない。
+        lane.deficit = Math.max(lane.deficit - spent, -budgetNanos);
+    }
+
+    /** Drops the fairness state of a closed session. */
+    void forget(Participant participant) {
+        lanes.remove(participant);
+    }
+
+    long budgetNanos() {
+        return budgetNanos;
+    }
+
+    long lastUsedNanos() {
+        return lastUsedNanos;
+    }
+
+    /** Mean main-thread time spent on session work over ticks that had any. */
+    long averageUsedNanos() {
+        return busyTicks == 0 ? 0 : usedNanos / busyTicks;
+    }
+
+    /** Ticks that ended with sessions still queued because the budget ran out, summed over sessions. */
+    long deferrals() {
+        return deferrals;
+    }
+
+    long deferrals(Participant participant) {
+        Lane lane = lanes.get(participant);
+        return lane == null ? 0 : lane.deferrals;
+    }
+
+    long usedNanos(Participant participant) {
+        Lane lane = lanes.get(participant);
+        return lane == null ? 0 : lane.usedNanos;
+    }
+
+    /** {@code /mcremote stats} 用。{@code averageTickMillis} は server の MSPT（不明なら 0 以下）。 */
+    String describe(double averageTickMillis) {
+        long maxDeferrals = 0;
+        for (Lane lane : lanes.values()) {
+            maxDeferrals = Math.max(maxDeferrals, lane.deferrals);
+        }
+        StringBuilder sb = new StringBuilder("tick budget=").append(millis(budgetNanos)).append("ms")
+                .append(" used avg=").append(millis(averageUsedNanos())).append("ms")
+                .append(" last=").append(millis(lastUsedNanos)).append("ms");
+        if (averageTickMillis > 0) {
+            sb.append(" (").append(String.format(Locale.ROOT, "%.1f",
+                    100.0 * averageUsedNanos() / (averageTickMillis * NANOS_PER_MILLI))).append("% of mspt ")
+                    .append(String.format(Locale.ROOT, "%.2f", averageTickMillis)).append(")");
+        }
+        return sb.append(", budget exhausted ").append(exhaustedTicks).append("/").append(ticks).append(" ticks")
+                .append(", deferrals=").append(deferrals).append(" max/session=").append(maxDeferrals)
+                .toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", (double) nanos / NANOS_PER_MILLI);
+    }
+
+    private static final class Lane {
+        private long deficit;
+        private long deferrals;
+        private long usedNanos;
+    }
+}
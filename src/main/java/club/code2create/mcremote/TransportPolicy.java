@@ -0,0 +1,59 @@
+package club.code2create.mcremote;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Socket transport settings read next to {@code api_port}. The I/O model is an implementation
+ * choice; {@code compression} only decides whether hello may grant a client's deflate request.
+ */
+record TransportPolicy(
+        Mode mode,
+        int selectorThreads,
+        int writeBatchBytes,
+        int maxLineBytes,
+        boolean compression,
+        int compressionMinBytes
+) {
+    static final int DEFAULT_SELECTOR_THREADS = 1;
+    static final int MIN_WRITE_BATCH_BYTES = 1_024;
+    static final int MIN_LINE_BYTES = 1_024;
+
+    enum Mode { THREADS, VIRTUAL, SELECTOR }
+
+    static TransportPolicy from(FileConfiguration config) {
+        return new TransportPolicy(
+                mode(config.getString("api_transport", "threads")),
+                Math.max(1, config.getInt("api_selector_threads", DEFAULT_SELECTOR_THREADS)),
+                Math.max(MIN_WRITE_BATCH_BYTES, config.getInt("api_write_batch_bytes", FrameBatch.DEFAULT_MAX_BYTES)),
+                Math.max(MIN_LINE_BYTES, config.getInt("api_max_line_bytes", LineFramer.DEFAULT_MAX_LINE_BYTES)),
+                config.getBoolean("api_compression", true),
+                Math.max(0, config.getInt("api_compression_min_bytes", FrameDeflater.DEFAULT_THRESHOLD_BYTES)));
+    }
+
+    /** Built-in defaults for {@code mode}, as an empty config section would yield. */
+    static TransportPolicy defaults(Mode mode) {
+        return new TransportPolicy(mode, DEFAULT_SELECTOR_THREADS, FrameBatch.DEFAULT_MAX_BYTES,
+                LineFramer.DEFAULT_MAX_LINE_BYTES, true, FrameDeflater.DEFAULT_THRESHOLD_BYTES);
+    }
+
+    /** Unknown values keep the original per-connection threads so a typo cannot take the port down. */
+    static Mode mode(String configured) {
+        String value = configured == null ? "" : configured.trim().toLowerCase(Locale.ROOT);
+        return switch (value) {
+            case "selector", "nio" -> Mode.SELECTOR;
+            case "virtual" -> Mode.VIRTUAL;
+            default -> Mode.THREADS;
+        };
+    }
+
+    /** Threads for the listener and blocking connection loops; virtual mode parks instead of holding an OS thread. */
+    ThreadFactory ioThreads() {
+        if (mode == Mode.VIRTUAL) {
+            return Thread.ofVirtual().name("McR-Conn-", 0).factory();
+        }
+        return Thread::new;
+    }
+}
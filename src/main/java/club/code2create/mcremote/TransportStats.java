@@ -0,0 +1,119 @@
+package club.code2create.mcremote;
+
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/** Process-wide connection I/O counters reported by {@code /mcremote stats}. */
+final class TransportStats implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger("McR_Transport");
+    // JDK default threshold for jdk.VirtualThreadPinned; shorter pins are not worth a readout.
+    private static final Duration PINNED_THRESHOLD = Duration.ofMillis(20);
+
+    private final AtomicInteger liveIoThreads = new AtomicInteger();
+    private final AtomicInteger peakIoThreads = new AtomicInteger();
+    private final AtomicLong pinnedEvents = new AtomicLong();
+    private final AtomicLong pinnedNanos = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushedFrames = new AtomicLong();
+    private final AtomicLong flushedBytes = new AtomicLong();
+    private final AtomicInteger maxFramesPerFlush = new AtomicInteger();
+    private RecordingStream pinningStream;
+
+    void ioThreadStarted() {
+        int live = liveIoThreads.incrementAndGet();
+        peakIoThreads.accumulateAndGet(live, Math::max);
+    }
+
+    void ioThreadStopped() {
+        liveIoThreads.decrementAndGet();
+    }
+
+    int liveIoThreads() {
+        return liveIoThreads.get();
+    }
+
+    int peakIoThreads() {
+        return peakIoThreads.get();
+    }
+
+    long pinnedEvents() {
+        return pinnedEvents.get();
+    }
+
+    /** One coalesced socket write of {@code frames} response frames. */
+    void recordFlush(int frames, int bytes) {
+        flushes.incrementAndGet();
+        flushedFrames.addAndGet(frames);
+        flushedBytes.addAndGet(bytes);
+        maxFramesPerFlush.accumulateAndGet(frames, Math::max);
+    }
+
+    long flushes() {
+        return flushes.get();
+    }
+
+    long flushedFrames() {
+        return flushedFrames.get();
+    }
+
+    int maxFramesPerFlush() {
+        return maxFramesPerFlush.get();
+    }
+
+    void recordPinned(Duration duration) {
+        pinnedEvents.incrementAndGet();
+        pinnedNanos.addAndGet(duration.toNanos());
+    }
+
+    /** Counts carrier pinning through JFR; optional because some JVM builds ship without JFR. */
+    synchronized void watchVirtualThreadPinning() {
+        if (pinningStream != null) {
+            return;
+        }
+        try {
+            RecordingStream stream = new RecordingStream();
+            stream.enable("jdk.VirtualThreadPinned").withThreshold(PINNED_THRESHOLD);
+            stream.onEvent("jdk.VirtualThreadPinned", event -> recordPinned(event.getDuration()));
+            stream.startAsync();
+            pinningStream = stream;
+        } catch (RuntimeException | Error e) {
+            logger.warning("Virtual thread pinning readout unavailable: " + e);
+        }
+    }
+
+    String describe(TransportPolicy.Mode mode) {
+        StringBuilder sb = new StringBuilder();
+        if (mode != TransportPolicy.Mode.SELECTOR) {
+            sb.append("io threads live=").append(liveIoThreads()).append(" peak=").append(peakIoThreads()).append(", ");
+        }
+        long flushCount = flushes();
+        sb.append("flushes=").append(flushCount).append(" frames=").append(flushedFrames())
+                .append(" bytes=").append(flushedBytes.get())
+                .append(" frames/flush avg=")
+                .append(flushCount == 0 ? "0" : String.format(java.util.Locale.ROOT, "%.2f",
+                        (double) flushedFrames() / flushCount))
+                .append(" max=").append(maxFramesPerFlush());
+        if (mode == TransportPolicy.Mode.VIRTUAL) {
+            sb.append(", carrier pins");
+            if (pinningStream == null) {
+                sb.append(" n/a");
+            } else {
+                sb.append(" >=").append(PINNED_THRESHOLD.toMillis()).append("ms: ").append(pinnedEvents())
+                        .append(" (").append(Duration.ofNanos(pinnedNanos.get()).toMillis()).append(" ms total)");
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (pinningStream != null) {
+            pinningStream.close();
+            pinningStream = null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package club.code2create.mcremote;
+
+import com.google.gson.JsonElement;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Per-connection envelope encoding negotiated by {@code hello}.
+ *
+ * <p>Every connection starts in {@link #JSON} (compact JSON, {@code \n}-terminated). A client that
+ * lists {@code "cbor"} in hello {@code params.encoding} and receives {@code "encoding": "cbor"} in the
+ * hello result switches both directions right after that response: each frame is then a 4-byte
+ * big-endian payload length followed by one CBOR-encoded JSON-RPC envelope. The client must not send
+ * anything between its hello and the hello response.</p>
+ *
+ * <p>If hello also grants {@code compression: "deflate"}, the same length prefix is used for JSON
+ * envelopes too (UTF-8, no {@code \n}); its top bit then marks a deflated payload
+ * ({@link FrameDeflater}).</p>
+ */
+enum WireEncoding {
+    JSON("json"),
+    CBOR("cbor");
+
+    static final int LENGTH_PREFIX_BYTES = 4;
+
+    private final String wireName;
+
+    WireEncoding(String wireName) {
+        this.wireName = wireName;
+    }
+
+    String wireName() {
+        return wireName;
+    }
+
+    /** First supported entry of the client's preference ({@code "cbor"} or {@code ["cbor","json"]}). */
+    static WireEncoding negotiate(JsonElement requested) {
+        if (requested == null || requested.isJsonNull()) {
+            return JSON;
+        }
+        if (requested.isJsonPrimitive()) {
+            WireEncoding encoding = byName(requested.getAsString());
+            return encoding == null ? JSON : encoding;
+        }
+        if (requested.isJsonArray()) {
+            for (JsonElement candidate : requested.getAsJsonArray()) {
+                WireEncoding encoding = candidate.isJsonPrimitive() ? byName(candidate.getAsString()) : null;
+                if (encoding != null) {
+                    return encoding;
+                }
+            }
+        }
+        return JSON;
+    }
+
+    private static WireEncoding byName(String name) {
+        String value = name.trim().toLowerCase(Locale.ROOT);
+        for (WireEncoding encoding : values()) {
+            if (encoding.wireName.equals(value)) {
+                return encoding;
+            }
+        }
+        return null;
+    }
+
+    /** One JSON line as it goes on the wire. */
+    static byte[] jsonFrame(String json) {
+        byte[] utf8 = json.getBytes(StandardCharsets.UTF_8);
+        byte[] frame = Arrays.copyOf(utf8, utf8.length + 1);
+        frame[utf8.length] = '\n';
+        return frame;
+    }
+
+    /** One length-prefixed CBOR frame as it goes on the wire. */
+    static byte[] cborFrame(JsonElement envelope) {
+        byte[] frame = CborCodec.encode(envelope, LENGTH_PREFIX_BYTES);
+        writeLengthPrefix(frame, frame.length - LENGTH_PREFIX_BYTES);
+        return frame;
+    }
+
+    /** Big-endian prefix word: payload length, plus {@link FrameDeflater#COMPRESSED_FLAG} when deflated. */
+    static void writeLengthPrefix(byte[] frame, int value) {
+        frame[0] = (byte) (value >>> 24);
+        frame[1] = (byte) (value >>> 16);
+        frame[2] = (byte) (value >>> 8);
+        frame[3] = (byte) value;
+    }
+}
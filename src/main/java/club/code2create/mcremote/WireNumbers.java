@@ -1,5 +1,7 @@
 package club.code2create.mcremote;
 
+import com.google.gson.JsonPrimitive;
+
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 
@@ -8,6 +10,42 @@ final class WireNumbers {
     private WireNumbers() {
     }
 
+    // 18 桁までの10進整数は long で桁あふれしない。
+    private static final int MAX_FAST_DIGITS = 18;
+
+    /**
+     * Exact integral value of a JSON number primitive. Plain integer literals and CBOR integers are
+     * read without BigDecimal/BigInteger; only fractions and exponents such as {@code 1.0} or
+     * {@code 1e0} take the exact path.
+     *
+     * @throws ArithmeticException  when the number has a fractional part or exceeds long
+     * @throws NumberFormatException when the literal is not a number
+     */
+    static long integral(JsonPrimitive number) {
+        Number value = number.getAsNumber();
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return value.longValue();
+        }
+        String literal = number.getAsString();
+        int length = literal.length();
+        int start = length > 0 && literal.charAt(0) == '-' ? 1 : 0;
+        if (length > start && length - start <= MAX_FAST_DIGITS) {
+            long magnitude = 0;
+            int i = start;
+            for (; i < length; i++) {
+                char c = literal.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                magnitude = magnitude * 10 + (c - '0');
+            }
+            if (i == length) {
+                return start == 0 ? magnitude : -magnitude;
+            }
+        }
+        return new BigDecimal(literal).toBigIntegerExact().longValueExact();
+    }
+
     static BigDecimal position(double value) {
         return decimal(value, 3);
     }
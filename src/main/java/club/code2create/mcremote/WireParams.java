@@ -4,9 +4,6 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonPrimitive;
 
-import java.math.BigDecimal;
-import java.math.BigInteger;
-
 /** Strict JSON parameter validation shared by b5 handlers. */
 final class WireParams {
     private WireParams() {
@@ -68,8 +65,7 @@ final class WireParams {
             throw new IllegalArgumentException("parameter must be a number");
         }
         try {
-            BigInteger integer = new BigDecimal(value.getAsString()).toBigIntegerExact();
-            return integer.longValueExact();
+            return WireNumbers.integral(value);
         } catch (ArithmeticException | NumberFormatException e) {
             throw new IllegalArgumentException("parameter must be an integer", e);
         }
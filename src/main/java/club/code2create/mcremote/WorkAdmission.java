@@ -1,50 +1,258 @@
 package club.code2create.mcremote;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-/** Fixed-policy per-session/player/global work admission, reset once per server tick. */
+/**
+ * Per-session/player/global work admission as token buckets refilled once per server tick.
+ *
+ * <p>Each tier refills its {@code *WorkPerTick} and holds up to {@code workBurstTicks} ticks of
+ * credit, so an idle client can spend a burst and a request larger than one tick's refill still fits
+ * eventually; a burst of 1 is the former per-tick window. With an enabled {@link AdaptiveWorkPolicy}
+ * the refill rates follow the server's MSPT between the configured floor and ceiling. The
+ * per-request limit never scales, so WORK_LIMIT_EXCEEDED stays deterministic.</p>
+ *
+ * <p>{@link #admit} is lock-free: buckets are CAS-updated counters of spent credit, and a bucket
+ * that refills completely is retired from its map, so idle clients cost nothing. Only
+ * {@link #beginTick} (main thread) refills.</p>
+ */
 final class WorkAdmission {
     enum Result { ACCEPTED, BACKPRESSURE, WORK_LIMIT_EXCEEDED }
 
+    // Paper の平均 MSPT は 100 tick の移動平均。1 tick ごとの追従は控えめにして振動させない。
+    private static final double SMOOTHING = 0.05;
+    private static final double NOMINAL_TICK_MILLIS = 50.0;
+
     private final B5RuntimePolicy policy;
-    private final Map<UUID, Integer> sessionWork = new HashMap<>();
-    private final Map<UUID, Integer> playerWork = new HashMap<>();
-    private int globalWork;
+    private final AdaptiveWorkPolicy adaptive;
+    private final ConcurrentHashMap<UUID, Bucket> sessionBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Bucket> playerBuckets = new ConcurrentHashMap<>();
+    private final Bucket globalBucket = new Bucket();
+    private volatile Limits limits;
+    private volatile double averageTickMillis;
+
+    /** Refill per tick and capacity of one tier's buckets. */
+    record Tier(long rate, long depth) {
+    }
+
+    private record Limits(double scale, Tier session, Tier player, Tier global) {
+    }
 
     WorkAdmission(B5RuntimePolicy policy) {
+        this(policy, AdaptiveWorkPolicy.fixed());
+    }
+
+    WorkAdmission(B5RuntimePolicy policy, AdaptiveWorkPolicy adaptive) {
         this.policy = policy;
+        this.adaptive = adaptive;
+        this.limits = limits(Math.min(Math.max(1.0, adaptive.minScale()), adaptive.maxScale()));
     }
 
-    synchronized void beginTick() {
-        sessionWork.clear();
-        playerWork.clear();
-        globalWork = 0;
+    void beginTick() {
+        beginTick(0);
     }
 
-    synchronized Result admit(UUID sessionEpoch, UUID player, int units) {
+    /** {@code averageTickMillis} は直近の MSPT。0 以下（未計測）なら refill 量を動かさない。main thread 専用。 */
+    void beginTick(double averageTickMillis) {
+        Limits current = limits;
+        boolean measured = averageTickMillis > 0 && Double.isFinite(averageTickMillis);
+        if (measured) {
+            this.averageTickMillis = averageTickMillis;
+        }
+        if (adaptive.enabled() && measured) {
+            double wanted = current.scale() * adaptive.targetMspt() / averageTickMillis;
+            double next = current.scale() + (wanted - current.scale()) * SMOOTHING;
+            current = limits(Math.min(Math.max(next, adaptive.minScale()), adaptive.maxScale()));
+            limits = current;
+        }
+        refill(sessionBuckets, current.session().rate());
+        refill(playerBuckets, current.player().rate());
+        globalBucket.refill(current.global().rate());
+    }
+
+    Result admit(UUID sessionEpoch, UUID player, int units) {
         if (units < 0 || units > policy.maxWorkPerRequest()) {
             return Result.WORK_LIMIT_EXCEEDED;
         }
-        int nextSession = safeAdd(sessionWork.getOrDefault(sessionEpoch, 0), units);
-        int nextPlayer = player == null ? 0 : safeAdd(playerWork.getOrDefault(player, 0), units);
-        int nextGlobal = safeAdd(globalWork, units);
-        if (nextSession > policy.sessionWorkPerTick()
-                || player != null && nextPlayer > policy.playerWorkPerTick()
-                || nextGlobal > policy.globalWorkPerTick()) {
+        Limits current = limits;
+        if (!take(sessionBuckets, sessionEpoch, units, current.session().depth())) {
             return Result.BACKPRESSURE;
         }
-        sessionWork.put(sessionEpoch, nextSession);
-        if (player != null) {
-            playerWork.put(player, nextPlayer);
+        if (player != null && !take(playerBuckets, player, units, current.player().depth())) {
+            refund(sessionBuckets, sessionEpoch, units);
+            return Result.BACKPRESSURE;
+        }
+        if (!globalBucket.take(units, current.global().depth())) {
+            refund(sessionBuckets, sessionEpoch, units);
+            if (player != null) {
+                refund(playerBuckets, player, units);
+            }
+            return Result.BACKPRESSURE;
         }
-        globalWork = nextGlobal;
         return Result.ACCEPTED;
     }
 
-    private static int safeAdd(int left, int right) {
-        long sum = (long) left + right;
-        return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+    /**
+     * Error {@code data} for a BACKPRESSURE answer to {@code units}: when the buckets will have
+     * refilled enough ({@code retry_after_ticks}, and {@code retry_after_ms} at the current MSPT but
+     * no faster than 20 TPS) plus each tier's current credit. The estimate assumes no other client
+     * spends meanwhile; both retry fields are null when the current depth can never hold the request.
+     */
+    Map<String, Object> backpressureData(UUID sessionEpoch, UUID player, int units) {
+        Limits current = limits;
+        Map<String, Object> budget = new LinkedHashMap<>();
+        long ticks = snapshot(budget, "session", sessionBuckets.get(sessionEpoch), current.session(), units);
+        if (player != null) {
+            ticks = Math.max(ticks, snapshot(budget, "player", playerBuckets.get(player), current.player(), units));
+        }
+        ticks = Math.max(ticks, snapshot(budget, "global", globalBucket, current.global(), units));
+        Map<String, Object> data = new LinkedHashMap<>();
+        if (ticks == Long.MAX_VALUE) {
+            data.put("retry_after_ticks", null);
+            data.put("retry_after_ms", null);
+        } else {
+            double tickMillis = Math.max(NOMINAL_TICK_MILLIS, averageTickMillis);
+            data.put("retry_after_ticks", ticks);
+            data.put("retry_after_ms", (long) Math.ceil(ticks * tickMillis));
+        }
+        data.put("units", units);
+        data.put("budget", budget);
+        return data;
+    }
+
+    /** Puts one tier's credit into {@code budget} and returns the refills it needs for {@code units}. */
+    private static long snapshot(Map<String, Object> budget, String name, Bucket bucket, Tier tier, long units) {
+        long used = bucket == null ? 0 : Math.max(0, bucket.used.get());
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("available", Math.max(0, tier.depth() - used));
+        entry.put("depth", tier.depth());
+        entry.put("refill_per_tick", tier.rate());
+        budget.put(name, entry);
+        if (units > tier.depth()) {
+            return Long.MAX_VALUE;
+        }
+        long missing = used + units - tier.depth();
+        return missing <= 0 ? 0 : (missing + tier.rate() - 1) / tier.rate();
+    }
+
+    double scale() {
+        return limits.scale();
+    }
+
+    Tier sessionTier() {
+        return limits.session();
+    }
+
+    Tier playerTier() {
+        return limits.player();
+    }
+
+    Tier globalTier() {
+        return limits.global();
+    }
+
+    /** 現在の depth で受理され得る最大 units（session・player・global の最小）。job の slice 上限。 */
+    long admissibleUnits(UUID player) {
+        Limits current = limits;
+        long depth = Math.min(current.session().depth(), current.global().depth());
+        return player == null ? depth : Math.min(depth, current.player().depth());
+    }
+
+    /** {@code /mcremote stats} 用。 */
+    String describe() {
+        Limits current = limits;
+        StringBuilder sb = new StringBuilder("work budget ")
+                .append(String.format(Locale.ROOT, "x%.2f", current.scale()))
+                .append(": session=").append(describe(current.session()))
+                .append(" player=").append(describe(current.player()))
+                .append(" global=").append(describe(current.global()))
+                .append(", in debt: sessions=").append(sessionBuckets.size())
+                .append(" players=").append(playerBuckets.size())
+                .append(" global=").append(Math.max(0, globalBucket.used.get()));
+        if (adaptive.enabled()) {
+            sb.append(String.format(Locale.ROOT, " (adaptive, target %.1f mspt, x%.2f..x%.2f)",
+                    adaptive.targetMspt(), adaptive.minScale(), adaptive.maxScale()));
+        }
+        return sb.toString();
+    }
+
+    private static String describe(Tier tier) {
+        return tier.rate() + "/tick depth " + tier.depth();
+    }
+
+    private Limits limits(double scale) {
+        return new Limits(scale,
+                tier(policy.sessionWorkPerTick(), scale),
+                tier(policy.playerWorkPerTick(), scale),
+                tier(policy.globalWorkPerTick(), scale));
+    }
+
+    /** 縮小しても、固定設定で通り得た1要求分は bucket に必ず収まるようにする。 */
+    private Tier tier(int configured, double scale) {
+        long burst = policy.workBurstTicks();
+        long rate = Math.max(1, (long) Math.min(configured * scale, Integer.MAX_VALUE));
+        long depth = Math.max(rate * burst, Math.min(configured * burst, policy.maxWorkPerRequest()));
+        return new Tier(rate, depth);
+    }
+
+    private static boolean take(ConcurrentHashMap<UUID, Bucket> buckets, UUID key, long units, long depth) {
+        while (true) {
+            Bucket bucket = buckets.computeIfAbsent(key, ignored -> new Bucket());
+            long used = bucket.used.get();
+            if (used == Bucket.RETIRED) {
+                // 満タンで外された直後の bucket。map から外し終えてから引き直す。
+                buckets.remove(key, bucket);
+                continue;
+            }
+            if (used + units > depth) {
+                return false;
+            }
+            if (bucket.used.compareAndSet(used, used + units)) {
+                return true;
+            }
+        }
+    }
+
+    private static void refund(ConcurrentHashMap<UUID, Bucket> buckets, UUID key, long units) {
+        Bucket bucket = buckets.get(key);
+        if (bucket != null) {
+            bucket.used.updateAndGet(used -> used == Bucket.RETIRED ? used : Math.max(0, used - units));
+        }
+    }
+
+    private static void refill(ConcurrentHashMap<UUID, Bucket> buckets, long rate) {
+        for (Map.Entry<UUID, Bucket> entry : buckets.entrySet()) {
+            Bucket bucket = entry.getValue();
+            if (bucket.refill(rate) == 0 && bucket.used.compareAndSet(0, Bucket.RETIRED)) {
+                buckets.remove(entry.getKey(), bucket);
+            }
+        }
+    }
+
+    /** Spent credit of one bucket; 0 is full. A missing map entry is a full bucket. */
+    private static final class Bucket {
+        private static final long RETIRED = -1;
+
+        private final AtomicLong used = new AtomicLong();
+
+        boolean take(long units, long depth) {
+            while (true) {
+                long current = used.get();
+                if (current + units > depth) {
+                    return false;
+                }
+                if (used.compareAndSet(current, current + units)) {
+                    return true;
+                }
+            }
+        }
+
+        long refill(long rate) {
+            return used.updateAndGet(current -> current == RETIRED ? current : Math.max(0, current - rate));
+        }
     }
 }
@@ -188,10 +188,7 @@ final class WorldB5Commands {
         if (result == WorkAdmission.Result.ACCEPTED) {
             return true;
         }
-        session.respondError(-32000,
-                result == WorkAdmission.Result.BACKPRESSURE
-                        ? "backpressure" : "work_limit_exceeded",
-                null);
+        session.respondWorkError(result, units);
         return false;
     }
 
@@ -4,6 +4,7 @@ import com.google.gson.Gson;
 import org.bukkit.event.Event;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,14 +20,14 @@ class B5EventDtoTest {
     void rightClickShapeIsStableAndImmutable() {
         Map<String, Object> dto = B5EventDto.blockRightClick(
                 "world", List.of(200, 0, 200), List.of(1, 2, 3),
-                "up", blockValue("minecraft:stone", Map.of()), "main");
+                "up", RawJson.of(blockValue("minecraft:stone", Map.of())), "main");
 
         assertEquals(
                 "{\"type\":\"block_right_click\",\"world\":\"world\","
                         + "\"origin\":[200,0,200],\"pos\":[1,2,3],\"face\":\"up\","
                         + "\"block\":{\"block_id\":\"minecraft:stone\",\"state\":{}},"
                         + "\"hand\":\"main\"}",
-                GSON.toJson(dto));
+                new String(ResponseWriter.encode(dto), StandardCharsets.UTF_8));
         assertThrows(UnsupportedOperationException.class, () -> dto.put("x", 1));
     }
 
@@ -0,0 +1,106 @@
+package club.code2create.mcremote;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchRunTest {
+    private final CommandParser parser = new CommandParser();
+    private final List<String> executed = new ArrayList<>();
+    private int deferrals;
+    private boolean closing;
+
+    @Test
+    void answersInArrayOrderIncludingInvalidElementsWithAnId() {
+        BatchRun run = new BatchRun(batch(request(1, "a") + "," + notification("b") + ",{\"id\":2,\"method\":\"x\"},"
+                + "{\"method\":\"y\"}," + request(3, "c")));
+
+        assertTrue(run.resume(executor(run)));
+
+        assertEquals(List.of("a", "b", "c"), executed);
+        assertEquals(List.of("1:a", "2:invalid_request", "3:c"), run.takeResponses());
+    }
+
+    @Test
+    void notificationOnlyBatchHasNoResponses() {
+        BatchRun run = new BatchRun(batch(notification("a") + "," + notification("b") + ",{\"method\":\"x\"}"));
+
+        assertTrue(run.resume(executor(run)));
+
+        assertEquals(List.of("a", "b"), executed);
+        assertTrue(run.takeResponses().isEmpty());
+    }
+
+    @Test
+    void deferredElementResumesWithoutReRunningEarlierOnes() {
+        BatchRun run = new BatchRun(batch(request(1, "a") + "," + request(2, "defer") + "," + request(3, "c")));
+        deferrals = 1;
+
+        assertFalse(run.resume(executor(run)));
+        assertEquals(List.of("a"), executed);
+
+        assertTrue(run.resume(executor(run)));
+        assertEquals(List.of("a", "defer", "c"), executed);
+        assertEquals(List.of("1:a", "2:defer", "3:c"), run.takeResponses());
+    }
+
+    @Test
+    void closingConnectionStopsTheRemainingElements() {
+        BatchRun run = new BatchRun(batch(request(1, "a") + "," + request(2, "close") + "," + request(3, "c")));
+
+        assertTrue(run.resume(executor(run)));
+
+        assertEquals(List.of("a", "close"), executed);
+        assertEquals(List.of("1:a", "2:close"), run.takeResponses());
+    }
+
+    /** RemoteSession と同じく、id の無い要素には応答しない。 */
+    private BatchRun.Executor executor(BatchRun run) {
+        return new BatchRun.Executor() {
+            @Override
+            public boolean execute(ParsedCommand command) {
+                if (command.getName().equals("defer") && deferrals > 0) {
+                    deferrals--;
+                    return false;
+                }
+                executed.add(command.getName());
+                closing = command.getName().equals("close");
+                if (command.getId() != null) {
+                    run.respond(command.getId() + ":" + command.getName());
+                }
+                return true;
+            }
+
+            @Override
+            public void reject(MalformedFrame element) {
+                if (element.id() != null) {
+                    run.respond(element.id() + ":invalid_request");
+                }
+            }
+
+            @Override
+            public boolean stopped() {
+                return closing;
+            }
+        };
+    }
+
+    private ParsedBatch batch(String elements) {
+        byte[] frame = ("[" + elements + "]").getBytes(StandardCharsets.UTF_8);
+        return (ParsedBatch) parser.parseFrame(frame, 0, frame.length, WireEncoding.JSON);
+    }
+
+    private static String request(int id, String method) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"method\":\"" + method + "\",\"params\":[]}";
+    }
+
+    private static String notification(String method) {
+        return "{\"jsonrpc\":\"2.0\",\"method\":\"" + method + "\",\"params\":[]}";
+    }
+}
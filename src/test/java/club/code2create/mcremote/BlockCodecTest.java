@@ -5,6 +5,8 @@ import org.bukkit.block.data.BlockData;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
@@ -20,6 +22,7 @@ class BlockCodecTest {
             "minecraft:wheat", Map.of("age", List.of(0, 1, 2, 3, 4, 5, 6, 7)),
             "example:machine", Map.of("powered", List.of(false, true))
     );
+    private static final BlockStateIndex INDEX = BlockStateIndex.of(BLOCKS);
 
     @Test
     void acceptsShortIdPartialStateAndNativeNumber() throws Exception {
@@ -106,6 +109,60 @@ class BlockCodecTest {
         assertEquals("w", invalidValue.data.get("value"));
     }
 
+    @Test
+    void comparesNumbersAsExactIntegersWithoutLosingTheReportedValue() throws Exception {
+        AtomicReference<String> serialized = new AtomicReference<>();
+        BlockCodec codec = codec(serialized);
+
+        codec.decode(JsonParser.parseString(
+                "{\"block_id\":\"wheat\",\"state\":{\"age\":7e0}}"), "params[3]");
+        assertEquals("minecraft:wheat[age=7]", serialized.get());
+
+        BlockCodec.ValidationException fraction = exception(codec,
+                "{\"block_id\":\"wheat\",\"state\":{\"age\":3.5}}");
+        assertEquals("invalid_property_value", fraction.reason);
+        assertEquals(new BigDecimal("3.5"), fraction.data.get("value"));
+
+        BlockCodec.ValidationException huge = exception(codec,
+                "{\"block_id\":\"wheat\",\"state\":{\"age\":100000000000000000000}}");
+        assertEquals("invalid_property_value", huge.reason);
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7), huge.data.get("allowed"));
+
+        BlockCodec.ValidationException numberForBoolean = exception(codec,
+                "{\"block_id\":\"example:machine\",\"state\":{\"powered\":1}}");
+        assertEquals("invalid_property_value", numberForBoolean.reason);
+    }
+
+    @Test
+    void cachedDecodeParsesOnceAndKeepsValidationErrorsIdentical() throws Exception {
+        List<String> parsed = new ArrayList<>();
+        BlockDataCache cache = new BlockDataCache(8);
+        BlockCodec cached = new BlockCodec(INDEX, value -> {
+            parsed.add(value);
+            return BlockDataCacheTest.blockData(value);
+        }, cache);
+        BlockCodec uncached = codec(new AtomicReference<>());
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("minecraft:oak_log[axis=z]", cached.decode(JsonParser.parseString(
+                    "{\"block_id\":\"oak_log\",\"state\":{\"axis\":\"z\"}}"), "params[3]").getAsString());
+        }
+        assertEquals(List.of("minecraft:oak_log[axis=z]"), parsed);
+        assertEquals(2, cache.hits());
+
+        for (String json : List.of(
+                "{\"block_id\":\"missing\",\"state\":{}}",
+                "{\"block_id\":\"stone\",\"state\":{\"axis\":\"z\"}}",
+                "{\"block_id\":\"oak_log\",\"state\":{\"axis\":\"w\"}}",
+                "{\"block_id\":\"oak_log\",\"state\":{\"axis\":[\"z\"]}}")) {
+            BlockCodec.ValidationException expected = exception(uncached, json);
+            BlockCodec.ValidationException actual = exception(cached, json);
+            assertEquals(expected.reason, actual.reason);
+            assertEquals(expected.data, actual.data);
+        }
+        assertEquals(1, cache.size());
+    }
+
     @Test
     void emitsFullyQualifiedBlockValueWithFullSortedState() {
         Map<String, Object> value = BlockCodec.encode(blockData(
@@ -119,7 +176,7 @@ class BlockCodecTest {
     }
 
     private static BlockCodec codec(AtomicReference<String> serialized) {
-        return new BlockCodec(BLOCKS::get, value -> {
+        return new BlockCodec(INDEX, value -> {
             serialized.set(value);
             return blockData(value);
         });
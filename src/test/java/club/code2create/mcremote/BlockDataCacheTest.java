@@ -0,0 +1,67 @@
+package club.code2create.mcremote;
+
+import org.bukkit.block.data.BlockData;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockDataCacheTest {
+    private final List<String> parsed = new ArrayList<>();
+
+    @Test
+    void hitsReturnClonesWithoutParsingAgain() {
+        BlockDataCache cache = new BlockDataCache(4);
+
+        BlockData first = cache.get("minecraft:stone", this::parse);
+        BlockData second = cache.get("minecraft:stone", this::parse);
+        BlockData third = cache.get("minecraft:stone", this::parse);
+
+        assertEquals(List.of("minecraft:stone"), parsed);
+        assertEquals("minecraft:stone", second.getAsString());
+        assertNotSame(first, second);
+        assertNotSame(second, third);
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+        assertTrue(cache.describe().contains("hits=2 misses=1 evictions=0"));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedState() {
+        BlockDataCache cache = new BlockDataCache(2);
+        cache.get("minecraft:stone", this::parse);
+        cache.get("minecraft:dirt", this::parse);
+        cache.get("minecraft:stone", this::parse);
+
+        cache.get("minecraft:sand", this::parse);
+        cache.get("minecraft:stone", this::parse);
+        cache.get("minecraft:dirt", this::parse);
+
+        assertEquals(List.of("minecraft:stone", "minecraft:dirt", "minecraft:sand", "minecraft:dirt"), parsed);
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.evictions());
+    }
+
+    private BlockData parse(String serialized) {
+        parsed.add(serialized);
+        return blockData(serialized);
+    }
+
+    static BlockData blockData(String serialized) {
+        return (BlockData) Proxy.newProxyInstance(
+                BlockData.class.getClassLoader(),
+                new Class<?>[]{BlockData.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getAsString", "toString" -> serialized;
+                    case "clone" -> blockData(serialized);
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+}
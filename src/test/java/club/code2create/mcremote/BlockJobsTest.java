@@ -0,0 +1,166 @@
+package club.code2create.mcremote;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockJobsTest {
+    private final List<String> writes = new ArrayList<>();
+    private final List<BlockJobs.Job> finished = new ArrayList<>();
+    private final List<Integer> admitted = new ArrayList<>();
+    private long credit;
+
+    @Test
+    void slicesAreAdmittedUntilTheBudgetRunsOutAndResumeNextTick() {
+        BlockJobs jobs = new BlockJobs(2, 10);
+        BlockJobs.Job job = jobs.submit(cuboid("a", 4, 2, 4), "world", List.of(0, 64, 0));
+
+        credit = 25;
+        jobs.step(this::admit, () -> Long.MAX_VALUE, () -> true, finished::add);
+        assertEquals(List.of(10, 10), admitted);
+        assertEquals(20, job.written());
+        assertEquals(BlockJobs.State.RUNNING, job.state());
+        assertTrue(finished.isEmpty());
+
+        credit = 100;
+        jobs.step(this::admit, () -> Long.MAX_VALUE, () -> true, finished::add);
+        assertEquals(List.of(10, 10, 10, 2), admitted);
+        assertEquals(BlockJobs.State.DONE, job.state());
+        assertEquals(List.of(job), finished);
+        assertEquals(32, writes.size());
+        assertTrue(!jobs.hasActive());
+        assertEquals("done", job.status().get("state"));
+        assertEquals(32L, job.status().get("written"));
+    }
+
+    @Test
+    void slicesShrinkToADepthSmallerThanTheSliceSize() {
+        BlockJobs jobs = new BlockJobs(2, 10);
+        BlockJobs.Job job = jobs.submit(cuboid("a", 3, 1, 3), "world", List.of(0, 0, 0));
+
+        // depth 4 の bucket が毎 tick 4 ずつ戻る。slice 10 のままでは永久に BACKPRESSURE になる。
+        for (int tick = 0; tick < 3; tick++) {
+            credit = 4;
+            jobs.step(this::admit, () -> 4, () -> true, finished::add);
+        }
+
+        assertEquals(List.of(4, 4, 1), admitted);
+        assertEquals(BlockJobs.State.DONE, job.state());
+        assertEquals(List.of(job), finished);
+        assertEquals(9, writes.size());
+    }
+
+    @Test
+    void jobsRunOneAtATimeInSubmissionOrderWithinTheTimeBudget() {
+        BlockJobs jobs = new BlockJobs(4, 8);
+        BlockJobs.Job first = jobs.submit(cuboid("a", 2, 2, 2), "world", List.of(0, 0, 0));
+        BlockJobs.Job second = jobs.submit(cuboid("b", 2, 2, 2), "world", List.of(0, 0, 0));
+        credit = Long.MAX_VALUE;
+
+        int[] slices = {0};
+        jobs.step(this::admit, () -> Long.MAX_VALUE, () -> slices[0]++ < 1, finished::add);
+        assertEquals(BlockJobs.State.DONE, first.state());
+        assertEquals(BlockJobs.State.QUEUED, second.state());
+
+        jobs.step(this::admit, () -> Long.MAX_VALUE, () -> true, finished::add);
+        assertEquals(List.of(first, second), finished);
+        assertTrue(writes.subList(0, 8).stream().allMatch(write -> write.startsWith("a")));
+        assertTrue(writes.subList(8, 16).stream().allMatch(write -> write.startsWith("b")));
+    }
+
+    @Test
+    void cancelStopsAnActiveJobAndCapacityBoundsActiveAndRetainedJobs() {
+        BlockJobs jobs = new BlockJobs(2, 4);
+        BlockJobs.Job first = jobs.submit(cuboid("a", 2, 2, 2), "world", List.of(0, 0, 0));
+        jobs.submit(cuboid("b", 2, 2, 2), "world", List.of(0, 0, 0));
+        BlockJobs.CapacityException full = assertThrows(BlockJobs.CapacityException.class,
+                () -> jobs.submit(cuboid("c", 1, 1, 1), "world", List.of(0, 0, 0)));
+        assertEquals(2, full.limit());
+
+        credit = 4;
+        jobs.step(this::admit, () -> Long.MAX_VALUE, () -> true, finished::add);
+        assertSame(first, jobs.cancel(first.id(), finished::add));
+        assertEquals(BlockJobs.State.CANCELLED, first.state());
+        assertEquals(4, first.written());
+        assertSame(first, jobs.cancel(first.id(), finished::add));
+        assertEquals(List.of(first), finished);
+        assertNull(jobs.cancel(99, finished::add));
+
+        BlockJobs.Job third = jobs.submit(cuboid("c", 1, 1, 1), "world", List.of(0, 0, 0));
+        jobs.cancel(third.id(), finished::add);
+        BlockJobs.Job fourth = jobs.submit(cuboid("d", 1, 1, 1), "world", List.of(0, 0, 0));
+        jobs.cancel(fourth.id(), finished::add);
+        // 終了済みは capacity 件まで。最も古い first は忘れられる。
+        assertNull(jobs.find(first.id()));
+        assertSame(fourth, jobs.find(fourth.id()));
+    }
+
+    @Test
+    void statusReportsChangedBlocksOnlyForDiffJobs() {
+        BlockJobs jobs = new BlockJobs(2, 8);
+        long[] changed = {0};
+        BlockJobs.Job diff = jobs.submit(cuboid("a", 2, 1, 2), "world", List.of(0, 0, 0), () -> changed[0]);
+        BlockJobs.Job plain = jobs.submit(cuboid("b", 2, 1, 2), "world", List.of(0, 0, 0));
+        credit = 100;
+        changed[0] = 3;
+
+        jobs.step(this::admit, () -> Long.MAX_VALUE, () -> true, finished::add);
+
+        assertEquals(3L, diff.status().get("changed"));
+        assertTrue(plain.status().containsKey("changed"));
+        assertNull(plain.status().get("changed"));
+    }
+
+    @Test
+    void aFailingWriteFinishesTheJobAsFailed() {
+        BlockJobs jobs = new BlockJobs(1, 4);
+        BlockJobs.Job job = jobs.submit(new ChunkOrderedFill.Cursor<>(0, 0, 0, 1, 1, 1,
+                new ChunkOrderedFill.ChunkWriter<Object>() {
+                    @Override
+                    public Object chunk(int chunkX, int chunkZ) {
+                        throw new IllegalStateException("world unloaded");
+                    }
+
+                    @Override
+                    public void write(Object chunk, int localX, int y, int localZ) {
+                    }
+                }), "world", List.of(0, 0, 0));
+        credit = 100;
+
+        jobs.step(this::admit, () -> Long.MAX_VALUE, () -> true, finished::add);
+
+        assertEquals(BlockJobs.State.FAILED, job.state());
+        assertEquals(List.of(job), finished);
+    }
+
+    private WorkAdmission.Result admit(int units) {
+        if (units > credit) {
+            return WorkAdmission.Result.BACKPRESSURE;
+        }
+        credit -= units;
+        admitted.add(units);
+        return WorkAdmission.Result.ACCEPTED;
+    }
+
+    private ChunkOrderedFill.Cursor<String> cuboid(String name, int sizeX, int sizeY, int sizeZ) {
+        return new ChunkOrderedFill.Cursor<>(0, 0, 0, sizeX - 1, sizeY - 1, sizeZ - 1,
+                new ChunkOrderedFill.ChunkWriter<>() {
+                    @Override
+                    public String chunk(int chunkX, int chunkZ) {
+                        return name;
+                    }
+
+                    @Override
+                    public void write(String chunk, int localX, int y, int localZ) {
+                        writes.add(chunk + localX + "," + y + "," + localZ);
+                    }
+                });
+    }
+}
@@ -0,0 +1,68 @@
+package club.code2create.mcremote;
+
+import org.bukkit.block.data.BlockData;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BlockPaletteTest {
+    @Test
+    void equalStatesShareAnIdAcrossDefinitions() {
+        BlockPalette palette = new BlockPalette(4);
+        BlockData stone = blockData("minecraft:stone");
+
+        assertArrayEquals(new int[] {0, 1, 0}, palette.define(List.of(
+                stone, blockData("minecraft:oak_log[axis=y]"), blockData("minecraft:stone"))));
+        assertArrayEquals(new int[] {1, 2}, palette.define(List.of(
+                blockData("minecraft:oak_log[axis=y]"), blockData("minecraft:oak_log[axis=x]"))));
+
+        assertSame(stone, palette.get(0));
+        assertEquals(3, palette.size());
+        assertNull(palette.get(3));
+        assertNull(palette.get(-1));
+    }
+
+    @Test
+    void aDefinitionThatDoesNotFitIsRejectedWhole() {
+        BlockPalette palette = new BlockPalette(2);
+        palette.define(List.of(blockData("minecraft:stone")));
+
+        BlockPalette.CapacityException full = assertThrows(BlockPalette.CapacityException.class,
+                () -> palette.define(List.of(blockData("minecraft:dirt"), blockData("minecraft:sand"))));
+        assertEquals(2, full.limit());
+        assertEquals(1, palette.size());
+        // 既存の state だけなら容量を消費しない。
+        assertArrayEquals(new int[] {0, 1}, palette.define(List.of(
+                blockData("minecraft:stone"), blockData("minecraft:dirt"))));
+    }
+
+    @Test
+    void clearForgetsEveryId() {
+        BlockPalette palette = new BlockPalette(2);
+        palette.define(List.of(blockData("minecraft:stone")));
+
+        palette.clear();
+
+        assertNull(palette.get(0));
+        assertEquals(0, palette.size());
+    }
+
+    private static BlockData blockData(String serialized) {
+        return (BlockData) Proxy.newProxyInstance(
+                BlockData.class.getClassLoader(),
+                new Class<?>[]{BlockData.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getAsString", "toString" -> serialized;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+}
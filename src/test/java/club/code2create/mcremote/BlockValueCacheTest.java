@@ -0,0 +1,61 @@
+package club.code2create.mcremote;
+
+import org.bukkit.block.data.BlockData;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BlockValueCacheTest {
+    @Test
+    void equalStatesShareOneEncodedValue() {
+        BlockValueCache cache = new BlockValueCache(4);
+        BlockData first = blockData("minecraft:oak_log[axis=z]");
+
+        RawJson encoded = cache.encode(first);
+        RawJson again = cache.encode(blockData("minecraft:oak_log[axis=z]"));
+
+        assertSame(encoded, again);
+        assertEquals(BlockCodec.encode(first), encoded.value());
+        assertArrayEquals(ResponseWriter.encode(BlockCodec.encode(first)), encoded.utf8());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> value = (Map<String, Object>) encoded.value();
+        assertThrows(UnsupportedOperationException.class, () -> value.put("block_id", "minecraft:air"));
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedState() {
+        BlockValueCache cache = new BlockValueCache(2);
+        RawJson stone = cache.encode(blockData("minecraft:stone"));
+        cache.encode(blockData("minecraft:dirt"));
+        cache.encode(blockData("minecraft:stone"));
+        cache.encode(blockData("minecraft:sand"));
+
+        assertSame(stone, cache.encode(blockData("minecraft:stone")));
+        assertEquals(1, cache.evictions());
+        assertNotSame(cache.encode(blockData("minecraft:dirt")), cache.encode(blockData("minecraft:sand")));
+        assertEquals(2, cache.size());
+    }
+
+    /** Equality by state string, as the server's BlockData compares block states. */
+    static BlockData blockData(String serialized) {
+        return (BlockData) Proxy.newProxyInstance(
+                BlockData.class.getClassLoader(),
+                new Class<?>[]{BlockData.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getAsString", "toString" -> serialized;
+                    case "clone" -> blockData(serialized);
+                    case "hashCode" -> serialized.hashCode();
+                    case "equals" -> args[0] instanceof BlockData other && serialized.equals(other.getAsString());
+                    default -> null;
+                });
+    }
+}
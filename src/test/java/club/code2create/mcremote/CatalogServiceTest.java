@@ -0,0 +1,108 @@
+package club.code2create.mcremote;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogServiceTest {
+    @Test
+    void matchingHashAnswersNotModified() {
+        CatalogService catalog = catalog("minecraft:zombie");
+
+        Object result = catalog.conditionalResponse(catalog.getCatalogHash(), null);
+
+        assertEquals("{\"catalogHash\":\"" + catalog.getCatalogHash() + "\",\"not_modified\":true}",
+                json(result));
+    }
+
+    @Test
+    void staleHashGetsOnlyTheChangedSections() {
+        CatalogService previous = catalog("minecraft:zombie");
+        CatalogService current = catalog("minecraft:creeper");
+
+        Object result = current.conditionalResponse(previous.getCatalogHash(), previous.getSectionHashes());
+
+        assertEquals(previous.getSectionHashes().get("block"), current.getSectionHashes().get("block"));
+        assertNotEquals(previous.getSectionHashes().get("entity"), current.getSectionHashes().get("entity"));
+        assertEquals("{\"catalogHash\":\"" + current.getCatalogHash() + "\",\"sections\":" + sections(current)
+                + ",\"delta\":[\"entity\"],\"entity\":{\"minecraft:creeper\":{}}}", json(result));
+    }
+
+    @Test
+    void fullCatalogCarriesSectionHashesForTheNextDeltaRequest() {
+        CatalogService catalog = catalog("minecraft:zombie");
+
+        String full = json(catalog.getEncodedResponse());
+
+        assertEquals(List.of("block", "entity", "particle"), List.copyOf(catalog.getSectionHashes().keySet()));
+        assertTrue(full.startsWith("{\"catalogHash\":\"" + catalog.getCatalogHash()
+                + "\",\"sections\":" + sections(catalog) + ",\"block\":"), full);
+    }
+
+    @Test
+    void staleHashWithoutSectionsGetsTheFullCatalog() {
+        CatalogService current = catalog("minecraft:creeper");
+
+        assertSame(current.getEncodedResponse(), current.conditionalResponse("0".repeat(64), null));
+        assertSame(current.getEncodedResponse(), current.conditionalResponse("0".repeat(64),
+                Map.of("block", "x", "entity", "y", "particle", "z")));
+    }
+
+    @Test
+    void compilesTheBlockSectionIntoATypedStateIndex() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("block", Map.of(
+                "minecraft:stone", Map.of("states", Map.of(), "default_state", Map.of()),
+                "minecraft:wheat", Map.of(
+                        "states", Map.of("age", List.of(0, 1, 2, 3, 4, 5, 6, 7)),
+                        "default_state", Map.of("age", 0)),
+                "minecraft:oak_stairs", Map.of(
+                        "states", Map.of("waterlogged", List.of(false, true), "facing", List.of("east", "north")),
+                        "default_state", Map.of())));
+        body.put("entity", Map.of());
+        body.put("particle", Map.of());
+        CatalogService catalog = new CatalogService(body, false);
+
+        BlockStateIndex.Block stairs = catalog.getBlockStates().block("minecraft:oak_stairs");
+        assertEquals("facing", stairs.property(0).name());
+        assertEquals("waterlogged", stairs.property(1).name());
+        assertEquals(Boolean.TRUE, stairs.property("waterlogged").match(true));
+        assertEquals("north", stairs.property("facing").match("north"));
+        assertNull(stairs.property("facing").match("up"));
+        assertEquals(3, catalog.getBlockStates().block("minecraft:wheat").property("age").match(3L));
+        assertNull(catalog.getBlockStates().block("minecraft:wheat").property("age").match(8L));
+        assertEquals(0, catalog.getBlockStates().block("minecraft:stone").propertyCount());
+        assertNull(catalog.getBlockStates().block("minecraft:dirt"));
+        assertEquals(List.of(false, true), catalog.getAllowedBlockStateValues("minecraft:oak_stairs", "waterlogged"));
+        assertEquals(List.of(), catalog.getAllowedBlockStateValues("minecraft:dirt", "waterlogged"));
+    }
+
+    private static CatalogService catalog(String entity) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("block", Map.of("minecraft:stone", Map.of(
+                "states", Map.of(), "default_state", Map.of())));
+        body.put("entity", Map.of(entity, Map.of()));
+        body.put("particle", Map.of("minecraft:flame", Map.of()));
+        return new CatalogService(body, false);
+    }
+
+    private static String sections(CatalogService catalog) {
+        Map<String, String> hashes = catalog.getSectionHashes();
+        return "{\"block\":\"" + hashes.get("block") + "\",\"entity\":\"" + hashes.get("entity")
+                + "\",\"particle\":\"" + hashes.get("particle") + "\"}";
+    }
+
+    private static String json(Object result) {
+        return new String(ResponseWriter.encode(result), StandardCharsets.UTF_8);
+    }
+
+}
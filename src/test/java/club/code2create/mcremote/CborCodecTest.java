@@ -0,0 +1,73 @@
+package club.code2create.mcremote;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CborCodecTest {
+    private static final HexFormat HEX = HexFormat.of();
+
+    @Test
+    void encodesRfc8949VectorsInShortestForm() {
+        assertHex("00", "0");
+        assertHex("17", "23");
+        assertHex("1818", "24");
+        assertHex("1903e8", "1000");
+        assertHex("3863", "-100");
+        assertHex("fa3fc00000", "1.5");
+        assertHex("fb3ff199999999999a", "1.1");
+        assertHex("f5", "true");
+        assertHex("f6", "null");
+        assertHex("6449455446", "\"IETF\"");
+        assertHex("83010203", "[1,2,3]");
+        assertHex("a26161016162820203", "{\"a\":1,\"b\":[2,3]}");
+    }
+
+    @Test
+    void roundTripsEnvelopesKeepingIntegerAndFloatDistinct() {
+        JsonElement envelope = JsonParser.parseString(
+                "{\"jsonrpc\":\"2.0\",\"id\":7,\"method\":\"world.setBlocks\","
+                        + "\"params\":[-12,64,30000000,1.0,\"minecraft:oak_stairs[facing=east]\",null,false]}");
+        byte[] encoded = CborCodec.encode(envelope, 0);
+
+        JsonElement decoded = CborCodec.decode(encoded, 0, encoded.length);
+        assertEquals(envelope.toString(), decoded.toString());
+        assertEquals("7", decoded.getAsJsonObject().get("id").getAsString());
+        assertEquals("1.0", decoded.getAsJsonObject().getAsJsonArray("params").get(3).getAsString());
+    }
+
+    @Test
+    void decodesIndefiniteLengthItemsAndHalfFloats() {
+        assertEquals("[\"strea\",1.5]", decode("9f7f657374726561fff93e00ff").toString());
+    }
+
+    @Test
+    void rejectsByteStringsTruncationAndTrailingBytes() {
+        assertThrows(IllegalArgumentException.class, () -> decode("4401020304"));
+        assertThrows(IllegalArgumentException.class, () -> decode("8301"));
+        assertThrows(IllegalArgumentException.class, () -> decode("0101"));
+        assertThrows(IllegalArgumentException.class, () -> decode("a10102"));
+    }
+
+    @Test
+    void cborFramePrefixesPayloadLength() {
+        byte[] frame = WireEncoding.cborFrame(JsonParser.parseString("[1,2,3]"));
+        assertArrayEquals(HEX.parseHex("0000000483010203"), frame);
+    }
+
+    private static void assertHex(String hex, String json) {
+        assertEquals(hex, HEX.formatHex(CborCodec.encode(JsonParser.parseString(json), 0)));
+        assertEquals(JsonParser.parseString(json).toString(), decode(hex).toString());
+    }
+
+    private static JsonElement decode(String hex) {
+        byte[] bytes = HEX.parseHex(hex);
+        return CborCodec.decode(bytes, 0, bytes.length);
+    }
+}
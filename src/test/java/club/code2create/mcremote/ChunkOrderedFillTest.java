@@ -0,0 +1,211 @@
+package club.code2create.mcremote;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkOrderedFillTest {
+    @Test
+    void writesEveryPositionOnceAndResolvesEachChunkOnce() {
+        List<String> chunks = new ArrayList<>();
+        Set<String> positions = new HashSet<>();
+        long written = ChunkOrderedFill.fill(-3, 60, 14, 17, 62, 33, new ChunkOrderedFill.ChunkWriter<int[]>() {
+            @Override
+            public int[] chunk(int chunkX, int chunkZ) {
+                chunks.add(chunkX + "," + chunkZ);
+                return new int[] {chunkX, chunkZ};
+            }
+
+            @Override
+            public void write(int[] chunk, int localX, int y, int localZ) {
+                assertTrue(localX >= 0 && localX < 16 && localZ >= 0 && localZ < 16);
+                assertTrue(positions.add(((chunk[0] << 4) + localX) + "," + y + "," + ((chunk[1] << 4) + localZ)));
+            }
+        });
+
+        assertEquals(21L * 3 * 20, written);
+        assertEquals(positions.size(), written);
+        assertEquals(List.of("-1,0", "0,0", "1,0", "-1,1", "0,1", "1,1", "-1,2", "0,2", "1,2"), chunks);
+        assertTrue(positions.contains("-3,60,14") && positions.contains("17,62,33"));
+    }
+
+    @Test
+    void visitsAChunkInSectionStorageOrderFromTheTop() {
+        List<String> order = new ArrayList<>();
+        ChunkOrderedFill.fill(0, 0, 0, 1, 1, 1, new ChunkOrderedFill.ChunkWriter<Object>() {
+            @Override
+            public Object chunk(int chunkX, int chunkZ) {
+                return this;
+            }
+
+            @Override
+            public void write(Object chunk, int localX, int y, int localZ) {
+                order.add(localX + "" + y + localZ);
+            }
+        });
+
+        assertEquals(List.of("010", "110", "011", "111", "000", "100", "001", "101"), order);
+    }
+
+    @Test
+    void cursorResumesInTheSameOrderAsFill() {
+        List<String> expected = new ArrayList<>();
+        ChunkOrderedFill.fill(-3, 60, 14, 17, 62, 33, recorder(expected));
+        List<String> sliced = new ArrayList<>();
+        ChunkOrderedFill.Cursor<int[]> cursor = new ChunkOrderedFill.Cursor<>(-3, 60, 14, 17, 62, 33, recorder(sliced));
+
+        assertEquals(expected.size(), cursor.volume());
+        while (!cursor.isDone()) {
+            long before = cursor.written();
+            assertEquals(Math.min(37, cursor.remaining()), cursor.advance(37));
+            assertEquals(before + Math.min(37, cursor.volume() - before), cursor.written());
+        }
+
+        assertEquals(expected, sliced);
+        assertEquals(0, cursor.advance(37));
+    }
+
+    @Test
+    void scatterGroupsEntriesByChunkAndKeepsRequestOrderWithinAChunk() {
+        List<String> chunks = new ArrayList<>();
+        List<String> writes = new ArrayList<>();
+        int[] entries = {
+                20, 0, 0, 1,
+                -1, 5, 0, 2,
+                3, 0, 17, 3,
+                21, 1, 2, 4,
+                20, 0, 0, 5,
+        };
+
+        long visited = ChunkOrderedFill.scatter(entries, 10, 60, 0, new ChunkOrderedFill.ScatterWriter<String>() {
+            @Override
+            public String chunk(int chunkX, int chunkZ) {
+                chunks.add(chunkX + "," + chunkZ);
+                return chunkX + "," + chunkZ;
+            }
+
+            @Override
+            public void write(String chunk, int localX, int y, int localZ, int value) {
+                writes.add(chunk + ":" + localX + "," + y + "," + localZ + "=" + value);
+            }
+        });
+
+        assertEquals(5, visited);
+        assertEquals(List.of("0,0", "1,0", "0,1"), chunks);
+        // 同一座標の重複は要求順のまま、最後の値が残る。
+        assertEquals(List.of("0,0:9,65,0=2", "1,0:14,60,0=1", "1,0:15,61,2=4", "1,0:14,60,0=5", "0,1:13,60,1=3"),
+                writes);
+        assertEquals(0, ChunkOrderedFill.scatter(new int[0], 0, 0, 0, null));
+    }
+
+    @Test
+    void writerLoadsEachChunkOnceAndSetsEveryPositionWithoutPhysics() {
+        BlockData stone = blockData("minecraft:stone");
+        List<String> chunkLoads = new ArrayList<>();
+        List<Object> physics = new ArrayList<>();
+        World world = proxy(World.class, (method, args) -> {
+            chunkLoads.add(args[0] + "," + args[1]);
+            return proxy(Chunk.class, (chunkMethod, chunkArgs) -> proxy(Block.class, (blockMethod, blockArgs) -> {
+                assertEquals("setBlockData", blockMethod);
+                assertSame(stone, blockArgs[0]);
+                physics.add(blockArgs[1]);
+                return null;
+            }));
+        });
+
+        // 従来の x/y/z ループなら getBlockAt が 34*3*20 回、chunk 境界を行ごとにまたぐ。
+        long written = ChunkOrderedFill.fill(-2, 60, 0, 31, 62, 19, ChunkOrderedFill.writer(world, stone));
+
+        assertEquals(34 * 3 * 20, written);
+        assertEquals(List.of("-1,0", "0,0", "1,0", "-1,1", "0,1", "1,1"), chunkLoads);
+        assertEquals(written, physics.size());
+        assertTrue(physics.stream().allMatch(Boolean.FALSE::equals));
+    }
+
+    @Test
+    void diffWriterOnlyWritesPositionsThatDiffer() {
+        BlockData stone = blockData("minecraft:stone");
+        Map<String, BlockData> world = new HashMap<>();
+        world.put("0,64,0", blockData("minecraft:stone"));
+        world.put("17,64,1", blockData("minecraft:stone"));
+        world.put("1,64,0", blockData("minecraft:dirt"));
+        List<String> writes = new ArrayList<>();
+        ChunkOrderedFill.DiffWriter writer = ChunkOrderedFill.diffWriter(world(world, writes), stone);
+
+        long visited = ChunkOrderedFill.fill(0, 64, 0, 17, 64, 1, writer);
+
+        assertEquals(36, visited);
+        assertEquals(34, writer.changed());
+        assertEquals(34, writes.size());
+        assertTrue(writes.contains("1,64,0") && !writes.contains("0,64,0") && !writes.contains("17,64,1"));
+
+        // 同じ fill をもう一度流しても（冪等な建築 script の再実行）何も書かない。
+        ChunkOrderedFill.DiffWriter again = ChunkOrderedFill.diffWriter(world(world, writes), stone);
+        ChunkOrderedFill.fill(0, 64, 0, 17, 64, 1, again);
+        assertEquals(0, again.changed());
+        assertEquals(34, writes.size());
+    }
+
+    /** World → Chunk → Block test doubles over {@code states}, keyed by "x,y,z". */
+    private static World world(Map<String, BlockData> states, List<String> writes) {
+        return proxy(World.class, (method, args) -> {
+            int chunkX = (int) args[0];
+            int chunkZ = (int) args[1];
+            return proxy(Chunk.class, (chunkMethod, chunkArgs) -> {
+                String key = ((chunkX << 4) + (int) chunkArgs[0]) + "," + chunkArgs[1] + "," + ((chunkZ << 4) + (int) chunkArgs[2]);
+                return proxy(Block.class, (blockMethod, blockArgs) -> switch (blockMethod) {
+                    case "getBlockData" -> states.getOrDefault(key, blockData("minecraft:air"));
+                    case "setBlockData" -> {
+                        states.put(key, (BlockData) blockArgs[0]);
+                        writes.add(key);
+                        yield null;
+                    }
+                    default -> throw new UnsupportedOperationException(blockMethod);
+                });
+            });
+        });
+    }
+
+    private static BlockData blockData(String serialized) {
+        return proxy(BlockData.class, (method, args) -> switch (method) {
+            case "getAsString" -> serialized;
+            case "equals" -> args[0] instanceof BlockData other && serialized.equals(other.getAsString());
+            case "hashCode" -> serialized.hashCode();
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, BiFunction<String, Object[], Object> handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.apply(method.getName(), args)));
+    }
+
+    private static ChunkOrderedFill.ChunkWriter<int[]> recorder(List<String> positions) {
+        return new ChunkOrderedFill.ChunkWriter<>() {
+            @Override
+            public int[] chunk(int chunkX, int chunkZ) {
+                return new int[] {chunkX, chunkZ};
+            }
+
+            @Override
+            public void write(int[] chunk, int localX, int y, int localZ) {
+                positions.add(((chunk[0] << 4) + localX) + "," + y + "," + ((chunk[1] << 4) + localZ));
+            }
+        };
+    }
+}
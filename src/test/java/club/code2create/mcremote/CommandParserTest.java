@@ -2,6 +2,9 @@ package club.code2create.mcremote;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -28,6 +31,62 @@ class CommandParserTest {
         assertThrows(IllegalArgumentException.class, () -> parser.parse(request("2147483648")));
     }
 
+    @Test
+    void byteSliceParsesLikeTheDecodedLine() {
+        byte[] line = ("xx{\"jsonrpc\":\"2.0\",\"id\":7,\"method\":\"chat.post\",\"params\":[\"日本\",3]}yy")
+                .getBytes(StandardCharsets.UTF_8);
+        ParsedCommand parsed = parser.parse(line, 2, line.length - 4);
+        assertEquals(7, parsed.getId());
+        assertEquals("chat.post", parsed.getName());
+        assertArrayEquals(new String[]{"日本", "3"}, parsed.getArgs());
+
+        byte[] malformed = "{\"jsonrpc\":".getBytes(StandardCharsets.UTF_8);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> parser.parse(malformed, 0, malformed.length));
+        assertEquals("Malformed JSON: {\"jsonrpc\":", e.getMessage());
+        byte[] trailing = (request("1") + " {}").getBytes(StandardCharsets.UTF_8);
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(trailing, 0, trailing.length));
+    }
+
+    @Test
+    void batchArrayKeepsOrderAndSetsAsideInvalidElements() {
+        byte[] frame = ("[" + request("1") + ",{\"jsonrpc\":\"2.0\",\"method\":\"chat.post\",\"params\":[\"hi\"]},"
+                + "{\"method\":\"x\"},[]," + request("2") + "]").getBytes(StandardCharsets.UTF_8);
+        ParsedBatch batch = (ParsedBatch) parser.parseFrame(frame, 0, frame.length, WireEncoding.JSON);
+
+        assertEquals(3, batch.commands().size());
+        assertEquals(1, batch.commands().get(0).getId());
+        assertNull(batch.commands().get(1).getId());
+        assertEquals(2, batch.commands().get(2).getId());
+        assertEquals(2, batch.rejected().size());
+        assertEquals(5, batch.elements().size());
+        assertNull(batch.rejected().get(0).id());
+
+        byte[] invalidWithId = "[{\"jsonrpc\":\"1.0\",\"id\":4,\"method\":\"x\"}]".getBytes(StandardCharsets.UTF_8);
+        ParsedBatch withId = (ParsedBatch) parser.parseFrame(invalidWithId, 0, invalidWithId.length, WireEncoding.JSON);
+        assertEquals(4, withId.rejected().get(0).id());
+
+        byte[] single = request("3").getBytes(StandardCharsets.UTF_8);
+        assertEquals(3, ((ParsedCommand) parser.parseFrame(single, 0, single.length, WireEncoding.JSON)).getId());
+        byte[] empty = "[]".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IllegalArgumentException.class,
+                () -> parser.parseFrame(empty, 0, empty.length, WireEncoding.JSON));
+    }
+
+    @Test
+    void batchLongerThanOneTickOfCommandsIsMalformed() {
+        String element = request("1");
+        byte[] fits = ("[" + (element + ",").repeat(CommandParser.MAX_BATCH_ELEMENTS - 1) + element + "]")
+                .getBytes(StandardCharsets.UTF_8);
+        assertEquals(CommandParser.MAX_BATCH_ELEMENTS,
+                ((ParsedBatch) parser.parseFrame(fits, 0, fits.length, WireEncoding.JSON)).commands().size());
+
+        byte[] tooLong = ("[" + (element + ",").repeat(CommandParser.MAX_BATCH_ELEMENTS) + element + "]")
+                .getBytes(StandardCharsets.UTF_8);
+        assertThrows(IllegalArgumentException.class,
+                () -> parser.parseFrame(tooLong, 0, tooLong.length, WireEncoding.JSON));
+    }
+
     private static String request(String id) {
         return "{\"jsonrpc\":\"2.0\",\"id\":" + id
                 + ",\"method\":\"connection.flush\",\"params\":[]}";
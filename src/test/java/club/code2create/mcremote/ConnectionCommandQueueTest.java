@@ -16,7 +16,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 class ConnectionCommandQueueTest {
     @Test
     void fullQueueBackpressuresProducerWithoutDroppingEitherCommand() throws Exception {
-        ConnectionCommandQueue queue = new ConnectionCommandQueue(1);
+        ConnectionCommandQueue<String> queue = new ConnectionCommandQueue<>(1);
         queue.put("first");
 
         ExecutorService executor = Executors.newSingleThreadExecutor();
@@ -41,7 +41,7 @@ class ConnectionCommandQueueTest {
 
     @Test
     void retainedHeadCannotBeOvertakenByFollowingFlush() throws InterruptedException {
-        ConnectionCommandQueue queue = new ConnectionCommandQueue(2);
+        ConnectionCommandQueue<String> queue = new ConnectionCommandQueue<>(2);
         queue.put("deferred-notification");
         queue.put("connection.flush");
 
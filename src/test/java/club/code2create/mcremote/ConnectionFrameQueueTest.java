@@ -10,7 +10,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 class ConnectionFrameQueueTest {
     @Test
     void preservesFrameOrderIncludingFlushResponse() {
-        ConnectionFrameQueue queue = new ConnectionFrameQueue(2);
+        ConnectionFrameQueue<String> queue = new ConnectionFrameQueue<>(2);
         assertTrue(queue.offer("prior-response"));
         assertTrue(queue.offer("flush-response"));
 
@@ -23,7 +23,7 @@ class ConnectionFrameQueueTest {
     @Test
     void saturationIsTerminalAndCannotExposeFalseFlushSuccess() {
         int capacity = B5RuntimePolicy.DEFAULT_CONNECTION_RESPONSE_QUEUE_CAPACITY;
-        ConnectionFrameQueue queue = new ConnectionFrameQueue(capacity);
+        ConnectionFrameQueue<String> queue = new ConnectionFrameQueue<>(capacity);
         for (int i = 0; i < capacity; i++) {
             assertTrue(queue.offer("prior-" + i));
         }
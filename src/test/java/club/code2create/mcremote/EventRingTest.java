@@ -99,8 +99,10 @@ class EventRingTest {
         }
 
         Map<String, Object> result = ring.poll(0, 64);
-        String response = RemoteSession.encodeResultResponse(Integer.MAX_VALUE, result);
-        int responseBytes = response.getBytes(StandardCharsets.UTF_8).length;
+        byte[] frame = new ResponseWriter(ResponseWriter.DEFAULT_CAPACITY)
+                .resultFrame(Integer.MAX_VALUE, result, false);
+        String response = new String(frame, StandardCharsets.UTF_8);
+        int responseBytes = frame.length;
 
         assertTrue(responseBytes <= RemoteSession.MAX_EVENT_POLL_RESPONSE_BYTES,
                 "actual bytes=" + responseBytes);
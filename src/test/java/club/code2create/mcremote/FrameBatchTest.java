@@ -0,0 +1,91 @@
+package club.code2create.mcremote;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameBatchTest {
+    @Test
+    void drainCoalescesQueuedFramesAsNewlineTerminatedUtf8() {
+        ConnectionFrameQueue<OutboundFrame> queue = new ConnectionFrameQueue<>(8);
+        queue.offer(OutboundFrame.ready(WireEncoding.jsonFrame("{\"id\":1}")));
+        queue.offer(OutboundFrame.ready(WireEncoding.jsonFrame("{\"msg\":\"é\"}")));
+        FrameBatch batch = new FrameBatch(1_024);
+
+        assertEquals(2, batch.drain(queue));
+        assertEquals("{\"id\":1}\n{\"msg\":\"é\"}\n",
+                new String(batch.array(), 0, batch.length(), StandardCharsets.UTF_8));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void drainStopsAtMaxBytesAndLeavesTheRestQueuedInOrder() {
+        ConnectionFrameQueue<OutboundFrame> queue = new ConnectionFrameQueue<>(8);
+        queue.offer(OutboundFrame.ready(WireEncoding.jsonFrame("aaaa")));
+        queue.offer(OutboundFrame.ready(WireEncoding.jsonFrame("bbbb")));
+        queue.offer(OutboundFrame.ready(WireEncoding.jsonFrame("cccc")));
+        FrameBatch batch = new FrameBatch(8);
+
+        assertEquals(2, batch.drain(queue));
+        assertEquals("aaaa\nbbbb\n", new String(batch.array(), 0, batch.length(), StandardCharsets.UTF_8));
+        batch.clear();
+        assertEquals(1, batch.drain(queue));
+        assertEquals("cccc\n", new String(batch.array(), 0, batch.length(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void oversizedFrameIsStagedWhole() {
+        ConnectionFrameQueue<OutboundFrame> queue = new ConnectionFrameQueue<>(8);
+        queue.offer(OutboundFrame.ready(WireEncoding.jsonFrame("0123456789")));
+        queue.offer(OutboundFrame.ready(WireEncoding.jsonFrame("next")));
+        FrameBatch batch = new FrameBatch(4);
+
+        assertEquals(1, batch.drain(queue));
+        assertEquals(11, batch.length());
+        batch.clear();
+        assertEquals(1, batch.drain(queue));
+        assertEquals("next\n", new String(batch.array(), 0, batch.length(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void deflatedFramesAreCompressedWhenDrainedInQueueOrder() throws IOException {
+        String first = "{\"id\":1,\"result\":\"" + "stone,".repeat(100) + "\"}";
+        String second = "{\"id\":2,\"result\":\"" + "stone,".repeat(100) + "\"}";
+        ConnectionFrameQueue<OutboundFrame> queue = new ConnectionFrameQueue<>(8);
+        FrameBatch batch = new FrameBatch(64 * 1024);
+        try (FrameDeflater deflater = new FrameDeflater(64)) {
+            queue.offer(OutboundFrame.deflated(deflater, first.getBytes(StandardCharsets.UTF_8)));
+            queue.offer(OutboundFrame.deflated(deflater, second.getBytes(StandardCharsets.UTF_8)));
+
+            assertEquals(2, batch.drain(queue));
+        }
+
+        assertTrue(batch.length() < first.length());
+        LineFramer framer = new LineFramer(1_024);
+        framer.switchTo(WireEncoding.JSON, true);
+        framer.read(new ByteArrayInputStream(batch.array(), 0, batch.length()));
+        List<String> frames = new ArrayList<>();
+        InboundLine line;
+        while ((line = framer.next()) != null) {
+            frames.add(line.text());
+        }
+        assertEquals(List.of(first, second), frames);
+    }
+
+    @Test
+    void frameQueuedBeforeCloseFailsInsteadOfTouchingTheReleasedStream() {
+        FrameDeflater deflater = new FrameDeflater(1);
+        OutboundFrame frame = OutboundFrame.deflated(deflater, "{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+        deflater.close();
+
+        assertThrows(IllegalStateException.class, frame::encode);
+    }
+}
@@ -0,0 +1,113 @@
+package club.code2create.mcremote;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameDeflaterTest {
+    @Test
+    void smallFramesStayRawAndLargeFramesShareOneStream() throws IOException {
+        String small = "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":null}";
+        String large = "{\"jsonrpc\":\"2.0\",\"id\":2,\"result\":[" + "{\"id\":\"minecraft:stone\"},".repeat(200) + "0]}";
+        String again = large.replace("\"id\":2", "\"id\":3");
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        try (FrameDeflater deflater = new FrameDeflater(256)) {
+            byte[] rawFrame = deflater.frame(small.getBytes(StandardCharsets.UTF_8));
+            assertEquals(0, rawFrame[0] & 0x80);
+            wire.writeBytes(rawFrame);
+            byte[] first = deflater.frame(large.getBytes(StandardCharsets.UTF_8));
+            byte[] second = deflater.frame(again.getBytes(StandardCharsets.UTF_8));
+            assertEquals(0x80, first[0] & 0x80);
+            assertTrue(first.length < large.length() / 4);
+            // 2 通目は 1 通目の履歴を参照できるので更に小さい。
+            assertTrue(second.length < first.length);
+            wire.writeBytes(first);
+            wire.writeBytes(second);
+        }
+
+        LineFramer framer = new LineFramer(64 * 1024);
+        framer.switchTo(WireEncoding.JSON, true);
+        List<String> frames = readAll(framer, new ByteArrayInputStream(wire.toByteArray()));
+        assertEquals(List.of(small, large, again), frames);
+    }
+
+    @Test
+    void precompressedFragmentSplicesIntoTheConnectionStream() throws IOException {
+        Map<String, Object> catalog = new LinkedHashMap<>();
+        for (int i = 0; i < 2_000; i++) {
+            catalog.put("minecraft:block_" + i, Map.of("states", List.of("north", "south", i)));
+        }
+        RawJson fragment = RawJson.precompressed(catalog);
+        String before = "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"" + "warm".repeat(400) + "\"}";
+        String spliced = "{\"jsonrpc\":\"2.0\",\"id\":2,\"result\":"
+                + new String(fragment.utf8(), StandardCharsets.UTF_8) + "}";
+        String after = "{\"jsonrpc\":\"2.0\",\"id\":3,\"result\":[\"minecraft:block_1999\"," + "1,".repeat(600) + "0]}";
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        try (FrameDeflater deflater = new FrameDeflater(256)) {
+            wire.writeBytes(deflater.frame(before.getBytes(StandardCharsets.UTF_8)));
+            byte[] frame = deflater.spliced(new ResponseWriter(64).resultHead(2), fragment, ResponseWriter.RESULT_TAIL);
+            assertTrue(frame.length < fragment.length() / 4);
+            wire.writeBytes(frame);
+            // 張り直した履歴から catalog 末尾を参照する後続フレームも正しく戻る。
+            wire.writeBytes(deflater.frame(after.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        LineFramer framer = new LineFramer(1 << 20);
+        framer.switchTo(WireEncoding.JSON, true);
+        assertEquals(List.of(before, spliced, after), readAll(framer, new ByteArrayInputStream(wire.toByteArray())));
+    }
+
+    @Test
+    void compressedFrameIsRejectedUnlessNegotiated() {
+        byte[] frame;
+        try (FrameDeflater deflater = new FrameDeflater(0)) {
+            frame = deflater.frame("{}".getBytes(StandardCharsets.UTF_8));
+        }
+        LineFramer framer = new LineFramer(1_024);
+        framer.switchTo(WireEncoding.CBOR);
+        assertThrows(ZipException.class, () -> readAll(framer, new ByteArrayInputStream(frame)));
+    }
+
+    @Test
+    void inflatedFrameOverTheLineLimitIsReportedOversized() throws IOException {
+        byte[] frame;
+        try (FrameDeflater deflater = new FrameDeflater(0)) {
+            frame = deflater.frame("x".repeat(10_000).getBytes(StandardCharsets.UTF_8));
+        }
+        LineFramer framer = new LineFramer(1_024);
+        framer.switchTo(WireEncoding.JSON, true);
+        InputStream in = new ByteArrayInputStream(frame);
+        InboundLine line;
+        while ((line = framer.next()) == null) {
+            assertFalse(framer.read(in) < 0);
+        }
+        assertTrue(line.isOversized());
+        assertEquals(10_000, line.oversizedLength());
+    }
+
+    private static List<String> readAll(LineFramer framer, InputStream in) throws IOException {
+        List<String> frames = new ArrayList<>();
+        while (true) {
+            InboundLine line = framer.next();
+            if (line != null) {
+                frames.add(line.text());
+            } else if (framer.read(in) < 0) {
+                return frames;
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package club.code2create.mcremote;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LineFramerTest {
+    @Test
+    void framesLinesSplitAcrossReadsAndStripsCarriageReturn() throws IOException {
+        LineFramer framer = new LineFramer(64);
+        List<String> lines = new ArrayList<>();
+
+        drain(framer, "fir", lines);
+        drain(framer, "st\r\nsec", lines);
+        drain(framer, "ond\n\nthird", lines);
+        lines.add(framer.finish().text());
+
+        assertEquals(List.of("first", "second", "", "third"), lines);
+    }
+
+    @Test
+    void overlongLineIsDiscardedUpToItsNewlineAndFramingResumes() throws IOException {
+        LineFramer framer = new LineFramer(8);
+        List<InboundLine> lines = new ArrayList<>();
+        InputStream in = new ByteArrayInputStream(
+                "ok\n0123456789abcdefghij\n12345678\n".getBytes(StandardCharsets.UTF_8));
+        while (true) {
+            InboundLine line = framer.next();
+            if (line != null) {
+                lines.add(line.detach());
+            } else if (framer.read(in) < 0) {
+                break;
+            }
+        }
+
+        assertEquals(3, lines.size());
+        assertEquals("ok", lines.get(0).text());
+        assertTrue(lines.get(1).isOversized());
+        assertEquals(20, lines.get(1).oversizedLength());
+        assertFalse(lines.get(2).isOversized());
+        assertEquals("12345678", lines.get(2).text());
+    }
+
+    @Test
+    void overlongLineArrivingWithItsNewlineInOneReadIsOversized() throws IOException {
+        LineFramer framer = new LineFramer(8);
+        framer.read(new ByteArrayInputStream("012345678\n".getBytes(StandardCharsets.UTF_8)));
+
+        InboundLine overlong = framer.next();
+        assertTrue(overlong.isOversized());
+        assertEquals(9, overlong.oversizedLength());
+        List<String> lines = new ArrayList<>();
+        drain(framer, "ok\n", lines);
+        assertEquals(List.of("ok"), lines);
+    }
+
+    @Test
+    void detachedFrameSurvivesBufferReuse() throws IOException {
+        LineFramer framer = new LineFramer(4);
+        framer.read(new ByteArrayInputStream("abc\n".getBytes(StandardCharsets.UTF_8)));
+        InboundLine kept = framer.next().detach();
+
+        // 次の行で buffer が詰め直され、元の view の位置は上書きされる。
+        List<String> lines = new ArrayList<>();
+        drain(framer, "wxyz\n", lines);
+
+        assertEquals(List.of("wxyz"), lines);
+        assertEquals("abc", kept.text());
+    }
+
+    @Test
+    void unterminatedOverlongTailIsReportedAtEof() throws IOException {
+        LineFramer framer = new LineFramer(4);
+        drain(framer, "0123456789", new ArrayList<>());
+
+        InboundLine tail = framer.finish();
+        assertTrue(tail.isOversized());
+        assertEquals(10, tail.oversizedLength());
+    }
+
+    @Test
+    void switchesToLengthPrefixedFramesAfterNegotiation() throws IOException {
+        LineFramer framer = new LineFramer(8);
+        List<InboundLine> frames = new ArrayList<>();
+        framer.switchTo(WireEncoding.CBOR);
+        InputStream in = new ByteArrayInputStream(HexFormat.of().parseHex(
+                "00000003" + "830102" + "0000000a" + "00112233445566778899" + "00000000"));
+        while (true) {
+            InboundLine frame = framer.next();
+            if (frame != null) {
+                frames.add(frame.detach());
+            } else if (framer.read(in) < 0) {
+                break;
+            }
+        }
+
+        assertEquals(3, frames.size());
+        assertEquals(WireEncoding.CBOR, frames.get(0).encoding());
+        assertEquals("830102", HexFormat.of().formatHex(frames.get(0).bytes()));
+        assertTrue(frames.get(1).isOversized());
+        assertEquals(10, frames.get(1).oversizedLength());
+        assertEquals(0, frames.get(2).length());
+    }
+
+    private static void drain(LineFramer framer, String chunk, List<String> lines) throws IOException {
+        InputStream in = new ByteArrayInputStream(chunk.getBytes(StandardCharsets.UTF_8));
+        while (true) {
+            InboundLine line = framer.next();
+            if (line != null) {
+                lines.add(line.text());
+            } else if (framer.read(in) < 0) {
+                return;
+            }
+        }
+    }
+}
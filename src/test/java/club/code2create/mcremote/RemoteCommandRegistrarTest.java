@@ -4,47 +4,76 @@ import com.google.gson.JsonParser;
 import org.junit.jupiter.api.Test;
 import org.bukkit.Location;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
-import static org.junit.jupiter.api.Assertions.assertNull;
 
 class RemoteCommandRegistrarTest {
     @Test
     void b5RegistersPollButLeavesClearUnreachable() {
-        CommandRegistry registry = new CommandRegistry();
-        EventCommands eventCommands = new EventCommands(
-                null, new EventRing(8, 8_000, 4_000), 4, 8);
+        CommandRegistry.Builder<SessionCommands> builder = CommandRegistry.builder();
 
-        RemoteCommandRegistrar.registerB5EventCommands(registry, eventCommands);
+        RemoteCommandRegistrar.registerB5EventCommands(builder);
+        CommandRegistry<SessionCommands> registry = builder.build();
 
-        assertNotNull(registry.get("events.poll"));
-        assertNull(registry.get("events.clear"));
+        assertEquals(0, registry.opcode("events.poll"));
+        assertEquals("events.poll", registry.name(0));
+        assertEquals(CommandRegistry.UNKNOWN, registry.opcode("events.clear"));
     }
 
     @Test
     void eventsClearDispatchesAsMethodNotFound() {
-        CommandRegistry registry = new CommandRegistry();
-        EventCommands eventCommands = new EventCommands(
-                null, new EventRing(8, 8_000, 4_000), 4, 8);
-        RemoteCommandRegistrar.registerB5EventCommands(registry, eventCommands);
+        CommandRegistry.Builder<SessionCommands> builder = CommandRegistry.builder();
+        RemoteCommandRegistrar.registerB5EventCommands(builder);
         CapturingContext context = new CapturingContext();
 
-        new CommandDispatcher(context, registry).dispatch(new ParsedCommand(
+        new CommandDispatcher<>(context, builder.build(), null).dispatch(new ParsedCommand(
                 "events.clear", new String[0], 1, JsonParser.parseString("[]")));
 
         assertEquals(-32601, context.code);
         assertEquals("method_not_found", context.reason);
     }
 
+    @Test
+    void preparedParamsAreValidatedOnceAndFailuresSurfaceInTheHandler() {
+        CommandRegistry.Builder<List<String>> registry = CommandRegistry.builder();
+        AtomicInteger prepares = new AtomicInteger();
+        List<String> handled = new ArrayList<>();
+        registry.registerPrepared("world.probe", (handlers, params) -> {
+            prepares.incrementAndGet();
+            return WireParams.integer(WireParams.positional(params, 1), 0);
+        }, (handlers, prepared) -> {
+            try {
+                handlers.add("ok:" + prepared.get());
+            } catch (IllegalArgumentException e) {
+                handlers.add("invalid:" + e.getMessage());
+            }
+        });
+        CommandDispatcher<List<String>> dispatcher =
+                new CommandDispatcher<>(new CapturingContext(), registry.build(), handled);
+        ParsedCommand valid = new ParsedCommand("world.probe", new String[0], 1, JsonParser.parseString("[7]"));
+        ParsedCommand invalid = new ParsedCommand("world.probe", new String[0], 2, JsonParser.parseString("[1.5]"));
+
+        dispatcher.prepare(valid);
+        dispatcher.prepare(invalid);
+        assertEquals(2, prepares.get());
+        dispatcher.dispatch(valid);
+        dispatcher.dispatch(invalid);
+
+        assertEquals(2, prepares.get());
+        assertEquals(List.of("ok:7", "invalid:parameter must be an integer"), handled);
+    }
+
     private static final class CapturingContext implements CommandDispatchContext {
         private int code;
         private String reason;
 
         @Override
         public Location getOrigin() {
-            return null;
+            return new Location(null, 0, 0, 0);
         }
 
         @Override
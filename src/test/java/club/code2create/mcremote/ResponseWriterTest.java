@@ -0,0 +1,79 @@
+package club.code2create.mcremote;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ResponseWriterTest {
+    private static final Gson GSON = new GsonBuilder().serializeNulls().create();
+
+    @Test
+    void resultFrameMatchesGsonEnvelopeByteForByte() {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("facing", "north");
+        state.put("level", new BigDecimal("15"));
+        state.put("lit", true);
+        state.put("missing", null);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("text", "<a href='x'>&= \"q\" \\ \n\t\u0001 日本 😀   \ud800");
+        result.put("numbers", Arrays.asList(1, 2L, 2.5d, new BigInteger("12345678901234567890"), null));
+        result.put("state", state);
+        result.put("tree", JsonParser.parseString("{\"a\":[1,1.50,\"x\",null,false]}"));
+        result.put("record", new Sample("r", 3));
+        ResponseWriter writer = new ResponseWriter(16);
+
+        assertEquals(envelope(42, result) + "\n", utf8(writer.resultFrame(42, result, true)));
+        assertEquals(envelope(7, null), utf8(writer.resultFrame(7, null, false)));
+        assertEquals(utf8(GSON.toJson(List.of(result)).getBytes(StandardCharsets.UTF_8)),
+                utf8(writer.frame(List.of(result), false)));
+    }
+
+    @Test
+    void sizeHelpersAgreeWithTheWrittenFrame() {
+        Map<String, Object> value = Map.of("events", List.of("é", 1));
+        ResponseWriter writer = new ResponseWriter(ResponseWriter.DEFAULT_CAPACITY);
+
+        int frameBytes = writer.resultFrame(123, value, false).length;
+
+        assertEquals(frameBytes, ResponseWriter.resultEnvelopeBytes(123) + ResponseWriter.encodedLength(value));
+        assertEquals(GSON.toJson(value).getBytes(StandardCharsets.UTF_8).length, ResponseWriter.encodedLength(value));
+    }
+
+    @Test
+    void rawFragmentIsSplicedVerbatim() {
+        Map<String, Object> catalog = new LinkedHashMap<>();
+        catalog.put("catalogHash", "abc");
+        catalog.put("block", Map.of("minecraft:stone", Map.of("states", Map.of())));
+        RawJson raw = RawJson.of(catalog);
+
+        assertEquals(envelope(5, catalog) + "\n",
+                utf8(new ResponseWriter(ResponseWriter.DEFAULT_CAPACITY).resultFrame(5, raw, true)));
+        assertEquals(raw.length(), ResponseWriter.encodedLength(catalog));
+    }
+
+    private static String envelope(int id, Object result) {
+        Map<String, Object> env = new LinkedHashMap<>();
+        env.put("jsonrpc", "2.0");
+        env.put("id", id);
+        env.put("result", result);
+        return utf8(GSON.toJson(env).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String utf8(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private record Sample(String name, int count) {
+    }
+}
@@ -0,0 +1,162 @@
+package club.code2create.mcremote;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SelectorTransportTest {
+    private SelectorTransport transport;
+    private ServerSocketChannel server;
+
+    @BeforeEach
+    void open() throws Exception {
+        transport = new SelectorTransport(TransportPolicy.defaults(TransportPolicy.Mode.SELECTOR), new TransportStats());
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        server.close();
+        transport.close();
+    }
+
+    @Test
+    void fullFifoPausesReadingWithoutDroppingOrReordering() throws Exception {
+        FakeContext context = new FakeContext(1, 4);
+        try (Socket client = connect(context)) {
+            OutputStream out = client.getOutputStream();
+            out.write("first\nsecond\r\nthi".getBytes(StandardCharsets.UTF_8));
+            out.write("rd\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            await(() -> context.commands.size() == 1);
+            assertEquals("first", context.commands.removeHead().text());
+            context.connection.inputDrained();
+            await(() -> "second".equals(text(context.commands.peek())));
+            assertEquals("second", context.commands.removeHead().text());
+            context.connection.inputDrained();
+            await(() -> "third".equals(text(context.commands.peek())));
+            assertTrue(context.isRunning());
+        }
+    }
+
+    @Test
+    void eofDeliversUnterminatedLastLineBeforeStopping() throws Exception {
+        FakeContext context = new FakeContext(4, 4);
+        try (Socket client = connect(context)) {
+            client.getOutputStream().write("only\nlast".getBytes(StandardCharsets.UTF_8));
+            client.shutdownOutput();
+
+            await(() -> !context.isRunning());
+            assertEquals("only", context.commands.removeHead().text());
+            assertEquals("last", context.commands.removeHead().text());
+        }
+    }
+
+    @Test
+    void closeAfterFlushWritesEveryQueuedFrameFirst() throws Exception {
+        FakeContext context = new FakeContext(4, 4);
+        try (Socket client = connect(context)) {
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+            assertTrue(context.frames.offer(OutboundFrame.ready(WireEncoding.jsonFrame("{\"id\":1}"))));
+            assertTrue(context.frames.offer(OutboundFrame.ready(WireEncoding.jsonFrame("{\"id\":2}"))));
+            context.closingAfterFlush = true;
+            context.connection.outputReady();
+
+            assertEquals("{\"id\":1}", in.readLine());
+            assertEquals("{\"id\":2}", in.readLine());
+            assertNull(in.readLine());
+            await(() -> context.closed);
+            assertFalse(context.isRunning());
+        }
+    }
+
+    private Socket connect(FakeContext context) throws Exception {
+        Socket client = new Socket(InetAddress.getLoopbackAddress(), server.socket().getLocalPort());
+        SocketChannel accepted = server.accept();
+        context.connection = transport.open(context, accepted);
+        context.connection.start();
+        return client;
+    }
+
+    private static String text(InboundLine line) {
+        return line == null ? null : line.text();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("condition not reached");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private static final class FakeContext implements ConnectionTransportContext<InboundLine> {
+        private final ConnectionCommandQueue<InboundLine> commands;
+        private final ConnectionFrameQueue<OutboundFrame> frames;
+        private volatile boolean running = true;
+        private volatile boolean closingAfterFlush;
+        private volatile boolean closed;
+        private ConnectionTransport connection;
+
+        private FakeContext(int commandCapacity, int frameCapacity) {
+            this.commands = new ConnectionCommandQueue<>(commandCapacity);
+            this.frames = new ConnectionFrameQueue<>(frameCapacity);
+        }
+
+        @Override
+        public InboundLine decode(InboundLine line) {
+            return line.detach();
+        }
+
+        @Override
+        public ConnectionCommandQueue<InboundLine> commandQueue() {
+            return commands;
+        }
+
+        @Override
+        public ConnectionFrameQueue<OutboundFrame> frameQueue() {
+            return frames;
+        }
+
+        @Override
+        public boolean isRunning() {
+            return running;
+        }
+
+        @Override
+        public void stopRunning() {
+            running = false;
+        }
+
+        @Override
+        public boolean isClosingAfterFlush() {
+            return closingAfterFlush;
+        }
+
+        @Override
+        public void closedAfterFlush() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package club.code2create.mcremote;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServerBenchTest {
+    private static final BlockData AIR = blockData("minecraft:air");
+    private static final BlockData STONE = blockData("minecraft:stone");
+    private static final BlockData GLASS = blockData("minecraft:glass");
+
+    @Test
+    void fillTimesBothLoopsAndPutsTheCuboidBack() {
+        Map<String, BlockData> states = new HashMap<>();
+        states.put("25,319,8", STONE);
+        Map<String, Integer> writes = new HashMap<>();
+
+        List<ServerBench.FillResult> results = ServerBench.fill(world(states, writes), 20, -3, GLASS,
+                new int[][] {{18, 2, 17}}, 2);
+
+        assertEquals(1, results.size());
+        ServerBench.FillResult result = results.get(0);
+        assertEquals(18L * 2 * 17, result.blocks());
+        assertTrue(result.legacyNanos() > 0 && result.chunkedNanos() > 0);
+        assertTrue(result.describe().startsWith("fill 18x2x17: loop "));
+        // origin は chunk の 8 ブロック目から、y は build limit 直下。
+        assertTrue(writes.containsKey("24,318,-8") && writes.containsKey("41,319,8"));
+        // 2 round × 2 variant、それぞれ書いて戻すので各位置 8 回。
+        assertEquals(18 * 2 * 17, writes.size());
+        assertTrue(writes.values().stream().allMatch(count -> count == 8));
+        assertEquals(STONE, states.get("25,319,8"));
+        assertTrue(states.entrySet().stream()
+                .filter(entry -> !entry.getKey().equals("25,319,8"))
+                .allMatch(entry -> entry.getValue().equals(AIR)));
+    }
+
+    @Test
+    void encodeSharesOneValuePerStateAndProducesTheSameBytes() {
+        BlockData stairs = blockData("minecraft:oak_stairs[facing=north,half=bottom]");
+        BlockData[] blocks = {AIR, STONE, stairs, AIR, STONE, AIR};
+        long expected = 0;
+        for (BlockData data : blocks) {
+            expected += RawJson.of(BlockCodec.encode(data)).length();
+        }
+
+        ServerBench.EncodeResult result = ServerBench.encode(blocks, 16, 2);
+
+        assertEquals(6, result.blocks());
+        assertEquals(3, result.distinct());
+        assertEquals(expected, result.bytes());
+        assertTrue(result.describe().startsWith("encode 6 blocks (3 states, "));
+    }
+
+    @Test
+    void sampleStaysInsideTheWorldHeight() {
+        Map<String, Integer> reads = new HashMap<>();
+        World world = proxy(World.class, (method, args) -> switch (method) {
+            case "getMinHeight" -> -64;
+            case "getMaxHeight" -> 320;
+            case "getBlockAt" -> {
+                reads.merge(args[0] + "," + args[1] + "," + args[2], 1, Integer::sum);
+                yield block(new HashMap<>(), new HashMap<>(), (int) args[0], (int) args[1], (int) args[2]);
+            }
+            default -> throw new UnsupportedOperationException(method);
+        });
+
+        assertEquals(4 * 4 * 4, ServerBench.sample(world, 0, 100, 0, 4).length);
+        reads.clear();
+        // build limit 際では下へずらして同じ大きさを保つ。
+        assertEquals(4 * 4 * 4, ServerBench.sample(world, 0, 319, 0, 4).length);
+        assertTrue(reads.containsKey("-2,316,-2") && reads.containsKey("1,319,1"));
+        reads.clear();
+        assertEquals(4 * 4 * 4, ServerBench.sample(world, 0, -200, 0, 4).length);
+        assertTrue(reads.containsKey("-2,-64,-2") && reads.containsKey("1,-61,1"));
+    }
+
+    /** World with both getBlockAt and getChunkAt over {@code states}, keyed by "x,y,z". */
+    private static World world(Map<String, BlockData> states, Map<String, Integer> writes) {
+        return proxy(World.class, (method, args) -> switch (method) {
+            case "getMaxHeight" -> 320;
+            case "getBlockAt" -> block(states, writes, (int) args[0], (int) args[1], (int) args[2]);
+            case "getChunkAt" -> proxy(Chunk.class, (chunkMethod, chunkArgs) -> block(states, writes,
+                    ((int) args[0] << 4) + (int) chunkArgs[0], (int) chunkArgs[1],
+                    ((int) args[1] << 4) + (int) chunkArgs[2]));
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    private static Block block(Map<String, BlockData> states, Map<String, Integer> writes, int x, int y, int z) {
+        String key = x + "," + y + "," + z;
+        return proxy(Block.class, (method, args) -> switch (method) {
+            case "getBlockData" -> states.getOrDefault(key, AIR);
+            case "setBlockData" -> {
+                states.put(key, (BlockData) args[0]);
+                writes.merge(key, 1, Integer::sum);
+                yield null;
+            }
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    private static BlockData blockData(String serialized) {
+        return proxy(BlockData.class, (method, args) -> switch (method) {
+            case "getAsString" -> serialized;
+            case "equals" -> args[0] instanceof BlockData other && serialized.equals(other.getAsString());
+            case "hashCode" -> serialized.hashCode();
+            case "clone" -> blockData(serialized);
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, BiFunction<String, Object[], Object> handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.apply(method.getName(), args)));
+    }
+}
@@ -0,0 +1,88 @@
+package club.code2create.mcremote;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ThreadedConnectionTransportTest {
+    @Test
+    void outputThreadWakesForEachFrameAndFlushesBeforeClosing() throws Exception {
+        TransportStats stats = new TransportStats();
+        FakeContext context = new FakeContext();
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             Socket client = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+             Socket accepted = server.accept()) {
+            ConnectionTransport transport = new ThreadedConnectionTransport<>(
+                    context, accepted, TransportPolicy.defaults(TransportPolicy.Mode.THREADS), stats);
+            transport.start();
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+
+            context.frames.offer(OutboundFrame.ready(WireEncoding.jsonFrame("{\"id\":1}")));
+            transport.outputReady();
+            assertEquals("{\"id\":1}", in.readLine());
+
+            context.frames.offer(OutboundFrame.ready(WireEncoding.jsonFrame("{\"id\":2}")));
+            context.closingAfterFlush = true;
+            transport.outputReady();
+            assertEquals("{\"id\":2}", in.readLine());
+            assertNull(in.readLine());
+
+            client.close();
+            transport.stop();
+            assertFalse(context.isRunning());
+            assertEquals(0, stats.liveIoThreads());
+            assertEquals(2, stats.peakIoThreads());
+        }
+    }
+
+    private static final class FakeContext implements ConnectionTransportContext<InboundLine> {
+        private final ConnectionCommandQueue<InboundLine> commands = new ConnectionCommandQueue<>(4);
+        private final ConnectionFrameQueue<OutboundFrame> frames = new ConnectionFrameQueue<>(4);
+        private volatile boolean running = true;
+        private volatile boolean closingAfterFlush;
+
+        @Override
+        public InboundLine decode(InboundLine line) {
+            return line.detach();
+        }
+
+        @Override
+        public ConnectionCommandQueue<InboundLine> commandQueue() {
+            return commands;
+        }
+
+        @Override
+        public ConnectionFrameQueue<OutboundFrame> frameQueue() {
+            return frames;
+        }
+
+        @Override
+        public boolean isRunning() {
+            return running;
+        }
+
+        @Override
+        public void stopRunning() {
+            running = false;
+        }
+
+        @Override
+        public boolean isClosingAfterFlush() {
+            return closingAfterFlush;
+        }
+
+        @Override
+        public void closedAfterFlush() {
+        }
+    }
+}
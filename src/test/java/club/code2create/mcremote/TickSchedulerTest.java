@@ -0,0 +1,129 @@
+package club.code2create.mcremote;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickSchedulerTest {
+    private long now;
+
+    @Test
+    void noisySessionCannotStarveTheOthers() {
+        TickScheduler scheduler = new TickScheduler(10, () -> now);
+        FakeSession noisy = new FakeSession(1_000, 1);
+        FakeSession quiet = new FakeSession(1_000, 1);
+        List<FakeSession> sessions = List.of(noisy, quiet);
+
+        for (int tick = 0; tick < 10; tick++) {
+            scheduler.runTick(sessions);
+            assertTrue(scheduler.lastUsedNanos() <= 10);
+        }
+
+        assertEquals(50, noisy.processed);
+        assertEquals(50, quiet.processed);
+        assertEquals(10, scheduler.deferrals(noisy));
+        assertEquals(10, scheduler.deferrals(quiet));
+    }
+
+    @Test
+    void slowFramesAreChargedAgainstTheNextTick() {
+        TickScheduler scheduler = new TickScheduler(10, () -> now);
+        FakeSession slow = new FakeSession(1_000, 10);
+        FakeSession fast = new FakeSession(1_000, 1);
+        List<FakeSession> sessions = List.of(slow, fast);
+
+        for (int tick = 0; tick < 20; tick++) {
+            scheduler.runTick(sessions);
+        }
+
+        // slow は 1 frame で 2 tick 分の持ち分を使うので、frame 数ではなく時間で釣り合う。
+        long slowTime = scheduler.usedNanos(slow);
+        long fastTime = scheduler.usedNanos(fast);
+        assertTrue(Math.abs(slowTime - fastTime) <= 10, slowTime + " vs " + fastTime);
+    }
+
+    @Test
+    void startingSessionRotatesAndLeftoverTimeIsShared() {
+        TickScheduler scheduler = new TickScheduler(4, () -> now);
+        List<String> order = new ArrayList<>();
+        FakeSession a = new FakeSession(1_000, 1, "a", order);
+        FakeSession b = new FakeSession(1_000, 1, "b", order);
+        FakeSession idle = new FakeSession(0, 1);
+
+        scheduler.runTick(List.of(a, b, idle));
+        scheduler.runTick(List.of(a, b, idle));
+
+        assertEquals(List.of("a", "a", "b", "b", "b", "b", "a", "a"), order);
+        assertEquals(0, scheduler.deferrals(idle));
+        assertTrue(scheduler.describe(50.0).contains("deferrals=4"));
+    }
+
+    @Test
+    void perTickCommandLimitHoldsAcrossTheLeftoverPass() {
+        TickScheduler scheduler = new TickScheduler(10, () -> now);
+        FakeSession capped = new FakeSession(1_000, 1);
+        capped.limit = 3;
+        FakeSession brief = new FakeSession(1, 1);
+
+        scheduler.runTick(List.of(capped, brief));
+
+        // brief が早く空になり 2 巡目で capped に残り時間が回っても、tick あたり 3 件まで。
+        assertEquals(3, capped.processed);
+        assertEquals(1, capped.ticks);
+        scheduler.runTick(List.of(capped, brief));
+        assertEquals(6, capped.processed);
+    }
+
+    private final class FakeSession implements TickScheduler.Participant {
+        private final long cost;
+        private final String name;
+        private final List<String> order;
+        private int queued;
+        private int processed;
+        private int limit = Integer.MAX_VALUE;
+        private int thisTick;
+        private int ticks;
+
+        private FakeSession(int queued, long cost) {
+            this(queued, cost, null, null);
+        }
+
+        private FakeSession(int queued, long cost, String name, List<String> order) {
+            this.queued = queued;
+            this.cost = cost;
+            this.name = name;
+            this.order = order;
+        }
+
+        @Override
+        public boolean hasPendingWork() {
+            return queued > 0;
+        }
+
+        @Override
+        public void beginTick() {
+            thisTick = 0;
+            ticks++;
+        }
+
+        @Override
+        public void tick(long deadlineNanos) {
+            while (queued > 0 && thisTick < limit) {
+                thisTick++;
+                queued--;
+                processed++;
+                now += cost;
+                if (order != null) {
+                    order.add(name);
+                }
+                if (now >= deadlineNanos) {
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -23,6 +23,23 @@ class WireParamsTest {
         assertThrows(IllegalArgumentException.class, () -> WireParams.integer(array("[2147483648]"), 0));
     }
 
+    @Test
+    void integerFastPathMatchesTheExactPath() {
+        JsonArray args = array("[-0,-42,999999999999999999,-9223372036854775808,1E2,-3.00]");
+        assertEquals(0L, WireParams.longInteger(args, 0));
+        assertEquals(-42L, WireParams.longInteger(args, 1));
+        assertEquals(999_999_999_999_999_999L, WireParams.longInteger(args, 2));
+        assertEquals(Long.MIN_VALUE, WireParams.longInteger(args, 3));
+        assertEquals(100L, WireParams.longInteger(args, 4));
+        assertEquals(-3L, WireParams.longInteger(args, 5));
+        JsonArray typed = new JsonArray();
+        typed.add(7L);
+        typed.add(2.0d);
+        assertEquals(7L, WireParams.longInteger(typed, 0));
+        assertEquals(2L, WireParams.longInteger(typed, 1));
+        assertThrows(IllegalArgumentException.class, () -> WireParams.longInteger(array("[9223372036854775808]"), 0));
+    }
+
     @Test
     void finiteDoubleRequiresJsonNumber() {
         assertEquals(1.25, WireParams.finiteDouble(array("[1.25]"), 0));
@@ -2,13 +2,24 @@ package club.code2create.mcremote;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 class WorkAdmissionTest {
-    private static final B5RuntimePolicy POLICY = new B5RuntimePolicy(
-            8, 8_000, 8, 8, 8, 10, 10, 6, 8, 12, 4, 4);
+    private static final B5RuntimePolicy POLICY = B5RuntimePolicy.defaults()
+            .withMaxWorkPerRequest(10).withSessionWorkPerTick(6).withPlayerWorkPerTick(8)
+            .withGlobalWorkPerTick(12).withWorkBurstTicks(1);
+    private static final B5RuntimePolicy BURST_POLICY = B5RuntimePolicy.defaults()
+            .withMaxWorkPerRequest(20).withSessionWorkPerTick(6).withPlayerWorkPerTick(8)
+            .withGlobalWorkPerTick(12).withWorkBurstTicks(4);
 
     @Test
     void distinguishesOversizedRequestFromTemporaryBudgetPressure() {
@@ -26,9 +37,138 @@ class WorkAdmissionTest {
     void budgetsResetAtTickBoundary() {
         WorkAdmission admission = new WorkAdmission(POLICY);
         UUID session = UUID.randomUUID();
+        assertEquals(6, admission.admissibleUnits(null));
         assertEquals(WorkAdmission.Result.ACCEPTED, admission.admit(session, null, 6));
         assertEquals(WorkAdmission.Result.BACKPRESSURE, admission.admit(session, null, 1));
         admission.beginTick();
         assertEquals(WorkAdmission.Result.ACCEPTED, admission.admit(session, null, 6));
     }
+
+    @Test
+    void adaptiveBudgetsGrowWithHeadroomAndShrinkUnderLagWithinBounds() {
+        WorkAdmission admission = new WorkAdmission(POLICY, new AdaptiveWorkPolicy(true, 40.0, 0.5, 2.0));
+        for (int tick = 0; tick < 200; tick++) {
+            admission.beginTick(5.0);
+        }
+        assertEquals(2.0, admission.scale());
+        assertEquals(new WorkAdmission.Tier(12, 12), admission.sessionTier());
+        assertEquals(new WorkAdmission.Tier(24, 24), admission.globalTier());
+        UUID session = UUID.randomUUID();
+        assertEquals(WorkAdmission.Result.ACCEPTED, admission.admit(session, null, 10));
+        assertEquals(WorkAdmission.Result.WORK_LIMIT_EXCEEDED, admission.admit(session, null, 11));
+
+        for (int tick = 0; tick < 200; tick++) {
+            admission.beginTick(120.0);
+        }
+        assertEquals(0.5, admission.scale());
+        // 縮小しても固定設定で1回は通った大きさの要求は受け付ける。
+        assertEquals(new WorkAdmission.Tier(3, 6), admission.sessionTier());
+        assertEquals(new WorkAdmission.Tier(6, 10), admission.globalTier());
+        assertEquals(WorkAdmission.Result.ACCEPTED, admission.admit(session, null, 6));
+    }
+
+    @Test
+    void unmeasuredOrDisabledTicksKeepTheConfiguredBudget() {
+        WorkAdmission fixed = new WorkAdmission(POLICY);
+        fixed.beginTick(5.0);
+        assertEquals(1.0, fixed.scale());
+        WorkAdmission adaptive = new WorkAdmission(POLICY, new AdaptiveWorkPolicy(true, 40.0, 0.5, 2.0));
+        adaptive.beginTick(0);
+        assertEquals(1.0, adaptive.scale());
+        assertEquals(new WorkAdmission.Tier(6, 6), adaptive.sessionTier());
+    }
+
+    @Test
+    void idleTicksBuildBurstCreditUpToTheBucketDepth() {
+        WorkAdmission admission = new WorkAdmission(BURST_POLICY);
+        UUID session = UUID.randomUUID();
+
+        // 1 tick の refill（6）を超える要求も、満タンの bucket（6×4）なら通る。
+        assertEquals(WorkAdmission.Result.ACCEPTED, admission.admit(session, null, 20));
+        assertEquals(WorkAdmission.Result.BACKPRESSURE, admission.admit(session, null, 6));
+        admission.beginTick();
+        assertEquals(WorkAdmission.Result.ACCEPTED, admission.admit(session, null, 6));
+        assertEquals(WorkAdmission.Result.BACKPRESSURE, admission.admit(session, null, 5));
+        for (int tick = 0; tick < 10; tick++) {
+            admission.beginTick();
+        }
+        assertEquals(WorkAdmission.Result.ACCEPTED, admission.admit(session, null, 20));
+        assertEquals(WorkAdmission.Result.ACCEPTED, admission.admit(session, null, 4));
+        assertEquals(WorkAdmission.Result.BACKPRESSURE, admission.admit(session, null, 1));
+    }
+
+    @Test
+    void rejectedTierRefundsTheTiersAlreadyCharged() {
+        WorkAdmission admission = new WorkAdmission(POLICY);
+        UUID player = UUID.randomUUID();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        assertEquals(WorkAdmission.Result.ACCEPTED, admission.admit(first, player, 5));
+        assertEquals(WorkAdmission.Result.BACKPRESSURE, admission.admit(second, player, 4));
+        // player 側で断られた 4 は session 側から払い戻されている。
+        assertEquals(WorkAdmission.Result.ACCEPTED, admission.admit(second, null, 6));
+    }
+
+    @Test
+    void concurrentAdmissionNeverOverspendsTheGlobalBucket() throws Exception {
+        B5RuntimePolicy wide = B5RuntimePolicy.defaults()
+                .withMaxWorkPerRequest(10).withSessionWorkPerTick(1_000).withPlayerWorkPerTick(1_000)
+                .withGlobalWorkPerTick(500).withWorkBurstTicks(1);
+        WorkAdmission admission = new WorkAdmission(wide);
+        AtomicInteger accepted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            Future<?>[] workers = new Future<?>[8];
+            for (int t = 0; t < workers.length; t++) {
+                UUID session = UUID.randomUUID();
+                workers[t] = pool.submit(() -> {
+                    for (int i = 0; i < 1_000; i++) {
+                        if (admission.admit(session, null, 1) == WorkAdmission.Result.ACCEPTED) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            for (Future<?> worker : workers) {
+                worker.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(500, accepted.get());
+    }
+
+    @Test
+    void backpressureDataEstimatesWhenTheRequestWouldFit() {
+        WorkAdmission admission = new WorkAdmission(BURST_POLICY);
+        UUID session = UUID.randomUUID();
+        UUID player = UUID.randomUUID();
+        admission.beginTick(100.0);
+        assertEquals(WorkAdmission.Result.ACCEPTED, admission.admit(session, player, 20));
+        assertEquals(WorkAdmission.Result.BACKPRESSURE, admission.admit(session, player, 15));
+
+        Map<String, Object> data = admission.backpressureData(session, player, 15);
+        // session bucket: 24 中 4 残り、15 には 11 不足 → 6/tick で 2 tick。遅い server では 1 tick=100ms。
+        assertEquals(2L, data.get("retry_after_ticks"));
+        assertEquals(200L, data.get("retry_after_ms"));
+        assertEquals(Map.of("available", 4L, "depth", 24L, "refill_per_tick", 6L),
+                ((Map<?, ?>) data.get("budget")).get("session"));
+        assertEquals(Map.of("available", 12L, "depth", 32L, "refill_per_tick", 8L),
+                ((Map<?, ?>) data.get("budget")).get("player"));
+
+        admission.beginTick();
+        admission.beginTick();
+        assertEquals(WorkAdmission.Result.ACCEPTED, admission.admit(session, player, 15));
+    }
+
+    @Test
+    void backpressureDataHasNoRetryWhenTheDepthCannotHoldTheRequest() {
+        B5RuntimePolicy narrow = B5RuntimePolicy.defaults()
+                .withMaxWorkPerRequest(10).withSessionWorkPerTick(6).withPlayerWorkPerTick(8)
+                .withGlobalWorkPerTick(4).withWorkBurstTicks(1);
+        Map<String, Object> data = new WorkAdmission(narrow).backpressureData(UUID.randomUUID(), null, 8);
+        assertNull(data.get("retry_after_ticks"));
+        assertNull(data.get("retry_after_ms"));
+    }
 }